@@ -0,0 +1,31 @@
+package com.example.congestiontax.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line and adds defaults that keep
+ * runs comparable: the gc profiler (allocation rate) and a JSON result file named after
+ * {@code -Dbench.label}, e.g. the commit being measured.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+        if (commandLineOptions.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        if (!commandLineOptions.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!commandLineOptions.getResult().hasValue())
+            options.result("jmh-" + System.getProperty("bench.label", "local") + ".json");
+
+        new Runner(options.build()).run();
+    }
+}
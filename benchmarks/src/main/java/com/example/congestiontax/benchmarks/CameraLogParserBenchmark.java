@@ -0,0 +1,70 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.service.CameraLogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Parser throughput on a generated multi-million-line camera log. Results are per line, so lines/sec is the inverse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CameraLogParserBenchmark {
+
+    private static final int LINES = 5_000_000;
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private Path file;
+    private CameraLogParser parser;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("camera-log", ".txt");
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        Random random = new Random(SyntheticFleet.DEFAULT_SEED);
+        LocalDateTime timestamp = LocalDateTime.of(2013, 1, 1, 0, 0);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < LINES; i++) {
+                timestamp = timestamp.plusSeconds(1 + random.nextInt(60));
+                writer.write('"');
+                writer.write(timestamp.format(format));
+                writer.write("\"\n");
+            }
+        }
+        parser = new CameraLogParser(threads, CHUNK_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parse() throws Exception {
+        AtomicLong checksum = new AtomicLong();
+        parser.parse(file, (epochSeconds, count) -> {
+            long sum = 0;
+            for (int i = 0; i < count; i++) sum += epochSeconds[i];
+            checksum.addAndGet(sum);
+        }, new AtomicLong());
+        return checksum.get();
+    }
+}
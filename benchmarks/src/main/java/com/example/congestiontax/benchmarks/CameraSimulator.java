@@ -0,0 +1,193 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.CongestionTaxApplication;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.service.CameraListener;
+import com.example.congestiontax.service.CameraProtocol;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Roadside cameras for the camera listener: {@code connections} persistent connections each send frames in
+ * writes of {@code burst} frames, with at most {@code window} frames waiting for an ack, for {@code duration}
+ * seconds. Every passage is distinct, so all of them are stored. Prints the acknowledged frames per second while
+ * running and the sustained rate at the end. Without {@code --port} it starts the application in-process on an
+ * in-memory H2 database with the listener on a free port and checks that every acknowledged frame is stored.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.CameraSimulator \
+ *     --connections=64 --duration=20 --vehicles=10000 [--host=localhost --port=9500]
+ * </pre>
+ * Options with a dot are passed to the in-process application, e.g. {@code --congestion.camera-listener.batch-size=5000}.
+ */
+public final class CameraSimulator {
+
+    private static final long START_MILLIS = LocalDateTime.of(2013, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    private static final VehicleType[] TYPES = {
+            VehicleType.CAR, VehicleType.CAR, VehicleType.CAR, VehicleType.CAR, VehicleType.CAR,
+            VehicleType.CAR, VehicleType.CAR, VehicleType.BUS, VehicleType.MOTORCYCLE, VehicleType.FOREIGN
+    };
+
+    private CameraSimulator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> applicationArgs = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:cameras;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--congestion.camera-listener.enabled=true",
+                "--congestion.camera-listener.port=0"
+        ));
+        Map<String, String> options = Harness.options(args, applicationArgs);
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "20"));
+        int vehicles = Integer.parseInt(options.getOrDefault("vehicles", "10000"));
+        int burst = Integer.parseInt(options.getOrDefault("burst", "100"));
+        int window = Integer.parseInt(options.getOrDefault("window", "2000"));
+        String host = options.getOrDefault("host", "localhost");
+
+        ConfigurableApplicationContext context = null;
+        int port;
+        if (options.containsKey("port")) {
+            port = Integer.parseInt(options.get("port"));
+        } else {
+            context = SpringApplication.run(CongestionTaxApplication.class, applicationArgs.toArray(String[]::new));
+            port = context.getBean(CameraListener.class).getPort();
+        }
+
+        try {
+            byte[][] registrations = new byte[vehicles][];
+            for (int v = 0; v < vehicles; v++) registrations[v] = String.format("SIM%06d", v).getBytes(StandardCharsets.UTF_8);
+
+            List<Camera> cameras = new ArrayList<>(connections);
+            for (int c = 0; c < connections; c++)
+                cameras.add(new Camera(c, connections, registrations, burst, window, SocketChannel.open(new InetSocketAddress(host, port))));
+            System.out.printf("%d cameras sending to %s:%d for %d s%n", connections, host, port, durationSeconds);
+
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (Camera camera : cameras) {
+                    executor.submit(() -> camera.send(deadline));
+                    executor.submit(camera::receiveAcks);
+                }
+                long previous = 0;
+                for (int second = 1; System.nanoTime() < deadline; second++) {
+                    Thread.sleep(1000);
+                    long acked = cameras.stream().mapToLong(Camera::acked).sum();
+                    System.out.printf("%3d s: %,d frames/s%n", second, acked - previous);
+                    previous = acked;
+                }
+                for (Camera camera : cameras) camera.awaitAcks(TimeUnit.SECONDS.toNanos(30));
+                long elapsedNanos = System.nanoTime() - start;
+                for (Camera camera : cameras) camera.channel.close();
+
+                long sent = cameras.stream().mapToLong(Camera::sent).sum();
+                long acked = cameras.stream().mapToLong(Camera::acked).sum();
+                System.out.printf("sent %,d frames, %,d acknowledged in %d ms: %,d frames/sec sustained%n",
+                        sent, acked, elapsedNanos / 1_000_000, acked * 1_000_000_000L / elapsedNanos);
+                if (context != null) {
+                    long stored = context.getBean(PassageRepository.class).count();
+                    System.out.printf("%,d passages stored%n", stored);
+                    if (stored < acked)
+                        throw new IllegalStateException(acked + " frames acknowledged but only " + stored + " stored");
+                }
+            }
+        } finally {
+            if (context != null) context.close();
+        }
+    }
+
+    /**
+     * One connection. Frame k of camera c is the passage number {@code k * cameras + c}, one second after the
+     * previous passage number, of the vehicle with that number modulo the fleet size.
+     */
+    private static final class Camera {
+
+        private final int index;
+        private final int cameras;
+        private final byte[][] registrations;
+        private final int burst;
+        private final int window;
+        private final SocketChannel channel;
+        private final ByteBuffer out;
+        private volatile long sent;
+        private volatile long acked;
+
+        private Camera(int index, int cameras, byte[][] registrations, int burst, int window, SocketChannel channel) {
+            this.index = index;
+            this.cameras = cameras;
+            this.registrations = registrations;
+            this.burst = burst;
+            this.window = Math.max(window, burst);
+            this.channel = channel;
+            this.out = ByteBuffer.allocateDirect(burst * CameraProtocol.MAX_FRAME_BYTES);
+        }
+
+        private long sent() {
+            return sent;
+        }
+
+        private long acked() {
+            return acked;
+        }
+
+        private Void send(long deadline) throws IOException, InterruptedException {
+            long frame = 0;
+            while (System.nanoTime() < deadline) {
+                synchronized (this) {
+                    while (frame + burst - acked > window) wait(100);
+                }
+                out.clear();
+                for (int i = 0; i < burst; i++, frame++) {
+                    long passage = frame * cameras + index;
+                    int vehicle = (int) (passage % registrations.length);
+                    CameraProtocol.encode(out, registrations[vehicle], TYPES[vehicle % TYPES.length],
+                            START_MILLIS + passage * 1000 + passage % 1000);
+                }
+                out.flip();
+                while (out.hasRemaining()) channel.write(out);
+                sent = frame;
+            }
+            return null;
+        }
+
+        private Void receiveAcks() throws IOException {
+            ByteBuffer ack = ByteBuffer.allocate(CameraProtocol.ACK_BYTES);
+            while (true) {
+                ack.clear();
+                while (ack.hasRemaining()) {
+                    if (channel.read(ack) < 0) return null;
+                }
+                synchronized (this) {
+                    acked = ack.flip().getLong();
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized void awaitAcks(long timeoutNanos) throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (acked < sent && System.nanoTime() < deadline) wait(100);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.CongestionTaxApplication;
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.dto.TaxTotals;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.service.ClusterForAllService;
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.PassageIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Yearly for-all time against the number of cluster nodes. It starts {@code nodes} instances of the application
+ * in-process on one shared in-memory H2 database, seeds a {@link SyntheticFleet} of a whole year through the
+ * first one, and then gathers {@code calculateYearlyTaxForAll} with a {@link ClusterForAllService} over 1, 2, ...
+ * {@code nodes} nodes and as many partitions. Each node evaluates on one thread
+ * ({@code congestion.for-all.parallelism=1}) and holds the passages in the columnar store, so the time is the
+ * tax evaluation rather than the shared database. Speed-up needs at least as many cores as nodes.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.ClusterScalingBenchmark \
+ *     --nodes=4 --vehicles=2000 --runs=5
+ * </pre>
+ * Options with a dot are passed to every node, e.g. {@code --congestion.passage-store.type=jpa}.
+ */
+public final class ClusterScalingBenchmark {
+
+    private static final int YEAR = 2013;
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private ClusterScalingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> nodeArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:cluster;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--congestion.for-all.parallelism=1",
+                "--congestion.passage-store.type=columnar"
+        ));
+        Map<String, String> options = Harness.options(args, nodeArgs);
+        int nodeCount = Integer.parseInt(options.getOrDefault("nodes", "4"));
+        int vehicles = Integer.parseInt(options.getOrDefault("vehicles", "2000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+
+        List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+        try {
+            // The first node creates the schema and is seeded before the others start and load their columnar stores.
+            nodes.add(startNode(nodeArgs, "create"));
+            seed(nodes.getFirst().getBean(PassageIngestionService.class), vehicles);
+            for (int i = 1; i < nodeCount; i++) nodes.add(startNode(nodeArgs, "none"));
+            List<URI> urls = nodes.stream()
+                    .map(node -> URI.create("http://localhost:" + ((WebServerApplicationContext) node).getWebServer().getPort()))
+                    .toList();
+
+            String query = "calculateYearlyTaxForAll?year=" + YEAR;
+            long baseline = 0;
+            TaxTotals expected = null;
+            for (int count = 1; count <= nodeCount; count++) {
+                ClusterForAllService coordinator = coordinator(urls.subList(0, count));
+                TaxTotals totals = coordinator.calculateTaxForAll(query);
+                if (expected == null) expected = totals;
+                else if (totals.size() != expected.size() || !totals.toString().equals(expected.toString()))
+                    throw new IllegalStateException(count + " nodes gave different totals than one node");
+
+                long[] millis = new long[runs];
+                for (int run = 0; run < runs; run++) {
+                    long start = System.nanoTime();
+                    coordinator.calculateTaxForAll(query);
+                    millis[run] = (System.nanoTime() - start) / 1_000_000;
+                }
+                Arrays.sort(millis);
+                long median = millis[runs / 2];
+                if (count == 1) baseline = median;
+                System.out.printf("%d node(s): median %d ms (min %d, max %d), speed-up %.2f%n",
+                        count, median, millis[0], millis[runs - 1], (double) baseline / Math.max(1, median));
+            }
+            System.out.printf("%d vehicles taxed; %d cores available%n", expected.size(), Runtime.getRuntime().availableProcessors());
+        } finally {
+            nodes.reversed().forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(List<String> nodeArgs, String ddlAuto) {
+        List<String> args = new ArrayList<>(nodeArgs);
+        args.add("--spring.jpa.hibernate.ddl-auto=" + ddlAuto);
+        return SpringApplication.run(CongestionTaxApplication.class, args.toArray(String[]::new));
+    }
+
+    private static ClusterForAllService coordinator(List<URI> nodes) {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        properties.getCluster().setNodes(new ArrayList<>(nodes));
+        return new ClusterForAllService(properties, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    private static void seed(PassageIngestionService passageIngestionService, int vehicles) {
+        long start = System.nanoTime();
+        LocalDate first = LocalDate.of(YEAR, 1, 1);
+        SyntheticFleet fleet = SyntheticFleet.generate(CompiledTariff.compile(Fixtures.loadProperties()),
+                vehicles, first, first.lengthOfYear(), SyntheticFleet.DEFAULT_SEED);
+        List<VehiclePassage> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (Passage passage : fleet.getAllPassages()) {
+            batch.add(new VehiclePassage(passage.getVehicle().getRegistration(), passage.getVehicle().getType(), passage.getTimestamp()));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                passageIngestionService.ingest(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) passageIngestionService.ingest(batch);
+        System.out.printf("Seeded %d vehicles and %d passages in %d ms%n", vehicles,
+                fleet.getAllPassages().size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
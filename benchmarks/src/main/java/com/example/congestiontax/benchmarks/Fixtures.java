@@ -0,0 +1,134 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.JpaPassageStore;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import com.example.congestiontax.service.CsvReaderService;
+import com.example.congestiontax.service.ExemptionCalendar;
+import com.example.congestiontax.service.TariffProvider;
+import com.example.congestiontax.service.TaxMetrics;
+import com.example.congestiontax.service.VehicleCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+/**
+ * Builds the calculator service outside of Spring, backed by in-memory repositories over a {@link SyntheticFleet},
+ * so the benchmarks measure the service code and not the database.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static CongestionTaxProperties loadProperties() {
+        try {
+            var sources = new YamlPropertySourceLoader().load("gothenburg2013", new ClassPathResource("gothenburg2013.yml"));
+            return new Binder(ConfigurationPropertySources.from(sources))
+                    .bind("congestion", CongestionTaxProperties.class)
+                    .get();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static CongestionTaxCalculatorService service(CongestionTaxProperties properties, SyntheticFleet fleet) {
+        VehicleRepository vehicleRepository = vehicleRepository(fleet);
+        PassageRepository passageRepository = passageRepository(fleet);
+        return new CongestionTaxCalculatorService(
+                new ExemptionCalendar(properties, new CsvReaderService()),
+                properties,
+                new TariffProvider(properties),
+                vehicleRepository,
+                new VehicleCache(vehicleRepository, properties, new SimpleMeterRegistry()),
+                passageRepository,
+                new JpaPassageStore(passageRepository),
+                unsupported(DailyTaxRepository.class),
+                new TaxMetrics(new SimpleMeterRegistry())
+        );
+    }
+
+    private static VehicleRepository vehicleRepository(SyntheticFleet fleet) {
+        Map<String, Vehicle> vehicles = fleet.getVehicles().stream()
+                .collect(Collectors.toMap(Vehicle::getRegistration, Function.identity()));
+
+        return (VehicleRepository) Proxy.newProxyInstance(
+                VehicleRepository.class.getClassLoader(),
+                new Class<?>[]{VehicleRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByRegistration" -> Optional.ofNullable(vehicles.get((String) args[0]));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static PassageRepository passageRepository(SyntheticFleet fleet) {
+        Map<String, List<Passage>> passagesByVehicle = fleet.getAllPassages().stream()
+                .collect(Collectors.groupingBy(passage -> passage.getVehicle().getRegistration()));
+        Map<List<LocalDateTime>, List<VehiclePassage>> orderedByRange = new ConcurrentHashMap<>();
+
+        return (PassageRepository) Proxy.newProxyInstance(
+                PassageRepository.class.getClassLoader(),
+                new Class<?>[]{PassageRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findPassagesByTimestampBetween" -> fleet.getPassagesBetween(
+                            ((LocalDateTime) args[0]).toLocalDate(), ((LocalDateTime) args[1]).toLocalDate());
+                    case "streamVehiclePassagesBetween" -> orderedByRange.computeIfAbsent(
+                            List.of((LocalDateTime) args[0], (LocalDateTime) args[1]),
+                            range -> orderedByVehicle(fleet, range.get(0), range.get(1))).stream();
+                    case "findTimestampsByRegistrationBetween" -> between(
+                            passagesByVehicle.getOrDefault((String) args[0], List.of()),
+                            (LocalDateTime) args[1], (LocalDateTime) args[2]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Sorted once per range, like the database would return it, so the sort is not part of the measurement.
+     */
+    private static List<VehiclePassage> orderedByVehicle(SyntheticFleet fleet, LocalDateTime from, LocalDateTime to) {
+        return fleet.getPassagesBetween(from.toLocalDate(), to.toLocalDate()).stream()
+                .map(passage -> new VehiclePassage(
+                        passage.getVehicle().getRegistration(), passage.getVehicle().getType(), passage.getTimestamp()))
+                .sorted(Comparator.comparing(VehiclePassage::registration).thenComparing(VehiclePassage::timestamp))
+                .toList();
+    }
+
+    /**
+     * Stand-in for repositories the measured code paths must not touch.
+     */
+    private static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+
+    private static List<LocalDateTime> between(List<Passage> passages, LocalDateTime from, LocalDateTime to) {
+        return passages.stream()
+                .map(Passage::getTimestamp)
+                .filter(timestamp -> !timestamp.isBefore(from) && timestamp.isBefore(to))
+                .toList();
+    }
+}
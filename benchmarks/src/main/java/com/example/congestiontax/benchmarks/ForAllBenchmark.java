@@ -0,0 +1,49 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Grouping and evaluation done by the for-all endpoints over a working week of synthetic traffic.
+ * The 1M fleet holds roughly 10M passages, hence the large heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ForAllBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2013, 2, 4);
+    private static final int DAYS = 5;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int vehicles;
+
+    private CongestionTaxCalculatorService service;
+
+    @Setup
+    public void setUp() {
+        CongestionTaxProperties properties = Fixtures.loadProperties();
+        SyntheticFleet fleet = SyntheticFleet.generate(
+                CompiledTariff.compile(properties), vehicles, START, DAYS, SyntheticFleet.DEFAULT_SEED);
+        service = Fixtures.service(properties, fleet);
+    }
+
+    @Benchmark
+    public Object calculateDailyTaxForAll() {
+        return service.calculateDailyTaxForAll(START.plusDays(2));
+    }
+
+    @Benchmark
+    public Object calculateTaxBetweenDatesForAll() {
+        return service.calculateTaxBetweenDatesForAll(START, START.plusDays(DAYS));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Yearly for-all totals over a synthetic year of traffic (about 7M passages) with 1 to N fork-join workers,
+ * to show how the evaluation scales with cores. Run it on a machine with at least as many cores as the
+ * largest {@code parallelism}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ForAllScalingBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2013, 1, 1);
+    private static final int DAYS = 365;
+    private static final int VEHICLES = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private CongestionTaxCalculatorService service;
+
+    @Setup
+    public void setUp() {
+        CongestionTaxProperties properties = Fixtures.loadProperties();
+        properties.getForAll().setParallelism(parallelism);
+        SyntheticFleet fleet = SyntheticFleet.generate(
+                CompiledTariff.compile(properties), VEHICLES, START, DAYS, SyntheticFleet.DEFAULT_SEED);
+        service = Fixtures.service(properties, fleet);
+    }
+
+    @Benchmark
+    public Object calculateYearlyTaxForAll() {
+        return service.calculateTaxBetweenDatesForAll(START, START.plusDays(DAYS));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.congestiontax.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Command line and reporting helpers shared by the standalone harnesses.
+ */
+final class Harness {
+
+    private Harness() {
+    }
+
+    /**
+     * Parses {@code --name=value} arguments.
+     */
+    static Map<String, String> options(String[] args) {
+        return options(args, null);
+    }
+
+    /**
+     * Parses {@code --name=value} arguments. If {@code applicationArgs} is not null, options with a dot in their
+     * name are Spring properties and are added to it instead, replacing a default for the same property.
+     */
+    static Map<String, String> options(String[] args, List<String> applicationArgs) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            String name = arg.substring(2, arg.indexOf('='));
+            if (applicationArgs != null && name.contains(".")) {
+                applicationArgs.removeIf(existing -> existing.startsWith("--" + name + "="));
+                applicationArgs.add(arg);
+            } else {
+                options.put(name, arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @return the nearest-rank percentile of sorted latencies in nanoseconds, in milliseconds
+     */
+    static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) return 0;
+        int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, index))] / 1e6;
+    }
+}
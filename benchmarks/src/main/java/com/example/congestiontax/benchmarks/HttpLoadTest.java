@@ -0,0 +1,122 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.service.CompiledTariff;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Closed-loop HTTP load against a running instance: {@code clients} virtual threads each send
+ * {@code calculateDailyTax} requests for random vehicles of a synthetic fleet back to back, then the
+ * throughput and latency percentiles are printed. Run it once against the default (platform thread)
+ * setup and once against {@code --spring.profiles.active=virtual} to compare them.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.HttpLoadTest \
+ *     --url=http://localhost:8080 --clients=1000 --duration=30 --vehicles=10000 --seed=true
+ * </pre>
+ */
+public final class HttpLoadTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    private HttpLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Harness.options(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "500"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        int vehicles = Integer.parseInt(options.getOrDefault("vehicles", "10000"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        if (Boolean.parseBoolean(options.getOrDefault("seed", "false"))) seed(client, url, vehicles);
+
+        System.out.printf("Running %d clients for %d s against %s%n", clients, duration.toSeconds(), url);
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> results = new ArrayList<>(clients);
+        int[] errors = new int[clients];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int clientIndex = c;
+                results.add(executor.submit(() -> runClient(client, url, vehicles, deadline, clientIndex, errors)));
+            }
+        }
+
+        long[] latencies = results.stream().flatMapToLong(future -> {
+            try {
+                return Arrays.stream(future.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).sorted().toArray();
+
+        System.out.printf("requests=%d errors=%d throughput=%.0f req/s%n",
+                latencies.length, Arrays.stream(errors).sum(), latencies.length / (double) duration.toSeconds());
+        System.out.printf("p50=%.1f ms p90=%.1f ms p99=%.1f ms p99.9=%.1f ms max=%.1f ms%n",
+                Harness.percentileMillis(latencies, 50), Harness.percentileMillis(latencies, 90),
+                Harness.percentileMillis(latencies, 99), Harness.percentileMillis(latencies, 99.9),
+                Harness.percentileMillis(latencies, 100));
+    }
+
+    private static long[] runClient(HttpClient client, String url, int vehicles, long deadline, int clientIndex, int[] errors) {
+        SplittableRandom random = new SplittableRandom(SyntheticFleet.DEFAULT_SEED + clientIndex);
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/congestion/calculateDailyTax?registration="
+                    + SyntheticFleet.registration(random.nextInt(vehicles)) + "&date=" + DAY)).GET().build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                // Vehicles that stayed home on DAY were never seeded and answer 400, which is a valid response.
+                if (response.statusCode() >= 500) errors[clientIndex]++;
+            } catch (IOException | InterruptedException e) {
+                errors[clientIndex]++;
+            }
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Loads one day of synthetic traffic through the bulk NDJSON endpoint.
+     */
+    private static void seed(HttpClient client, String url, int vehicles) throws IOException, InterruptedException {
+        SyntheticFleet fleet = SyntheticFleet.generate(
+                CompiledTariff.compile(Fixtures.loadProperties()), vehicles, DAY, 1, SyntheticFleet.DEFAULT_SEED);
+        StringBuilder body = new StringBuilder();
+        for (Passage passage : fleet.getAllPassages()) {
+            body.append("{\"vehicle\":{\"registration\":\"").append(passage.getVehicle().getRegistration())
+                    .append("\",\"type\":\"").append(passage.getVehicle().getType())
+                    .append("\"},\"timestamp\":\"").append(passage.getTimestamp()).append("\"}\n");
+        }
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url + "/api/congestion/addPassages"))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.printf("Seeded %d vehicles: %d %s%n", vehicles, response.statusCode(), response.body());
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.CongestionTaxApplication;
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.VehicleRepository;
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.PassageIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Self-contained end-to-end load test. It starts the application in-process on an in-memory H2 database and seeds
+ * a {@link SyntheticFleet}. Then {@code clients} virtual threads send a weighted mix of requests back to back:
+ * {@code addPassage}, daily and monthly lookups and daily for-all reports. Lookups must answer 200 and ingests 200
+ * or 202; a 429 from the ingest queue is counted as rejected and any other answer as an error, and neither enters the
+ * latencies. Throughput and p50/p95/p99 of the expected answers per endpoint are printed and written to
+ * {@code loadtest-<label>.json}. The label comes from {@code --label} or
+ * {@code -Dbench.label}. The fleet and the request sequence of every client are seeded, so runs on different
+ * commits are comparable. Options with a dot ({@code --congestion.passage-store.type=columnar},
+ * {@code --spring.profiles.active=virtual}, ...) are passed to the application.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.LoadTest \
+ *     --vehicles=5000 --days=28 --clients=64 --warmup=10 --duration=30 --mix=ingest:20,daily:50,monthly:25,for-all:5
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final LocalDate START = LocalDate.of(2013, 2, 1);
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private enum Operation {
+        INGEST("ingest", 200, 202), DAILY("daily", 200), MONTHLY("monthly", 200), FOR_ALL("for-all", 200);
+
+        private final String key;
+        private final int[] expectedStatuses;
+
+        Operation(String key, int... expectedStatuses) {
+            this.key = key;
+            this.expectedStatuses = expectedStatuses;
+        }
+
+        private boolean expects(int status) {
+            for (int expected : expectedStatuses) if (expected == status) return true;
+            return false;
+        }
+    }
+
+    public record EndpointResult(
+            String endpoint, long requests, long errors, long rejected, double throughput,
+            double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+    }
+
+    public record Result(
+            String label, int vehicles, int days, long seededPassages, int clients,
+            long warmupSeconds, long durationSeconds, Map<String, Integer> mix, List<EndpointResult> endpoints) {
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> applicationArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.com.example.congestiontax.controller=OFF"
+        ));
+        Map<String, String> options = Harness.options(args, applicationArgs);
+        String label = options.getOrDefault("label", System.getProperty("bench.label", "local"));
+        int vehicles = Integer.parseInt(options.getOrDefault("vehicles", "5000"));
+        int days = Integer.parseInt(options.getOrDefault("days", "28"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "64"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Map<Operation, Integer> mix = mix(options.getOrDefault("mix", "ingest:20,daily:50,monthly:25,for-all:5"));
+        File output = new File(options.getOrDefault("output", "loadtest-" + label + ".json"));
+        Map<String, Integer> mixByKey = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> mixByKey.put(operation.key, weight));
+
+        SyntheticFleet fleet = SyntheticFleet.generate(
+                CompiledTariff.compile(Fixtures.loadProperties()), vehicles, START, days, SyntheticFleet.DEFAULT_SEED);
+
+        try (ConfigurableApplicationContext context = SpringApplication.run(
+                CongestionTaxApplication.class, applicationArgs.toArray(String[]::new))) {
+            seed(context.getBean(PassageIngestionService.class), context.getBean(VehicleRepository.class), fleet);
+            String url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            System.out.printf("Running %d clients against %s: %d s warmup, %d s measured, mix %s%n",
+                    clients, url, warmup.toSeconds(), duration.toSeconds(), mixByKey);
+
+            long measureFrom = System.nanoTime() + warmup.toNanos();
+            long deadline = measureFrom + duration.toNanos();
+            List<Future<Samples[]>> futures = new ArrayList<>(clients);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < clients; c++) {
+                    int clientIndex = c;
+                    futures.add(executor.submit(() ->
+                            runClient(client, url, fleet, mix, clients, clientIndex, measureFrom, deadline)));
+                }
+            }
+
+            List<EndpointResult> endpoints = new ArrayList<>();
+            for (Operation operation : Operation.values()) {
+                if (!mix.containsKey(operation)) continue;
+                Samples merged = new Samples();
+                for (Future<Samples[]> future : futures) merged.addAll(future.get()[operation.ordinal()]);
+                endpoints.add(merged.result(operation.key, duration));
+            }
+
+            Result result = new Result(label, vehicles, days, fleet.getAllPassages().size(), clients,
+                    warmup.toSeconds(), duration.toSeconds(), mixByKey, endpoints);
+            print(result);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, result);
+            System.out.println("Results written to " + output);
+        }
+    }
+
+    private static void seed(PassageIngestionService passageIngestionService, VehicleRepository vehicleRepository, SyntheticFleet fleet) {
+        long start = System.nanoTime();
+        // Every vehicle is stored, even one that never passed, so every lookup must answer 200.
+        vehicleRepository.insertMissing(fleet.getVehicles());
+        List<VehiclePassage> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (Passage passage : fleet.getAllPassages()) {
+            batch.add(new VehiclePassage(passage.getVehicle().getRegistration(), passage.getVehicle().getType(), passage.getTimestamp()));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                passageIngestionService.ingest(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) passageIngestionService.ingest(batch);
+        System.out.printf("Seeded %d vehicles and %d passages in %d ms%n", fleet.getVehicles().size(),
+                fleet.getAllPassages().size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Samples[] runClient(
+            HttpClient client, String url, SyntheticFleet fleet, Map<Operation, Integer> mix,
+            int clients, int clientIndex, long measureFrom, long deadline
+    ) {
+        SplittableRandom random = new SplittableRandom(SyntheticFleet.DEFAULT_SEED + clientIndex);
+        Operation[] operations = mix.keySet().toArray(Operation[]::new);
+        int[] cumulativeWeight = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += mix.get(operations[i]);
+            cumulativeWeight[i] = totalWeight;
+        }
+
+        Samples[] samples = new Samples[Operation.values().length];
+        for (int i = 0; i < samples.length; i++) samples[i] = new Samples();
+        List<Vehicle> vehicles = fleet.getVehicles();
+        // Ingested passages fall after the seeded days and are unique per client, so none is a duplicate.
+        long ingestSecond = (long) fleet.getDays() * 86_400 + clientIndex;
+        while (System.nanoTime() < deadline) {
+            int roll = random.nextInt(totalWeight);
+            int pick = 0;
+            while (cumulativeWeight[pick] <= roll) pick++;
+            Operation operation = operations[pick];
+            Vehicle vehicle = vehicles.get(random.nextInt(vehicles.size()));
+            LocalDate date = START.plusDays(random.nextInt(fleet.getDays()));
+
+            HttpRequest request = switch (operation) {
+                case INGEST -> {
+                    String body = "{\"vehicle\":{\"registration\":\"" + vehicle.getRegistration() + "\",\"type\":\""
+                            + vehicle.getType() + "\"},\"timestamp\":\"" + START.atStartOfDay().plusSeconds(ingestSecond) + "\"}";
+                    ingestSecond += clients;
+                    yield HttpRequest.newBuilder(URI.create(url + "/api/congestion/addPassage"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build();
+                }
+                case DAILY -> get(url + "/api/congestion/calculateDailyTax?registration=" + vehicle.getRegistration() + "&date=" + date);
+                case MONTHLY -> get(url + "/api/congestion/calculateMonthlyTax?registration=" + vehicle.getRegistration()
+                        + "&month=" + date.getMonthValue() + "&year=" + date.getYear());
+                case FOR_ALL -> get(url + "/api/congestion/calculateDailyTaxForAll?date=" + date);
+            };
+
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException | InterruptedException e) {
+                status = -1;
+            }
+            long end = System.nanoTime();
+            if (start < measureFrom || end > deadline) continue;
+            Samples operationSamples = samples[operation.ordinal()];
+            if (operation.expects(status)) operationSamples.add(end - start);
+            else if (status == 429) operationSamples.rejected++;
+            else operationSamples.errors++;
+        }
+        return samples;
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+    }
+
+    private static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = Arrays.stream(Operation.values())
+                    .filter(candidate -> candidate.key.equals(parts[0]))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + parts[0]));
+            int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) mix.put(operation, weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("Empty mix " + value);
+        return mix;
+    }
+
+    private static void print(Result result) {
+        System.out.printf("%-8s %9s %7s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "429s", "ok req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointResult endpoint : result.endpoints()) {
+            System.out.printf(Locale.ROOT, "%-8s %9d %7d %7d %10.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint.endpoint(), endpoint.requests(), endpoint.errors(), endpoint.rejected(), endpoint.throughput(),
+                    endpoint.p50Ms(), endpoint.p95Ms(), endpoint.p99Ms(), endpoint.maxMs());
+        }
+    }
+
+    /**
+     * Latencies of one endpoint's expected answers in nanoseconds, and counts of the other answers.
+     */
+    private static final class Samples {
+
+        private long[] nanos = new long[256];
+        private int count;
+        private long errors;
+        private long rejected;
+
+        private void add(long latency) {
+            if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+            nanos[count++] = latency;
+        }
+
+        private void addAll(Samples other) {
+            if (count + other.count > nanos.length) nanos = Arrays.copyOf(nanos, Math.max(count + other.count, nanos.length * 2));
+            System.arraycopy(other.nanos, 0, nanos, count, other.count);
+            count += other.count;
+            errors += other.errors;
+            rejected += other.rejected;
+        }
+
+        private EndpointResult result(String endpoint, Duration duration) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return new EndpointResult(endpoint, count + errors + rejected, errors, rejected, count / (double) duration.toSeconds(),
+                    Harness.percentileMillis(sorted, 50), Harness.percentileMillis(sorted, 95),
+                    Harness.percentileMillis(sorted, 99), Harness.percentileMillis(sorted, 100));
+        }
+    }
+}
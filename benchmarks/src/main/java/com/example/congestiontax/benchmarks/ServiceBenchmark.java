@@ -0,0 +1,66 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Per-vehicle service calls and the exempt-date lookup on a small fleet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2013, 2, 4);
+    private static final int DAYS = 5;
+
+    private CongestionTaxCalculatorService service;
+    private List<String> registrations;
+    private LocalDate[] yearDates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CongestionTaxProperties properties = Fixtures.loadProperties();
+        SyntheticFleet fleet = SyntheticFleet.generate(
+                CompiledTariff.compile(properties), 1_000, START, DAYS, SyntheticFleet.DEFAULT_SEED);
+        service = Fixtures.service(properties, fleet);
+        registrations = fleet.getVehicles().stream().map(Vehicle::getRegistration).toList();
+        yearDates = LocalDate.of(properties.getYear(), 1, 1)
+                .datesUntil(LocalDate.of(properties.getYear() + 1, 1, 1))
+                .toArray(LocalDate[]::new);
+    }
+
+    private String nextRegistration() {
+        next = (next + 1) % registrations.size();
+        return registrations.get(next);
+    }
+
+    @Benchmark
+    public Integer calculateDailyTax() throws Exception {
+        return service.calculateDailyTax(nextRegistration(), START.plusDays(next % DAYS));
+    }
+
+    @Benchmark
+    public Integer calculateTaxBetweenDates() throws Exception {
+        return service.calculateTaxBetweenDates(nextRegistration(), START, START.plusDays(DAYS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(365)
+    public void isExemptDate(Blackhole blackhole) {
+        for (LocalDate date : yearDates) blackhole.consume(service.isExemptDate(date));
+    }
+}
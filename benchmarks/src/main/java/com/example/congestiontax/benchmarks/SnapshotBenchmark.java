@@ -0,0 +1,173 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.CongestionTaxApplication;
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.PassageSnapshot;
+import com.example.congestiontax.service.SnapshotService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Compares the binary {@link PassageSnapshot} with a plain SQL dump of the same {@link SyntheticFleet}: one
+ * {@code INSERT} per row as in {@code data.sql}. It prints the size of both files, raw and gzipped. Then it starts
+ * the application in-process on an in-memory H2 database and times loading each file into the empty tables and
+ * exporting the snapshot again. The snapshot import goes through the ingestion path and so also fills the daily
+ * tax ledger, which the SQL load does not.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.SnapshotBenchmark \
+ *     --vehicles=20000 --days=26 --directory=/tmp
+ * </pre>
+ * Options with a dot are passed to the application, e.g. {@code --spring.datasource.url=...} to load into PostgreSQL.
+ */
+public final class SnapshotBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2013, 2, 1);
+    private static final DateTimeFormatter SQL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private SnapshotBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> applicationArgs = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:snapshot;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"
+        ));
+        Map<String, String> options = Harness.options(args, applicationArgs);
+        int vehicles = Integer.parseInt(options.getOrDefault("vehicles", "20000"));
+        int days = Integer.parseInt(options.getOrDefault("days", "26"));
+        Path directory = Path.of(options.getOrDefault("directory", System.getProperty("java.io.tmpdir")));
+        Path sqlFile = directory.resolve("passages.sql");
+        Path snapshotFile = directory.resolve("passages.snap");
+
+        List<VehiclePassage> passages = passages(SyntheticFleet.generate(
+                CompiledTariff.compile(Fixtures.loadProperties()), vehicles, START, days, SyntheticFleet.DEFAULT_SEED));
+        writeSql(passages, sqlFile);
+        try (PassageSnapshot.Writer writer = new PassageSnapshot.Writer(Files.newOutputStream(snapshotFile))) {
+            for (VehiclePassage passage : passages) writer.add(passage);
+        }
+        System.out.printf("%d passages of %d vehicles%n", passages.size(), vehicles);
+        System.out.printf("SQL dump: %,d bytes (%,d gzipped), %.1f bytes/passage%n",
+                Files.size(sqlFile), gzippedSize(sqlFile), (double) Files.size(sqlFile) / passages.size());
+        System.out.printf("snapshot: %,d bytes (%,d gzipped), %.1f bytes/passage%n",
+                Files.size(snapshotFile), gzippedSize(snapshotFile), (double) Files.size(snapshotFile) / passages.size());
+
+        try (ConfigurableApplicationContext context = SpringApplication.run(
+                CongestionTaxApplication.class, applicationArgs.toArray(String[]::new))) {
+            SnapshotService snapshotService = context.getBean(SnapshotService.class);
+
+            long start = System.nanoTime();
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new FileSystemResource(sqlFile));
+            populator.setSqlScriptEncoding(StandardCharsets.UTF_8.name());
+            DatabasePopulatorUtils.execute(populator, context.getBean(DataSource.class));
+            report("SQL dump load", passages.size(), start);
+
+            clear(context);
+            start = System.nanoTime();
+            try (InputStream in = Files.newInputStream(snapshotFile)) {
+                snapshotService.importSnapshot(in);
+            }
+            report("snapshot import", passages.size(), start);
+
+            File exported = File.createTempFile("passages", ".snap", directory.toFile());
+            exported.deleteOnExit();
+            start = System.nanoTime();
+            PassageSnapshot.Summary summary = snapshotService.exportSnapshot(Files.newOutputStream(exported.toPath()));
+            report("snapshot export", summary.passages(), start);
+            if (summary.passages() != passages.size())
+                throw new IllegalStateException("Exported " + summary.passages() + " passages but imported " + passages.size());
+        }
+    }
+
+    /**
+     * The fleet's passages in snapshot order, without the duplicates the unique constraint would reject.
+     */
+    private static List<VehiclePassage> passages(SyntheticFleet fleet) {
+        List<VehiclePassage> passages = new ArrayList<>(fleet.getAllPassages().size());
+        for (Passage passage : fleet.getAllPassages()) {
+            passages.add(new VehiclePassage(passage.getVehicle().getRegistration(), passage.getVehicle().getType(), passage.getTimestamp()));
+        }
+        passages.sort(Comparator.comparing(VehiclePassage::registration).thenComparing(VehiclePassage::timestamp));
+        List<VehiclePassage> unique = new ArrayList<>(passages.size());
+        for (VehiclePassage passage : passages) {
+            if (unique.isEmpty() || !unique.getLast().registration().equals(passage.registration())
+                    || !unique.getLast().timestamp().equals(passage.timestamp())) unique.add(passage);
+        }
+        return unique;
+    }
+
+    private static void writeSql(List<VehiclePassage> passages, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            String previous = null;
+            for (VehiclePassage passage : passages) {
+                if (!passage.registration().equals(previous)) {
+                    writer.write("INSERT INTO vehicle (registration, type) VALUES ('" + passage.registration() + "', '" + passage.type() + "');\n");
+                    previous = passage.registration();
+                }
+            }
+            for (VehiclePassage passage : passages) {
+                writer.write("INSERT INTO passage (vehicle_registration, timestamp) VALUES ('" + passage.registration()
+                        + "', '" + SQL_TIMESTAMP.format(passage.timestamp()) + "');\n");
+            }
+        }
+    }
+
+    private static long gzippedSize(Path file) throws IOException {
+        long[] size = {0};
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                size[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                size[0] += len;
+            }
+        };
+        try (OutputStream out = new GZIPOutputStream(counter, 1 << 16)) {
+            Files.copy(file, out);
+        }
+        return size[0];
+    }
+
+    private static void clear(ConfigurableApplicationContext context) {
+        context.getBean(DailyTaxRepository.class).deleteAllInBatch();
+        context.getBean(PassageRepository.class).deleteAllInBatch();
+        context.getBean(VehicleRepository.class).deleteAllInBatch();
+    }
+
+    private static void report(String name, long rows, long start) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        System.out.printf("%s: %d ms, %,d rows/sec%n", name, elapsedNanos / 1_000_000, rows * 1_000_000_000L / elapsedNanos);
+    }
+}
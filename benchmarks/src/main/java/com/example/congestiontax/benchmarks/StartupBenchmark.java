@@ -0,0 +1,95 @@
+package com.example.congestiontax.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Time to first successful {@code calculateDailyTax}: starts the application {@code runs} times and measures the
+ * wall-clock time from launching the JVM until the first 200 answer, which includes JVM startup, context refresh,
+ * the first database round trips and the lazy tariff/calendar preparation. {@code command} is the full launch
+ * command, run in {@code directory}; {@code --server.port} is appended. Compare the plain jar with the
+ * {@code aot} profile's CDS-trained one, which has to be started from {@code target/app} because the archive
+ * records the class path as it was during training:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.StartupBenchmark --runs=10 \
+ *     --command="java -jar target/congestion-tax-0.0.1-SNAPSHOT-exec.jar --spring.datasource.url=jdbc:postgresql://localhost:5432/congestion"
+ * java -cp benchmarks/target/benchmarks.jar com.example.congestiontax.benchmarks.StartupBenchmark --runs=10 \
+ *     --directory=target/app --command="java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar congestion-tax-0.0.1-SNAPSHOT-exec.jar --spring.datasource.url=jdbc:postgresql://localhost:5432/congestion"
+ * </pre>
+ * The database must already hold {@code registration}, e.g. from {@code data.sql}.
+ */
+public final class StartupBenchmark {
+
+    private static final long POLL_MILLIS = 5;
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Harness.options(args);
+        String command = options.get("command");
+        if (command == null) throw new IllegalArgumentException("--command is required");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        File directory = new File(options.getOrDefault("directory", "."));
+        int port = Integer.parseInt(options.getOrDefault("port", "18080"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "120")));
+        URI uri = URI.create("http://localhost:" + port + "/api/congestion/calculateDailyTax?registration="
+                + options.getOrDefault("registration", "GB-9271-0") + "&date=" + options.getOrDefault("date", "2013-02-08"));
+
+        List<String> launch = new ArrayList<>(Arrays.asList(command.trim().split("\\s+")));
+        launch.add("--server.port=" + port);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            millis[run] = firstSuccess(launch, directory, client, uri, timeout);
+            System.out.printf("run %d: %d ms%n", run + 1, millis[run]);
+        }
+        Arrays.sort(millis);
+        System.out.printf("time to first calculateDailyTax over %d runs: min=%d ms median=%d ms max=%d ms%n",
+                runs, millis[0], millis[runs / 2], millis[runs - 1]);
+    }
+
+    private static long firstSuccess(List<String> launch, File directory, HttpClient client, URI uri, Duration timeout)
+            throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder(launch)
+                .directory(directory)
+                .redirectErrorStream(true)
+                .redirectOutput(File.createTempFile("startup-benchmark", ".log"));
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long start = System.nanoTime();
+        Process process = processBuilder.start();
+        try {
+            while (System.nanoTime() - start < timeout.toNanos()) {
+                if (!process.isAlive())
+                    throw new IllegalStateException("Application exited with " + process.exitValue()
+                            + ", see " + processBuilder.redirectOutput().file());
+                try {
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 200) return (System.nanoTime() - start) / 1_000_000;
+                    // The web server is up but the request failed, which will not change by retrying.
+                    if (response.statusCode() != 503)
+                        throw new IllegalStateException("calculateDailyTax answered " + response.statusCode() + ": " + response.body());
+                } catch (IOException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            throw new IllegalStateException("No successful response within " + timeout);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.service.CompiledTariff;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+
+/**
+ * Deterministic fleet of vehicles and passages. Passage times follow the configured time bands:
+ * the probability of a passage in a given minute grows with the charge of that minute, so the
+ * generated traffic peaks in the morning and afternoon rush hours and is thin at night.
+ */
+public final class SyntheticFleet {
+
+    public static final long DEFAULT_SEED = 20130101L;
+
+    private static final VehicleType[] EXEMPT_TYPES = {
+            VehicleType.EMERGENCY, VehicleType.BUS, VehicleType.DIPLOMAT,
+            VehicleType.MOTORCYCLE, VehicleType.MILITARY, VehicleType.FOREIGN
+    };
+
+    private final LocalDate startDate;
+    private final List<Vehicle> vehicles;
+    private final List<List<Passage>> passagesByDay;
+    private final List<Passage> allPassages;
+
+    private SyntheticFleet(LocalDate startDate, List<Vehicle> vehicles, List<List<Passage>> passagesByDay) {
+        this.startDate = startDate;
+        this.vehicles = vehicles;
+        this.passagesByDay = passagesByDay;
+        this.allPassages = new ArrayList<>(passagesByDay.stream().mapToInt(List::size).sum());
+        passagesByDay.forEach(allPassages::addAll);
+    }
+
+    public static SyntheticFleet generate(CompiledTariff tariff, int vehicleCount, LocalDate startDate, int days, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PassageTimeSampler sampler = new PassageTimeSampler(tariff);
+
+        List<Vehicle> vehicles = new ArrayList<>(vehicleCount);
+        for (int i = 0; i < vehicleCount; i++) {
+            VehicleType type = random.nextInt(100) < 92 ? VehicleType.CAR : EXEMPT_TYPES[random.nextInt(EXEMPT_TYPES.length)];
+            vehicles.add(new Vehicle(registration(i), type));
+        }
+
+        List<List<Passage>> passagesByDay = new ArrayList<>(days);
+        for (int day = 0; day < days; day++) {
+            LocalDateTime startOfDay = startDate.plusDays(day).atStartOfDay();
+            List<Passage> passages = new ArrayList<>(vehicleCount * 2);
+            for (Vehicle vehicle : vehicles) {
+                int count = passagesPerDay(random);
+                for (int p = 0; p < count; p++) {
+                    passages.add(new Passage(null, vehicle, startOfDay.plusSeconds(sampler.sample(random))));
+                }
+            }
+            passagesByDay.add(passages);
+        }
+
+        return new SyntheticFleet(startDate, vehicles, passagesByDay);
+    }
+
+    public static String registration(int index) {
+        return String.format("SYN-%07d", index);
+    }
+
+    /**
+     * Vehicle-days of passage times in seconds of day, drawn from the same distribution as the fleet.
+     */
+    public static int[][] vehicleDays(CompiledTariff tariff, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PassageTimeSampler sampler = new PassageTimeSampler(tariff);
+        int[][] vehicleDays = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int[] secondsOfDay = new int[Math.max(1, passagesPerDay(random))];
+            for (int p = 0; p < secondsOfDay.length; p++) secondsOfDay[p] = sampler.sample(random);
+            vehicleDays[i] = secondsOfDay;
+        }
+        return vehicleDays;
+    }
+
+    /**
+     * Roughly a third of the fleet stays home on a given day; commuters mostly pass twice.
+     */
+    private static int passagesPerDay(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 35) return 0;
+        if (roll < 50) return 1;
+        if (roll < 80) return 2;
+        if (roll < 92) return 4;
+        return 6 + random.nextInt(6);
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public int getDays() {
+        return passagesByDay.size();
+    }
+
+    public List<Vehicle> getVehicles() {
+        return vehicles;
+    }
+
+    public List<Passage> getAllPassages() {
+        return allPassages;
+    }
+
+    public List<Passage> getPassagesOn(LocalDate date) {
+        int day = (int) (date.toEpochDay() - startDate.toEpochDay());
+        return day >= 0 && day < passagesByDay.size() ? passagesByDay.get(day) : List.of();
+    }
+
+    /**
+     * Passages in the half-open range of whole days {@code [from, to)}.
+     */
+    public List<Passage> getPassagesBetween(LocalDate from, LocalDate to) {
+        if (!from.isAfter(startDate) && !to.isBefore(startDate.plusDays(passagesByDay.size()))) return allPassages;
+
+        List<Passage> passages = new ArrayList<>();
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            passages.addAll(getPassagesOn(date));
+        }
+        return passages;
+    }
+
+    private static final class PassageTimeSampler {
+
+        private final int[] cumulativeWeight = new int[CompiledTariff.MINUTES_PER_DAY];
+
+        private PassageTimeSampler(CompiledTariff tariff) {
+            int total = 0;
+            for (int minute = 0; minute < CompiledTariff.MINUTES_PER_DAY; minute++) {
+                total += 1 + tariff.getChargeAtSecondOfDay(minute * 60);
+                cumulativeWeight[minute] = total;
+            }
+        }
+
+        private int sample(SplittableRandom random) {
+            int target = random.nextInt(cumulativeWeight[cumulativeWeight.length - 1]);
+            int minute = 0;
+            int low = 0;
+            int high = cumulativeWeight.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeWeight[mid] <= target) low = mid + 1;
+                else {
+                    minute = mid;
+                    high = mid - 1;
+                }
+            }
+            return minute * 60 + random.nextInt(60);
+        }
+    }
+}
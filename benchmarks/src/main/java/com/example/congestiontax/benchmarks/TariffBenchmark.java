@@ -0,0 +1,64 @@
+package com.example.congestiontax.benchmarks;
+
+import com.example.congestiontax.service.CompiledTariff;
+import com.example.congestiontax.service.DailyTaxKernel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Per-passage charge lookup and the per vehicle-day kernel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TariffBenchmark {
+
+    private static final int SAMPLES = 4096;
+
+    private CompiledTariff tariff;
+    private LocalTime[] times;
+    private int[] secondsOfDay;
+    private int[][] vehicleDays;
+    private int[] scratch;
+
+    @Setup
+    public void setUp() {
+        tariff = CompiledTariff.compile(Fixtures.loadProperties());
+        vehicleDays = SyntheticFleet.vehicleDays(tariff, SAMPLES, SyntheticFleet.DEFAULT_SEED);
+        secondsOfDay = new int[SAMPLES];
+        times = new LocalTime[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            secondsOfDay[i] = vehicleDays[i][0];
+            times[i] = LocalTime.ofSecondOfDay(secondsOfDay[i]);
+        }
+        scratch = new int[64];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void getCharge(Blackhole blackhole) {
+        for (LocalTime time : times) blackhole.consume(tariff.getCharge(time));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void getChargeAtSecondOfDay(Blackhole blackhole) {
+        for (int second : secondsOfDay) blackhole.consume(tariff.getChargeAtSecondOfDay(second));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void calculateTax(Blackhole blackhole) {
+        for (int[] vehicleDay : vehicleDays) {
+            System.arraycopy(vehicleDay, 0, scratch, 0, vehicleDay.length);
+            blackhole.consume(DailyTaxKernel.calculate(tariff, scratch, vehicleDay.length));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.congestiontax.command;
+
+import com.example.congestiontax.model.dto.BillingRun;
+import com.example.congestiontax.service.BillingService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.List;
+
+
+/**
+ * Writes the invoices of a month, by default the previous one. An interrupted run resumes from its checkpoint
+ * when started again:
+ * <pre>
+ * java -jar app.jar --congestion.command=bill-month --spring.main.web-application-type=none \
+ *     --month=2013-02 [--congestion.billing.parallelism=2 --congestion.billing.pause=50ms]
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.command", havingValue = "bill-month")
+@AllArgsConstructor
+public class BillMonthCommand implements ApplicationRunner {
+
+    private final BillingService billingService;
+    private static final Logger logger = LoggerFactory.getLogger(BillMonthCommand.class);
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> months = args.getOptionValues("month");
+        YearMonth month = months == null || months.isEmpty() ? YearMonth.now().minusMonths(1) : YearMonth.parse(months.getFirst());
+
+        long start = System.nanoTime();
+        BillingRun run = billingService.billMonth(month);
+        logger.info("Billing {} done in {} ms: {} vehicles in {} chunks this run, {} invoices totalling {}",
+                month, (System.nanoTime() - start) / 1_000_000, run.vehicles(), run.chunks(), run.invoices(), run.total());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.congestiontax.command;
+
+import com.example.congestiontax.service.PassageSnapshot;
+import com.example.congestiontax.service.SnapshotService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+/**
+ * Writes the vehicle and passage tables to a {@link PassageSnapshot}:
+ * <pre>
+ * java -jar app.jar --congestion.command=export-snapshot --spring.main.web-application-type=none \
+ *     --file=/backup/passages.snap
+ * </pre>
+ * If the export fails, the partly written file is deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.command", havingValue = "export-snapshot")
+@AllArgsConstructor
+public class ExportSnapshotCommand implements ApplicationRunner {
+
+    private final SnapshotService snapshotService;
+    private static final Logger logger = LoggerFactory.getLogger(ExportSnapshotCommand.class);
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> files = args.getOptionValues("file");
+        if (files == null || files.isEmpty()) throw new IllegalArgumentException("Missing required option --file");
+        Path file = Path.of(files.getFirst());
+
+        long start = System.nanoTime();
+        PassageSnapshot.Summary summary;
+        try {
+            summary = snapshotService.exportSnapshot(Files.newOutputStream(file));
+        } catch (Exception e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        logger.info("Exported {} vehicles and {} passages in {} blocks to {} ({} bytes) in {} ms, {} rows/sec",
+                summary.vehicles(), summary.passages(), summary.blocks(), file, Files.size(file),
+                elapsedNanos / 1_000_000, summary.passages() * 1_000_000_000L / elapsedNanos);
+    }
+}
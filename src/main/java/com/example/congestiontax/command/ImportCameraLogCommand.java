@@ -0,0 +1,106 @@
+package com.example.congestiontax.command;
+
+import com.example.congestiontax.model.dto.IngestionResult;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.service.CameraLogParser;
+import com.example.congestiontax.service.PassageIngestionService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Imports a camera log export (the {@code passages.txt} format) for one vehicle through the bulk ingestion path:
+ * <pre>
+ * java -jar app.jar --congestion.command=import-camera-log --spring.main.web-application-type=none \
+ *     --file=/data/GB-9271-0.txt --registration=GB-9271-0 --type=CAR [--threads=8] [--chunk-size=67108864]
+ * </pre>
+ * Each thread parses and stores its own chunks of the file, so a day that spans two chunks is stored by two
+ * transactions at once; with the ledger enabled they take turns on the vehicle's row lock, see
+ * {@link com.example.congestiontax.service.CongestionTaxCalculatorService#refreshDailyTaxes}.
+ * Progress and rows/sec are logged every second.
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.command", havingValue = "import-camera-log")
+@AllArgsConstructor
+public class ImportCameraLogCommand implements ApplicationRunner {
+
+    private final PassageIngestionService passageIngestionService;
+    private static final Logger logger = LoggerFactory.getLogger(ImportCameraLogCommand.class);
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path file = Path.of(requiredOption(args, "file"));
+        String registration = requiredOption(args, "registration");
+        VehicleType type = VehicleType.valueOf(option(args, "type", VehicleType.CAR.name()).toUpperCase());
+        int threads = Integer.parseInt(option(args, "threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int chunkSize = Integer.parseInt(option(args, "chunk-size", String.valueOf(CameraLogParser.DEFAULT_CHUNK_SIZE)));
+        long fileSize = Files.size(file);
+
+        AtomicLong parsedBytes = new AtomicLong();
+        AtomicLong received = new AtomicLong();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        long start = System.nanoTime();
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> logger.info("Importing {}: {}% parsed, {} rows, {} rows/sec",
+                file.getFileName(), fileSize == 0 ? 100 : parsedBytes.get() * 100 / fileSize,
+                received.get(), rowsPerSecond(received.get(), start)), 1, 1, TimeUnit.SECONDS);
+
+        try {
+            CameraLogParser.Result result = new CameraLogParser(threads, chunkSize).parse(
+                    file,
+                    (epochSeconds, count) -> {
+                        List<VehiclePassage> passages = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            passages.add(new VehiclePassage(
+                                    registration, type, LocalDateTime.ofEpochSecond(epochSeconds[i], 0, ZoneOffset.UTC)));
+                        }
+                        IngestionResult ingestionResult = passageIngestionService.ingest(passages);
+                        received.addAndGet(ingestionResult.received());
+                        accepted.addAndGet(ingestionResult.accepted());
+                        duplicates.addAndGet(ingestionResult.duplicates());
+                    },
+                    parsedBytes);
+
+            logger.info("Imported {} in {} ms: {} rows ({} rows/sec), {} accepted, {} duplicates, {} malformed lines",
+                    file.getFileName(), (System.nanoTime() - start) / 1_000_000, result.lines(),
+                    rowsPerSecond(result.lines(), start), accepted.get(), duplicates.get(), result.malformedLines());
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
+
+    private static long rowsPerSecond(long rows, long start) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        return rows * 1_000_000_000L / elapsedNanos;
+    }
+
+    private static String requiredOption(ApplicationArguments args, String name) {
+        String value = option(args, name, null);
+        if (value == null) throw new IllegalArgumentException("Missing required option --" + name);
+        return value;
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : values.getFirst();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.congestiontax.command;
+
+import com.example.congestiontax.service.PassageSnapshot;
+import com.example.congestiontax.service.SnapshotService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+/**
+ * Loads a {@link PassageSnapshot} written by {@code export-snapshot}. Passages and vehicles that are already
+ * stored are kept, so an interrupted import can simply be run again:
+ * <pre>
+ * java -jar app.jar --congestion.command=import-snapshot --spring.main.web-application-type=none \
+ *     --file=/backup/passages.snap
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.command", havingValue = "import-snapshot")
+@AllArgsConstructor
+public class ImportSnapshotCommand implements ApplicationRunner {
+
+    private final SnapshotService snapshotService;
+    private static final Logger logger = LoggerFactory.getLogger(ImportSnapshotCommand.class);
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> files = args.getOptionValues("file");
+        if (files == null || files.isEmpty()) throw new IllegalArgumentException("Missing required option --file");
+        Path file = Path.of(files.getFirst());
+
+        long start = System.nanoTime();
+        PassageSnapshot.Summary summary;
+        try (InputStream in = Files.newInputStream(file)) {
+            summary = snapshotService.importSnapshot(in);
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        logger.info("Imported {} vehicles and {} passages in {} blocks from {} ({} bytes) in {} ms, {} rows/sec",
+                summary.vehicles(), summary.passages(), summary.blocks(), file, Files.size(file),
+                elapsedNanos / 1_000_000, summary.passages() * 1_000_000_000L / elapsedNanos);
+    }
+}
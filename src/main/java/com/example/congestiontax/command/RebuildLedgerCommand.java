@@ -0,0 +1,33 @@
+package com.example.congestiontax.command;
+
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Regenerates the daily tax ledger from the passage table. Run it after changing the tax rules:
+ * <pre>
+ * java -jar app.jar --congestion.command=rebuild-ledger --spring.main.web-application-type=none
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.command", havingValue = "rebuild-ledger")
+@AllArgsConstructor
+public class RebuildLedgerCommand implements ApplicationRunner {
+
+    private final CongestionTaxCalculatorService congestionTaxCalculatorService;
+    private static final Logger logger = LoggerFactory.getLogger(RebuildLedgerCommand.class);
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        long rows = congestionTaxCalculatorService.rebuildDailyTaxLedger();
+        logger.info("Rebuilt daily tax ledger: {} vehicle-days in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+}
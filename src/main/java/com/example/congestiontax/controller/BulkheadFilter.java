@@ -0,0 +1,123 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Admits at most as many API requests at a time as the datasource pool has connections; the rest wait
+ * in FIFO order for up to {@code congestion.bulkhead.max-wait} and are then rejected with 503. Meant for
+ * the {@code virtual} profile, where a waiting request costs a parked virtual thread instead of a Tomcat
+ * worker. The time spent waiting is reported in a {@code Server-Timing: queue;dur=<ms>} response header and
+ * recorded in the {@code congestion.bulkhead.wait} timer; rejections are counted in {@code congestion.bulkhead.rejected}.
+ * <p>
+ * Requests that hold no database connection take no permit: the cluster coordinator endpoints, which only wait for
+ * the partition requests they send (possibly to this node, whose partition requests would otherwise queue behind
+ * their own coordinators), and {@code addPassage} when it only queues the passage for write-behind.
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.bulkhead.enabled", havingValue = "true")
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private static final int DEFAULT_MAX_CONCURRENT = 10;
+    private static final String API_PATH = "/api/";
+    private static final String CLUSTER_PATH = "/api/congestion/cluster/";
+    private static final String ADD_PASSAGE_PATH = "/api/congestion/addPassage";
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadFilter.class);
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final boolean queuedPassages;
+    private final Timer waits;
+    private final Counter rejected;
+
+    public BulkheadFilter(CongestionTaxProperties congestionTaxProperties, DataSource dataSource, MeterRegistry meterRegistry) {
+        CongestionTaxProperties.Bulkhead bulkhead = congestionTaxProperties.getBulkhead();
+        int maxConcurrent = bulkhead.getMaxConcurrent() > 0 ? bulkhead.getMaxConcurrent() : poolSize(dataSource);
+        this.maxWaitNanos = bulkhead.getMaxWait().toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.queuedPassages = congestionTaxProperties.getIngestQueue().isEnabled();
+
+        this.waits = Timer.builder("congestion.bulkhead.wait")
+                .description("Time API requests waited for a bulkhead permit, admitted or not")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("congestion.bulkhead.rejected")
+                .description("API requests rejected with 503 after waiting max-wait for a permit")
+                .register(meterRegistry);
+        Gauge.builder("congestion.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Bulkhead permits not in use")
+                .register(meterRegistry);
+        logger.info("Bulkhead admits {} concurrent requests", maxConcurrent);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class))
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (SQLException e) {
+            logger.warn("Could not read datasource pool size: {}", e.getMessage());
+        }
+        return DEFAULT_MAX_CONCURRENT;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(API_PATH) || path.startsWith(CLUSTER_PATH)) return true;
+        return queuedPassages && path.equals(ADD_PASSAGE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        long waitNanos = System.nanoTime() - start;
+        waits.record(waitNanos, TimeUnit.NANOSECONDS);
+        response.addHeader("Server-Timing", String.format(Locale.ROOT, "queue;dur=%.1f", waitNanos / 1e6));
+
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many concurrent requests");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.service.ClusterForAllService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+
+/**
+ * Coordinator endpoints of cluster mode: the for-all totals of {@link CongestionController}, gathered from the
+ * nodes in {@code congestion.cluster.nodes} by {@link ClusterForAllService}.
+ */
+@RestController
+@RequestMapping("/api/congestion/cluster")
+@AllArgsConstructor
+public class ClusterController {
+
+    private final ClusterForAllService clusterForAllService;
+    private static final Logger logger = LoggerFactory.getLogger(ClusterController.class);
+
+    @GetMapping("/calculateDailyTaxForAll")
+    public ResponseEntity<?> calculateDailyTaxForAll(
+            @RequestParam LocalDate date,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
+    ) {
+        try {
+            return gather(accept, response, "calculateDailyTaxForAll?date=" + date);
+        } catch (StreamAbortedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Cluster daily tax for all error: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/calculateMonthlyTaxForAll")
+    public ResponseEntity<?> calculateMonthlyTaxForAll(
+            @RequestParam int month,
+            @RequestParam int year,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
+    ) {
+        try {
+            return gather(accept, response, "calculateMonthlyTaxForAll?month=" + month + "&year=" + year);
+        } catch (StreamAbortedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Cluster monthly tax for all error: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/calculateYearlyTaxForAll")
+    public ResponseEntity<?> calculateYearlyTaxForAll(
+            @RequestParam int year,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
+    ) {
+        try {
+            return gather(accept, response, "calculateYearlyTaxForAll?year=" + year);
+        } catch (StreamAbortedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Cluster yearly tax for all error: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * One JSON object by default; NDJSON or CSV write each partition's rows as soon as that partition is in. A
+     * partition that fails on every node after rows of other partitions were sent aborts the response
+     * ({@link StreamAbortedException}), so the client cannot take the partitions it got for the whole result.
+     */
+    private ResponseEntity<?> gather(String accept, HttpServletResponse response, String query) throws Exception {
+        TaxStreamFormat format = TaxStreamFormat.fromAccept(accept);
+        if (format == null) return ResponseEntity.ok(clusterForAllService.calculateTaxForAll(query));
+
+        format.stream(response, sink -> {
+            try {
+                clusterForAllService.gatherTaxForAll(query, sink);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+        return null;
+    }
+}
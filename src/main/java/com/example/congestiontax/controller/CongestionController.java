@@ -3,14 +3,28 @@ package com.example.congestiontax.controller;
 
 import com.example.congestiontax.model.Passage;
 import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.dto.QueuedPassage;
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.dto.TariffVariant;
+import com.example.congestiontax.model.dto.TaxQuery;
 import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import com.example.congestiontax.service.PassageFeedReader;
+import com.example.congestiontax.service.PassageIngestionService;
+import com.example.congestiontax.service.PassageWriteBehind;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalLong;
 
 
 @RestController
@@ -18,12 +32,18 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class CongestionController {
 
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
     private final CongestionTaxCalculatorService congestionTaxCalculatorService;
+    private final PassageIngestionService passageIngestionService;
+    private final PassageFeedReader passageFeedReader;
+    private final PassageWriteBehind passageWriteBehind;
     private static final Logger logger = LoggerFactory.getLogger(CongestionController.class);
 
     @PostMapping("/addPassage")
     public ResponseEntity<?> addPassage(@RequestBody Passage passage) {
         try {
+            if (passageWriteBehind.isEnabled()) return queuePassage(passage);
             return ResponseEntity.ok(congestionTaxCalculatorService.saveNewPassage(passage));
         } catch (Exception e) {
             logger.error("Error adding passage: {}", e.getMessage());
@@ -31,6 +51,48 @@ public class CongestionController {
         }
     }
 
+    /**
+     * Answers 202 once the passage is queued, or 429 if the ingest queue is full.
+     */
+    private ResponseEntity<?> queuePassage(Passage passage) {
+        OptionalLong id = passageWriteBehind.submit(passageFeedReader.fromPassages(List.of(passage)).getFirst());
+        if (id.isEmpty())
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(passageWriteBehind.getRetryAfter().toSeconds()))
+                    .body("Ingest queue is full");
+        return ResponseEntity.accepted().body(new QueuedPassage(id.getAsLong()));
+    }
+
+    @PostMapping(value = "/addPassages", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> addPassages(@RequestBody List<Passage> passages) {
+        try {
+            return ResponseEntity.ok(passageIngestionService.ingest(passageFeedReader.fromPassages(passages)));
+        } catch (Exception e) {
+            logger.error("Error adding passages: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/addPassages", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> addPassagesNdjson(InputStream body) {
+        try {
+            return ResponseEntity.ok(passageIngestionService.ingest(passageFeedReader.readNdjson(body)));
+        } catch (Exception e) {
+            logger.error("Error adding NDJSON passages: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/addPassages", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<?> addPassagesCsv(InputStream body) {
+        try {
+            return ResponseEntity.ok(passageIngestionService.ingest(passageFeedReader.readCsv(body)));
+        } catch (Exception e) {
+            logger.error("Error adding CSV passages: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PostMapping("/addVehicle")
     public ResponseEntity<?> addVehicle(@RequestBody Vehicle vehicle) {
         try {
@@ -95,12 +157,56 @@ public class CongestionController {
     }
 
 
+    @PostMapping("/calculateTax")
+    public ResponseEntity<?> calculateTax(@RequestBody List<TaxQuery> queries) {
+        try {
+            return ResponseEntity.ok(congestionTaxCalculatorService.calculateTaxes(queries));
+        } catch (Exception e) {
+            logger.error("Calculate tax batch error: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/simulateTariffs")
+    public ResponseEntity<?> simulateTariffs(
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate,
+            @RequestParam(defaultValue = "10") int top,
+            @RequestBody List<TariffVariant> tariffs
+    ) {
+        try {
+            return ResponseEntity.ok(congestionTaxCalculatorService.simulateTariffs(startDate, endDate, tariffs, top));
+        } catch (Exception e) {
+            logger.error("Simulate tariffs error: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/calculateRevenue")
+    public ResponseEntity<?> calculateRevenue(
+            @RequestParam LocalDate startDate,
+            @RequestParam LocalDate endDate,
+            @RequestParam(defaultValue = "10") int top
+    ) {
+        try {
+            return ResponseEntity.ok(congestionTaxCalculatorService.calculateRevenue(startDate, endDate, top));
+        } catch (Exception e) {
+            logger.error("Calculate revenue error: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/calculateDailyTaxForAll")
     public ResponseEntity<?> calculateDailyTaxForAll(
-            @RequestParam LocalDate date
+            @RequestParam LocalDate date,
+            @RequestParam(required = false) String partition,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
     ) {
         try {
-            return ResponseEntity.ok(congestionTaxCalculatorService.calculateDailyTaxForAll(date));
+            return taxForAll(accept, response, partition, date, date.plusDays(1));
+        } catch (StreamAbortedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Calculate daily tax for all error: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -110,15 +216,15 @@ public class CongestionController {
     @GetMapping("/calculateMonthlyTaxForAll")
     public ResponseEntity<?> calculateMonthlyTaxForAll(
             @RequestParam int month,
-            @RequestParam int year
+            @RequestParam int year,
+            @RequestParam(required = false) String partition,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
     ) {
         try {
-            return ResponseEntity.ok(
-                    congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(
-                            LocalDate.of(year, month, 1),
-                            LocalDate.of(year, month + 1, 1)
-                    )
-            );
+            return taxForAll(accept, response, partition, LocalDate.of(year, month, 1), LocalDate.of(year, month + 1, 1));
+        } catch (StreamAbortedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Calculate monthly tax for all error: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -127,18 +233,41 @@ public class CongestionController {
 
     @GetMapping("/calculateYearlyTaxForAll")
     public ResponseEntity<?> calculateYearlyTaxForAll(
-            @RequestParam int year
+            @RequestParam int year,
+            @RequestParam(required = false) String partition,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
     ) {
         try {
-            return ResponseEntity.ok(
-                    congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(
-                            LocalDate.of(year, 1, 1),
-                            LocalDate.of(year + 1, 1, 1)
-                    )
-            );
+            return taxForAll(accept, response, partition, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+        } catch (StreamAbortedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Calculate yearly tax for all error: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    /**
+     * One JSON object by default; with {@code Accept: application/x-ndjson} or {@code text/csv} the totals
+     * are written to the response one row per vehicle as they are computed instead. A failure before the
+     * first flush still becomes a bad request; after that it aborts the response ({@link StreamAbortedException}). With
+     * {@code partition} ({@code index/count}) only the vehicles of that {@link RegistrationPartition} are included.
+     */
+    private ResponseEntity<?> taxForAll(
+            String accept,
+            HttpServletResponse response,
+            String partition,
+            LocalDate startDate,
+            LocalDate endDate
+    ) throws Exception {
+        RegistrationPartition registrationPartition = partition == null ? RegistrationPartition.ALL : RegistrationPartition.parse(partition);
+        TaxStreamFormat format = TaxStreamFormat.fromAccept(accept);
+        if (format == null)
+            return ResponseEntity.ok(congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(startDate, endDate, registrationPartition));
+
+        format.stream(response, sink ->
+                congestionTaxCalculatorService.streamTaxBetweenDatesForAll(startDate, endDate, registrationPartition, sink));
+        return null;
+    }
 }
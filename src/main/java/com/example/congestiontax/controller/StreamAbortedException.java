@@ -0,0 +1,14 @@
+package com.example.congestiontax.controller;
+
+
+/**
+ * A streamed response failed after its first rows were sent. Handlers must let it propagate: the container then
+ * closes the connection without ending the chunked body, so the client sees the response is incomplete instead of
+ * taking the rows it received for the whole result.
+ */
+class StreamAbortedException extends RuntimeException {
+
+    StreamAbortedException(Throwable cause) {
+        super("Streamed response aborted: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.congestiontax.controller;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+
+/**
+ * Row-per-vehicle formats the for-all endpoints can stream instead of one JSON object.
+ */
+enum TaxStreamFormat {
+
+    NDJSON(MediaType.APPLICATION_NDJSON) {
+        @Override
+        void writeRow(Writer writer, String registration, int tax) throws IOException {
+            writer.write("{\"registration\":\"");
+            writer.write(JsonStringEncoder.getInstance().quoteAsString(registration));
+            writer.write("\",\"tax\":");
+            writer.write(Integer.toString(tax));
+            writer.write("}\n");
+        }
+    },
+
+    CSV(MediaType.parseMediaType(CongestionController.TEXT_CSV_VALUE)) {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("registration,tax\n");
+        }
+
+        @Override
+        void writeRow(Writer writer, String registration, int tax) throws IOException {
+            if (registration.indexOf(',') >= 0 || registration.indexOf('"') >= 0 || registration.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(registration.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(registration);
+            }
+            writer.write(',');
+            writer.write(Integer.toString(tax));
+            writer.write('\n');
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final MediaType mediaType;
+
+    TaxStreamFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    void writeHeader(Writer writer) throws IOException {
+    }
+
+    abstract void writeRow(Writer writer, String registration, int tax) throws IOException;
+
+    /**
+     * The streaming format named first in {@code accept}, or {@code null} if the client prefers JSON or
+     * accepts anything.
+     */
+    static TaxStreamFormat fromAccept(String accept) {
+        if (accept == null) return null;
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            for (TaxStreamFormat format : values()) {
+                if (format.mediaType.equalsTypeAndSubtype(mediaType)) return format;
+            }
+            if (!mediaType.isWildcardType() || !mediaType.isWildcardSubtype()) return null;
+        }
+        return null;
+    }
+
+    /**
+     * Writes the rows {@code producer} emits to {@code response}, see {@link #write(OutputStream, Consumer)}.
+     * A failure before the first flush is rethrown with the response reset, so the caller can still answer with
+     * an error; after that it is rethrown as {@link StreamAbortedException}.
+     */
+    void stream(HttpServletResponse response, Consumer<ObjIntConsumer<String>> producer) throws Exception {
+        response.setContentType(mediaType.toString());
+        try {
+            write(response.getOutputStream(), producer);
+        } catch (Exception e) {
+            if (response.isCommitted()) throw new StreamAbortedException(e);
+            response.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the rows {@code producer} emits to {@code out} through a bounded buffer. The first row is flushed
+     * right away, later ones when the buffer fills or 100 ms after the last flush, so clients see results
+     * while the rest are still being computed.
+     */
+    void write(OutputStream out, Consumer<ObjIntConsumer<String>> producer) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeHeader(writer);
+        long[] lastFlush = {System.nanoTime() - FLUSH_INTERVAL_NANOS};
+        try {
+            producer.accept((registration, tax) -> {
+                try {
+                    writeRow(writer, registration, tax);
+                    long now = System.nanoTime();
+                    if (now - lastFlush[0] >= FLUSH_INTERVAL_NANOS) {
+                        writer.flush();
+                        lastFlush[0] = now;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.congestiontax.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+
+/**
+ * Progress of the billing run of one month: every vehicle up to {@code lastRegistration} is billed.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingCheckpoint {
+
+    /**
+     * First day of the billed month.
+     */
+    @Id
+    @Column
+    private LocalDate billingMonth;
+
+    @Column(length = 20)
+    private String lastRegistration;
+
+    @Column(nullable = false)
+    private long vehicles;
+
+    @Column(nullable = false)
+    private boolean completed;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.example.congestiontax.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+
+/**
+ * Ledger row holding the tax one vehicle owes for one day. Exempt vehicle-days are stored with amount 0,
+ * so every vehicle-day with passages has exactly one row.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(DailyTax.Key.class)
+public class DailyTax {
+
+    @Id
+    @Column(name = "vehicle_registration", length = 20)
+    private String registration;
+
+    @Id
+    @Column(name = "tax_date")
+    private LocalDate date;
+
+    @Column(nullable = false)
+    private int amount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String registration;
+        private LocalDate date;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.congestiontax.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+
+/**
+ * Tax one vehicle owes for one month, written by the monthly billing run. Only vehicles with tax to pay get one.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(Invoice.Key.class)
+public class Invoice {
+
+    @Id
+    @Column(name = "vehicle_registration", length = 20)
+    private String registration;
+
+    /**
+     * First day of the billed month.
+     */
+    @Id
+    @Column
+    private LocalDate billingMonth;
+
+    @Column(nullable = false)
+    private int amount;
+
+    @Column(nullable = false)
+    private LocalDateTime issuedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String registration;
+        private LocalDate billingMonth;
+    }
+}
@@ -9,6 +9,8 @@ import java.time.LocalDateTime;
 
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_passage_vehicle_timestamp", columnNames = {"vehicle_registration", "timestamp"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
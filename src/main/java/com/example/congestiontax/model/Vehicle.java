@@ -1,16 +1,21 @@
 package com.example.congestiontax.model;
 
+import com.example.congestiontax.model.dto.RegistrationPartition;
 import com.example.congestiontax.model.enums.VehicleType;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 
 @Entity
+@Table(indexes = @Index(name = "idx_vehicle_partition_hash", columnList = "partition_hash"))
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Vehicle {
 
     @Id
@@ -21,4 +26,27 @@ public class Vehicle {
     @Column(nullable = false)
     private VehicleType type;
 
-}
\ No newline at end of file
+    /**
+     * {@link RegistrationPartition#hash} of the registration, so a partition's vehicles are one index range. Rows
+     * inserted without it, by {@code data.sql} or before the column existed, are filled in at startup, before the
+     * web server starts.
+     */
+    @Column(name = "partition_hash")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Long partitionHash;
+
+    public Vehicle(String registration, VehicleType type) {
+        this.registration = registration;
+        this.type = type;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void hashRegistration() {
+        partitionHash = RegistrationPartition.hash(registration);
+    }
+
+}
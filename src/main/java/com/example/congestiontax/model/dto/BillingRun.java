@@ -0,0 +1,12 @@
+package com.example.congestiontax.model.dto;
+
+import java.time.YearMonth;
+
+
+/**
+ * Outcome of a monthly billing run. {@code vehicles} and {@code chunks} count the work of this run;
+ * {@code invoices} and {@code total} cover the whole month, including earlier interrupted runs.
+ * {@code resumedAfter} is the last registration billed before this run, or {@code null} if it started afresh.
+ */
+public record BillingRun(YearMonth month, long vehicles, int chunks, long invoices, long total, String resumedAfter) {
+}
@@ -0,0 +1,9 @@
+package com.example.congestiontax.model.dto;
+
+
+/**
+ * Outcome of a bulk passage upload: rows received, rows stored and rows dropped as duplicates
+ * (either repeated within the upload or already stored).
+ */
+public record IngestionResult(int received, int accepted, int duplicates) {
+}
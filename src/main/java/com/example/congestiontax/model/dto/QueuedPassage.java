@@ -0,0 +1,8 @@
+package com.example.congestiontax.model.dto;
+
+
+/**
+ * Acknowledgement of a passage accepted into the ingest queue; it is stored shortly after.
+ */
+public record QueuedPassage(long id) {
+}
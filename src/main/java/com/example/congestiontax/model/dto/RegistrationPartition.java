@@ -0,0 +1,76 @@
+package com.example.congestiontax.model.dto;
+
+
+/**
+ * Partition {@code index} of {@code count}: the registrations whose hash falls in the {@code index}-th of
+ * {@code count} equal ranges of the 32-bit hash space. The hash is {@link String#hashCode()}, which is fixed by
+ * the language specification, with its bits mixed, so every node assigns a registration to the same partition.
+ * Written as {@code index/count}, e.g. {@code 2/4}.
+ */
+public record RegistrationPartition(int index, int count) {
+
+    public static final RegistrationPartition ALL = new RegistrationPartition(0, 1);
+
+    public RegistrationPartition {
+        if (count < 1 || index < 0 || index >= count)
+            throw new IllegalArgumentException("Invalid partition " + index + "/" + count);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not {@code index/count} with {@code 0 <= index < count}
+     */
+    public static RegistrationPartition parse(String value) {
+        int slash = value.indexOf('/');
+        try {
+            if (slash < 0) throw new NumberFormatException();
+            return new RegistrationPartition(
+                    Integer.parseInt(value.substring(0, slash).trim()), Integer.parseInt(value.substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid partition " + value + ", expected index/count such as 0/4");
+        }
+    }
+
+    public boolean isAll() {
+        return count == 1;
+    }
+
+    public boolean contains(String registration) {
+        return count == 1 || of(registration, count) == index;
+    }
+
+    /**
+     * @return the first {@link #hash} of this partition
+     */
+    public long fromHash() {
+        return Math.ceilDiv((long) index << 32, count);
+    }
+
+    /**
+     * @return the {@link #hash} after the last one of this partition
+     */
+    public long toHash() {
+        return Math.ceilDiv((long) (index + 1) << 32, count);
+    }
+
+    /**
+     * @return the partition of {@code count} that {@code registration} belongs to
+     */
+    public static int of(String registration, int count) {
+        return (int) ((hash(registration) * count) >>> 32);
+    }
+
+    /**
+     * @return the mixed hash of {@code registration} as an unsigned 32-bit value, stored as the vehicle's
+     * partition hash so the database can select a partition by range
+     */
+    public static long hash(String registration) {
+        int hash = registration.hashCode() * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return hash & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.congestiontax.model.dto;
+
+import com.example.congestiontax.model.projection.RegistrationTax;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+
+/**
+ * Revenue over {@code [startDate, endDate)}. Each single-charge window is attributed to the minute of the passage
+ * that set its charge; a window that reaches the max daily charge counts with the remainder up to the cap.
+ * {@code hours} has 24 entries; {@code cappedVehicles} hit the cap on at least one of {@code cappedVehicleDays}.
+ */
+public record RevenueReport(
+        LocalDate startDate,
+        LocalDate endDate,
+        long total,
+        long passages,
+        long chargedVehicles,
+        long cappedVehicles,
+        long cappedVehicleDays,
+        List<DayRevenue> days,
+        long[] hours,
+        List<TimeBandRevenue> timeBands,
+        List<RegistrationTax> topPayers
+) {
+
+    public record DayRevenue(LocalDate date, long revenue) {
+    }
+
+    public record TimeBandRevenue(LocalTime from, LocalTime to, int amount, long revenue) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.congestiontax.model.dto;
+
+import java.util.List;
+
+
+/**
+ * Outcome of a what-if simulation: the total of the current tariff followed by one total per {@link TariffVariant},
+ * the number of vehicles whose tax some variant changes, and for the ones changed most, largest change first,
+ * their current tax and the difference under each variant (in request order).
+ */
+public record TariffSimulation(List<TariffTotal> tariffs, long changedVehicles, List<VehicleDelta> vehicles) {
+
+    public record TariffTotal(String name, long total, long delta) {
+    }
+
+    public record VehicleDelta(String registration, int current, int[] deltas) {
+
+        /**
+         * @return the largest difference under any variant, up or down
+         */
+        public int largestChange() {
+            int largest = 0;
+            for (int delta : deltas) largest = Math.max(largest, Math.abs(delta));
+            return largest;
+        }
+    }
+}
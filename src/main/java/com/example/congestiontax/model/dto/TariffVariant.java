@@ -0,0 +1,13 @@
+package com.example.congestiontax.model.dto;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+
+import java.util.List;
+
+
+/**
+ * An alternative tariff for a what-if simulation. {@code maxDailyCharge} and {@code timeBands} default to the
+ * configured ones when left out, so a variant can change just one of them.
+ */
+public record TariffVariant(String name, Integer maxDailyCharge, List<CongestionTaxProperties.TimeBand> timeBands) {
+}
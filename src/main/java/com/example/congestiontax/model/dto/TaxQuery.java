@@ -0,0 +1,9 @@
+package com.example.congestiontax.model.dto;
+
+
+/**
+ * One item of a batch tax query. {@code period} is a day ({@code 2013-02-08}), a month ({@code 2013-02})
+ * or a year ({@code 2013}).
+ */
+public record TaxQuery(String registration, String period) {
+}
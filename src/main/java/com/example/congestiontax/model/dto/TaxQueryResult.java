@@ -0,0 +1,19 @@
+package com.example.congestiontax.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+
+/**
+ * Answer to one {@link TaxQuery}: either {@code tax} or, if that item could not be answered, {@code error}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaxQueryResult(String registration, String period, Integer tax, String error) {
+
+    public static TaxQueryResult tax(TaxQuery query, int tax) {
+        return new TaxQueryResult(query.registration(), query.period(), tax, null);
+    }
+
+    public static TaxQueryResult error(TaxQuery query, String error) {
+        return new TaxQueryResult(query.registration(), query.period(), null, error);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.congestiontax.model.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.ObjIntConsumer;
+
+
+/**
+ * Tax per registration, held as two parallel arrays sorted by registration instead of a map of boxed values.
+ * Serialized as a JSON object of {@code registration: tax}.
+ */
+@JsonSerialize(using = TaxTotals.Serializer.class)
+public final class TaxTotals {
+
+    private final String[] registrations;
+    private final int[] amounts;
+
+    private TaxTotals(String[] registrations, int[] amounts) {
+        this.registrations = registrations;
+        this.amounts = amounts;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return registrations.length;
+    }
+
+    public String registration(int index) {
+        return registrations[index];
+    }
+
+    public int amount(int index) {
+        return amounts[index];
+    }
+
+    public boolean contains(String registration) {
+        return Arrays.binarySearch(registrations, registration) >= 0;
+    }
+
+    public int get(String registration) {
+        int index = Arrays.binarySearch(registrations, registration);
+        if (index < 0) throw new NoSuchElementException("No tax for " + registration);
+        return amounts[index];
+    }
+
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < registrations.length; i++) action.accept(registrations[i], amounts[i]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((registration, amount) -> {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(registration).append('=').append(amount);
+        });
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Collects totals in any order; {@link #build()} sorts them unless they already arrived sorted,
+     * as they do when vehicles are read ordered by registration.
+     */
+    public static final class Builder implements ObjIntConsumer<String> {
+
+        private String[] registrations = new String[16];
+        private int[] amounts = new int[16];
+        private int size;
+
+        private Builder() {
+        }
+
+        @Override
+        public void accept(String registration, int amount) {
+            if (size == registrations.length) {
+                registrations = Arrays.copyOf(registrations, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            registrations[size] = registration;
+            amounts[size++] = amount;
+        }
+
+        public Builder addAll(TaxTotals totals) {
+            totals.forEach(this);
+            return this;
+        }
+
+        public TaxTotals build() {
+            String[] sortedRegistrations = Arrays.copyOf(registrations, size);
+            int[] sortedAmounts = Arrays.copyOf(amounts, size);
+            if (!isSorted(sortedRegistrations)) {
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) order[i] = i;
+                Arrays.sort(order, (a, b) -> registrations[a].compareTo(registrations[b]));
+                for (int i = 0; i < size; i++) {
+                    sortedRegistrations[i] = registrations[order[i]];
+                    sortedAmounts[i] = amounts[order[i]];
+                }
+            }
+            return new TaxTotals(sortedRegistrations, sortedAmounts);
+        }
+
+        private static boolean isSorted(String[] registrations) {
+            for (int i = 1; i < registrations.length; i++) {
+                if (registrations[i - 1].compareTo(registrations[i]) > 0) return false;
+            }
+            return true;
+        }
+    }
+
+    static final class Serializer extends StdSerializer<TaxTotals> {
+
+        Serializer() {
+            super(TaxTotals.class);
+        }
+
+        @Override
+        public void serialize(TaxTotals totals, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < totals.size(); i++) {
+                generator.writeNumberField(totals.registration(i), totals.amount(i));
+            }
+            generator.writeEndObject();
+        }
+    }
+}
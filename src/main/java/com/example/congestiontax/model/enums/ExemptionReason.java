@@ -0,0 +1,8 @@
+package com.example.congestiontax.model.enums;
+
+public enum ExemptionReason {
+    VEHICLE_TYPE,
+    FREE_MONTH,
+    WEEKEND,
+    HOLIDAY
+}
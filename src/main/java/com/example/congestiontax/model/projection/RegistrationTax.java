@@ -0,0 +1,8 @@
+package com.example.congestiontax.model.projection;
+
+
+/**
+ * Tax total of one vehicle over a period, as summed from the daily tax ledger.
+ */
+public record RegistrationTax(String registration, Long tax) {
+}
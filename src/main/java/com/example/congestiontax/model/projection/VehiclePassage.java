@@ -0,0 +1,13 @@
+package com.example.congestiontax.model.projection;
+
+import com.example.congestiontax.model.enums.VehicleType;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * Flat view of a passage holding only the columns tax calculation and bulk ingestion need.
+ * Built by JPQL constructor expressions on reads, so it is never tracked by the persistence context.
+ */
+public record VehiclePassage(String registration, VehicleType type, LocalDateTime timestamp) {
+}
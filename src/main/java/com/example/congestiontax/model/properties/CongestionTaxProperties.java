@@ -5,6 +5,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -22,6 +24,15 @@ public class CongestionTaxProperties {
     private Set<VehicleType> exemptVehicles;
     private List<TimeBand> timeBands = new ArrayList<>();
     private ExemptPeriods exemptPeriods = new ExemptPeriods();
+    private Ledger ledger = new Ledger();
+    private VehicleCache vehicleCache = new VehicleCache();
+    private ForAll forAll = new ForAll();
+    private Bulkhead bulkhead = new Bulkhead();
+    private PassageStore passageStore = new PassageStore();
+    private IngestQueue ingestQueue = new IngestQueue();
+    private Billing billing = new Billing();
+    private Cluster cluster = new Cluster();
+    private CameraListener cameraListener = new CameraListener();
 
     @Data
     public static class TimeBand {
@@ -34,7 +45,15 @@ public class CongestionTaxProperties {
     public static class ExemptPeriods {
         private Period freeMonth;
         private boolean weekends;
-        private String holidaysCsv;
+        /**
+         * Country whose public holidays (and the days before them) are exempt.
+         */
+        private String country;
+        /**
+         * Classpath location of the public holidays of a country and year; {@code {country}} and {@code {year}}
+         * are replaced, and each file is loaded on first use of its year.
+         */
+        private String holidaysCsv = "publicholiday.{country}.{year}.csv";
 
         @Data
         public static class Period {
@@ -42,4 +61,158 @@ public class CongestionTaxProperties {
             private LocalDate end;
         }
     }
+
+    @Data
+    public static class Ledger {
+        /**
+         * Answer monthly, yearly and for-all totals from the daily tax ledger instead of raw passages.
+         */
+        private boolean enabled;
+    }
+
+    @Data
+    public static class VehicleCache {
+        /**
+         * Maximum number of registrations kept in the vehicle cache.
+         */
+        private long maximumSize = 100_000;
+        /**
+         * How long an unknown registration is remembered as unknown.
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class ForAll {
+        /**
+         * Worker threads evaluating the for-all totals; 1 evaluates on the calling thread.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        /**
+         * Passages handed to a worker at a time; batches only end at a vehicle boundary.
+         */
+        private int batchSize = 8192;
+    }
+
+    @Data
+    public static class Bulkhead {
+        /**
+         * Limit concurrent API requests so excess requests wait for a permit instead of a database connection.
+         */
+        private boolean enabled;
+        /**
+         * Concurrent requests allowed; 0 uses the maximum size of the datasource pool.
+         */
+        private int maxConcurrent;
+        /**
+         * How long a request may wait for a permit before it is rejected with 503.
+         */
+        private Duration maxWait = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class PassageStore {
+        /**
+         * Where tax queries read passages from: the database, or columns held in memory and loaded at startup.
+         */
+        private Type type = Type.JPA;
+
+        public enum Type {
+            JPA,
+            COLUMNAR
+        }
+    }
+
+    @Data
+    public static class IngestQueue {
+        /**
+         * Queue single passages from addPassage and store them in batches, answering 202 before they are stored.
+         */
+        private boolean enabled;
+        /**
+         * Passages that may wait to be stored; when full, addPassage answers 429.
+         */
+        private int capacity = 10_000;
+        /**
+         * Most passages stored in one transaction.
+         */
+        private int batchSize = 1000;
+        /**
+         * Retry-After sent with 429 responses.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+        /**
+         * Times a batch is retried after a transient database failure before its passages are stored one by one.
+         */
+        private int retries = 3;
+        /**
+         * Wait before the first retry; doubled for each further one.
+         */
+        private Duration retryBackoff = Duration.ofMillis(200);
+        /**
+         * How long shutdown waits for queued passages to be stored.
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Billing {
+        /**
+         * Vehicles billed per transaction.
+         */
+        private int chunkSize = 1000;
+        /**
+         * Chunks billed at the same time.
+         */
+        private int parallelism = 1;
+        /**
+         * Pause of a worker after each chunk, leaving database time to interactive requests.
+         */
+        private Duration pause = Duration.ZERO;
+    }
+
+    @Data
+    public static class Cluster {
+        /**
+         * Base URLs of the nodes the cluster endpoints fan for-all requests out to, e.g. {@code http://node-1:8080}.
+         * All nodes must use the same database, so any of them can compute any partition.
+         */
+        private List<URI> nodes = new ArrayList<>();
+        /**
+         * Registration hash partitions per request; 0 uses one per node. Partition i is asked of node i first.
+         */
+        private int partitions;
+        /**
+         * How long a node may take for one partition before it is asked of the next node.
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class CameraListener {
+        /**
+         * Accept passages from roadside cameras as binary frames over TCP (see CameraProtocol).
+         */
+        private boolean enabled;
+        /**
+         * Port to listen on; 0 picks a free one.
+         */
+        private int port = 9500;
+        /**
+         * Open camera connections allowed; further ones are closed right away.
+         */
+        private int maxConnections = 1024;
+        /**
+         * Receive buffer per connection, in bytes; taken from a pool of direct buffers.
+         */
+        private int bufferSize = 16 * 1024;
+        /**
+         * Most frames stored in one transaction.
+         */
+        private int batchSize = 1000;
+        /**
+         * How long shutdown waits for received frames to be stored.
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+    }
 }
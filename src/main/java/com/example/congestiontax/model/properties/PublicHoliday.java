@@ -1,7 +1,5 @@
 package com.example.congestiontax.model.properties;
 
-import com.opencsv.bean.CsvBindByName;
-import com.opencsv.bean.CsvDate;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,14 +12,10 @@ import java.time.LocalDate;
 @NoArgsConstructor
 public class PublicHoliday {
 
-    @CsvBindByName(column = "Name")
     private String name;
 
-    @CsvBindByName(column = "LocalName")
     private String localName;
 
-    @CsvBindByName(column = "Date")
-    @CsvDate("yyyy-MM-dd")
     private LocalDate date;
 
 }
@@ -0,0 +1,11 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.BillingCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface BillingCheckpointRepository extends JpaRepository<BillingCheckpoint, LocalDate> {
+}
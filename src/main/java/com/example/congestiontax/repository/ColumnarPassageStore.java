@@ -0,0 +1,268 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * Keeps every passage in memory as one sorted {@code long[]} of epoch seconds per vehicle. The registration and
+ * type are stored once per vehicle, so a passage costs 8 bytes, and range queries are two binary searches.
+ * <p>
+ * The whole passage table is loaded before the application starts serving. Passages written afterwards through
+ * the application are merged in after their transaction commits; passages deleted or written to the database
+ * directly are only seen after a restart or {@link #reload()}. A vehicle's column is replaced on every change
+ * instead of being mutated, and a reload builds a new map that replaces the old one once complete, so readers
+ * never lock and always see a consistent column.
+ */
+@Component
+@ConditionalOnProperty(name = "congestion.passage-store.type", havingValue = "columnar")
+public class ColumnarPassageStore implements PassageStore, SmartInitializingSingleton {
+
+    /**
+     * Estimated heap per vehicle besides its passages and registration characters: the column and array headers,
+     * the registration string and the skip list node, with compressed oops.
+     */
+    static final int VEHICLE_OVERHEAD_BYTES = 110;
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarPassageStore.class);
+
+    private record Column(String registration, VehicleType type, long[] epochSeconds) {
+    }
+
+    private final PassageRepository passageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private volatile ConcurrentSkipListMap<String, Column> columns = new ConcurrentSkipListMap<>();
+    private volatile long passageCount;
+    private volatile long registrationBytes;
+
+    public ColumnarPassageStore(
+            PassageRepository passageRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.passageRepository = passageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        Gauge.builder("congestion.passage_store.passages", this, ColumnarPassageStore::size)
+                .description("Passages held by the columnar passage store")
+                .register(meterRegistry);
+        Gauge.builder("congestion.passage_store.memory", this, ColumnarPassageStore::estimatedBytes)
+                .description("Estimated heap used by the columnar passage store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    /**
+     * Replaces the contents with the passage table, e.g. after passages were changed directly in the database.
+     */
+    public void reload() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<VehiclePassage> passages = passageRepository.streamAllVehiclePassages()) {
+                load(passages.iterator());
+            }
+        });
+        long passages = size();
+        double megabytes = estimatedBytes() / (double) (1 << 20);
+        logger.info("Loaded {} passages of {} vehicles in {} ms, ~{} MB ({} MB per million passages)",
+                passages, columns.size(), (System.nanoTime() - start) / 1_000_000,
+                String.format(Locale.ROOT, "%.1f", megabytes),
+                String.format(Locale.ROOT, "%.1f", passages == 0 ? 0 : megabytes * 1e6 / passages));
+    }
+
+    /**
+     * Replaces the contents with passages ordered by registration and timestamp. Queries keep reading the
+     * previous columns until the new ones are complete.
+     */
+    private synchronized void load(Iterator<VehiclePassage> passages) {
+        ConcurrentSkipListMap<String, Column> loaded = new ConcurrentSkipListMap<>();
+        long count = 0;
+        long characters = 0;
+        long[] buffer = new long[64];
+        int size = 0;
+        VehiclePassage first = null;
+        while (passages.hasNext()) {
+            VehiclePassage passage = passages.next();
+            if (first != null && !first.registration().equals(passage.registration())) {
+                loaded.put(first.registration(), new Column(first.registration(), first.type(), Arrays.copyOf(buffer, size)));
+                characters += first.registration().length();
+                count += size;
+                first = null;
+            }
+            if (first == null) {
+                first = passage;
+                size = 0;
+            }
+            if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = epochSecond(passage.timestamp());
+        }
+        if (first != null) {
+            loaded.put(first.registration(), new Column(first.registration(), first.type(), Arrays.copyOf(buffer, size)));
+            characters += first.registration().length();
+            count += size;
+        }
+        columns = loaded;
+        passageCount = count;
+        registrationBytes = characters;
+    }
+
+    @Override
+    public void passagesSaved(Collection<VehiclePassage> passages) {
+        List<VehiclePassage> saved = List.copyOf(passages);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addAll(saved);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addAll(saved);
+            }
+        });
+    }
+
+    /**
+     * Merges passages into the columns of their vehicles, skipping the ones already stored.
+     */
+    private synchronized void addAll(Collection<VehiclePassage> passages) {
+        Map<String, List<VehiclePassage>> byRegistration = new HashMap<>();
+        for (VehiclePassage passage : passages) {
+            byRegistration.computeIfAbsent(passage.registration(), registration -> new ArrayList<>()).add(passage);
+        }
+
+        long added = 0;
+        long characters = 0;
+        for (List<VehiclePassage> vehiclePassages : byRegistration.values()) {
+            long[] epochSeconds = vehiclePassages.stream().mapToLong(passage -> epochSecond(passage.timestamp())).sorted().toArray();
+            Column column = columns.get(vehiclePassages.getFirst().registration());
+            if (column == null) {
+                VehiclePassage first = vehiclePassages.getFirst();
+                column = new Column(first.registration(), first.type(), new long[0]);
+                characters += first.registration().length();
+            }
+            long[] merged = merge(column.epochSeconds(), epochSeconds);
+            added += merged.length - column.epochSeconds().length;
+            columns.put(column.registration(), new Column(column.registration(), column.type(), merged));
+        }
+        passageCount += added;
+        registrationBytes += characters;
+    }
+
+    /**
+     * @return the sorted union of two sorted arrays without duplicates
+     */
+    private static long[] merge(long[] stored, long[] added) {
+        long[] merged = new long[stored.length + added.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < stored.length || j < added.length) {
+            long next = j == added.length || (i < stored.length && stored[i] <= added[j]) ? stored[i++] : added[j++];
+            if (size == 0 || merged[size - 1] != next) merged[size++] = next;
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    @Override
+    public List<LocalDateTime> findTimestampsByRegistrationBetween(String registration, LocalDateTime from, LocalDateTime to) {
+        Column column = columns.get(registration);
+        if (column == null) return List.of();
+        long[] epochSeconds = column.epochSeconds();
+        int end = lowerBound(epochSeconds, epochSecond(to));
+        List<LocalDateTime> timestamps = new ArrayList<>();
+        for (int i = lowerBound(epochSeconds, epochSecond(from)); i < end; i++) {
+            timestamps.add(localDateTime(epochSeconds[i]));
+        }
+        return timestamps;
+    }
+
+    @Override
+    public Stream<VehiclePassage> streamVehiclePassagesBetween(LocalDateTime from, LocalDateTime to) {
+        long fromSecond = epochSecond(from);
+        long toSecond = epochSecond(to);
+        return columns.values().stream().flatMap(column -> slice(column, fromSecond, toSecond));
+    }
+
+    @Override
+    public Stream<VehiclePassage> streamVehiclePassagesBetween(
+            LocalDateTime from, LocalDateTime to, RegistrationPartition partition) {
+        long fromSecond = epochSecond(from);
+        long toSecond = epochSecond(to);
+        return columns.values().stream()
+                .filter(column -> partition.contains(column.registration()))
+                .flatMap(column -> slice(column, fromSecond, toSecond));
+    }
+
+    @Override
+    public Stream<VehiclePassage> streamVehiclePassagesByRegistrationsBetween(
+            Collection<String> registrations, LocalDateTime from, LocalDateTime to) {
+        long fromSecond = epochSecond(from);
+        long toSecond = epochSecond(to);
+        return new TreeSet<>(registrations).stream()
+                .map(columns::get)
+                .filter(Objects::nonNull)
+                .flatMap(column -> slice(column, fromSecond, toSecond));
+    }
+
+    private static Stream<VehiclePassage> slice(Column column, long fromSecond, long toSecond) {
+        long[] epochSeconds = column.epochSeconds();
+        return IntStream.range(lowerBound(epochSeconds, fromSecond), lowerBound(epochSeconds, toSecond))
+                .mapToObj(i -> new VehiclePassage(column.registration(), column.type(), localDateTime(epochSeconds[i])));
+    }
+
+    public long size() {
+        return passageCount;
+    }
+
+    /**
+     * @return the estimated heap held by the store
+     */
+    public long estimatedBytes() {
+        return passageCount * Long.BYTES + columns.size() * (long) VEHICLE_OVERHEAD_BYTES + registrationBytes;
+    }
+
+    /**
+     * @return the index of the first element not less than {@code key}
+     */
+    private static int lowerBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static long epochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime localDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.DailyTax;
+import com.example.congestiontax.model.projection.RegistrationTax;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyTaxRepository extends JpaRepository<DailyTax, DailyTax.Key>, DailyTaxRepositoryCustom {
+
+    @Query("select coalesce(sum(d.amount), 0) from DailyTax d " +
+            "where d.registration = :registration and d.date >= :from and d.date < :to")
+    long sumAmountByRegistrationBetween(
+            @Param("registration") String registration,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query("select new com.example.congestiontax.model.projection.RegistrationTax(d.registration, sum(d.amount)) " +
+            "from DailyTax d where d.date >= :from and d.date < :to group by d.registration order by d.registration")
+    List<RegistrationTax> sumAmountGroupedByRegistrationBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select new com.example.congestiontax.model.projection.RegistrationTax(d.registration, sum(d.amount)) " +
+            "from DailyTax d where d.date >= :from and d.date < :to and d.registration in (" +
+            "select v.registration from Vehicle v where v.partitionHash >= :fromHash and v.partitionHash < :toHash) " +
+            "group by d.registration order by d.registration")
+    List<RegistrationTax> sumAmountGroupedByRegistrationBetween(
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to,
+            @Param("fromHash") long fromHash,
+            @Param("toHash") long toHash);
+
+}
@@ -0,0 +1,20 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.DailyTax;
+
+import java.util.List;
+
+public interface DailyTaxRepositoryCustom {
+
+    /**
+     * Inserts new ledger rows with JDBC batching, bypassing the persistence context.
+     */
+    void insertAll(List<DailyTax> dailyTaxes);
+
+    /**
+     * Inserts or overwrites the ledger rows with the same keys as {@code dailyTaxes} with one upsert per row,
+     * batched, so two transactions writing the same vehicle-day do not collide on the primary key.
+     */
+    void upsertAll(List<DailyTax> dailyTaxes);
+
+}
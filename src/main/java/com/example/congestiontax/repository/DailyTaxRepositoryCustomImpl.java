@@ -0,0 +1,53 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.DailyTax;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+public class DailyTaxRepositoryCustomImpl implements DailyTaxRepositoryCustom {
+
+    private static final String UPSERT = "insert into daily_tax (vehicle_registration, tax_date, amount) values (?, ?, ?) " +
+            "on conflict (vehicle_registration, tax_date) do update set amount = excluded.amount";
+    /**
+     * H2, which the tests run on, has no {@code on conflict do update}, even in PostgreSQL mode.
+     */
+    private static final String H2_UPSERT = "merge into daily_tax (vehicle_registration, tax_date, amount) " +
+            "key (vehicle_registration, tax_date) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsert;
+
+    public DailyTaxRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<DailyTax> dailyTaxes) {
+        write("insert into daily_tax (vehicle_registration, tax_date, amount) values (?, ?, ?)", dailyTaxes);
+    }
+
+    @Override
+    public void upsertAll(List<DailyTax> dailyTaxes) {
+        if (upsert == null) {
+            String database = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            upsert = "H2".equals(database) ? H2_UPSERT : UPSERT;
+        }
+        write(upsert, dailyTaxes);
+    }
+
+    private void write(String sql, List<DailyTax> dailyTaxes) {
+        jdbcTemplate.batchUpdate(
+                sql,
+                dailyTaxes,
+                dailyTaxes.size(),
+                (statement, dailyTax) -> {
+                    statement.setString(1, dailyTax.getRegistration());
+                    statement.setDate(2, Date.valueOf(dailyTax.getDate()));
+                    statement.setInt(3, dailyTax.getAmount());
+                });
+    }
+}
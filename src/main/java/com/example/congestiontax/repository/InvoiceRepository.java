@@ -0,0 +1,22 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.Invoice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface InvoiceRepository extends JpaRepository<Invoice, Invoice.Key>, InvoiceRepositoryCustom {
+
+    List<Invoice> findByBillingMonthOrderByRegistration(LocalDate month);
+
+    long countByBillingMonth(LocalDate month);
+
+    @Query("select coalesce(sum(i.amount), 0) from Invoice i where i.billingMonth = :month")
+    long sumAmountByBillingMonth(@Param("month") LocalDate month);
+
+}
@@ -0,0 +1,16 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.Invoice;
+
+import java.util.List;
+
+public interface InvoiceRepositoryCustom {
+
+    /**
+     * Inserts the invoices that are not stored yet; an existing invoice for the same vehicle and month is kept.
+     *
+     * @return the number of invoices inserted
+     */
+    int insertMissing(List<Invoice> invoices);
+
+}
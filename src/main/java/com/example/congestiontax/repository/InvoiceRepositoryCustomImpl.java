@@ -0,0 +1,30 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.Invoice;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.List;
+
+@AllArgsConstructor
+public class InvoiceRepositoryCustomImpl implements InvoiceRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertMissing(List<Invoice> invoices) {
+        return MultiRowInsert.execute(jdbcTemplate,
+                "insert into invoice (vehicle_registration, billing_month, amount, issued_at)", "(?, ?, ?, ?)",
+                "on conflict do nothing",
+                invoices,
+                (statement, index, invoice) -> {
+                    statement.setString(index, invoice.getRegistration());
+                    statement.setDate(index + 1, Date.valueOf(invoice.getBillingMonth()));
+                    statement.setInt(index + 2, invoice.getAmount());
+                    statement.setTimestamp(index + 3, Timestamp.valueOf(invoice.getIssuedAt()));
+                    return index + 4;
+                });
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+@Component
+@ConditionalOnProperty(name = "congestion.passage-store.type", havingValue = "jpa", matchIfMissing = true)
+@AllArgsConstructor
+public class JpaPassageStore implements PassageStore {
+
+    private final PassageRepository passageRepository;
+
+    @Override
+    public List<LocalDateTime> findTimestampsByRegistrationBetween(String registration, LocalDateTime from, LocalDateTime to) {
+        return passageRepository.findTimestampsByRegistrationBetween(registration, from, to);
+    }
+
+    @Override
+    public Stream<VehiclePassage> streamVehiclePassagesBetween(LocalDateTime from, LocalDateTime to) {
+        return passageRepository.streamVehiclePassagesBetween(from, to);
+    }
+
+    @Override
+    public Stream<VehiclePassage> streamVehiclePassagesBetween(
+            LocalDateTime from, LocalDateTime to, RegistrationPartition partition) {
+        if (partition.isAll()) return passageRepository.streamVehiclePassagesBetween(from, to);
+        return passageRepository.streamVehiclePassagesByPartitionHashBetween(partition.fromHash(), partition.toHash(), from, to);
+    }
+
+    @Override
+    public Stream<VehiclePassage> streamVehiclePassagesByRegistrationsBetween(
+            Collection<String> registrations, LocalDateTime from, LocalDateTime to) {
+        return passageRepository.streamVehiclePassagesByRegistrationsBetween(registrations, from, to);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.congestiontax.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+
+/**
+ * Writes rows with multi-row {@code INSERT ... VALUES (...), (...)} statements, one statement per chunk,
+ * and returns the number of rows the database reports as inserted.
+ */
+final class MultiRowInsert {
+
+    static final int ROWS_PER_STATEMENT = 500;
+
+    @FunctionalInterface
+    interface RowBinder<T> {
+        /**
+         * Binds one row starting at parameter {@code index} and returns the next free parameter index.
+         */
+        int bind(PreparedStatement statement, int index, T row) throws SQLException;
+    }
+
+    private MultiRowInsert() {
+    }
+
+    static <T> int execute(JdbcTemplate jdbcTemplate, String insert, String rowPlaceholder, String suffix,
+                           List<T> rows, RowBinder<T> binder) {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+            List<T> chunk = rows.subList(from, Math.min(rows.size(), from + ROWS_PER_STATEMENT));
+            StringBuilder sql = new StringBuilder(insert.length() + chunk.size() * (rowPlaceholder.length() + 2) + suffix.length());
+            sql.append(insert).append(" values ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(rowPlaceholder);
+            }
+            sql.append(' ').append(suffix);
+
+            inserted += jdbcTemplate.update(sql.toString(), statement -> {
+                int index = 1;
+                for (T row : chunk) index = binder.bind(statement, index, row);
+            });
+        }
+        return inserted;
+    }
+}
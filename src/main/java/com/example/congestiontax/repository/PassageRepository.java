@@ -2,18 +2,95 @@ package com.example.congestiontax.repository;
 
 import com.example.congestiontax.model.Passage;
 import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface PassageRepository extends JpaRepository<Passage, Long> {
+public interface PassageRepository extends JpaRepository<Passage, Long>, PassageRepositoryCustom {
+
+    int STREAM_FETCH_SIZE = 1000;
 
     List<Passage> findPassagesByVehicleAndTimestampBetween(Vehicle vehicle, LocalDateTime date1, LocalDateTime date2);
     List<Passage> findPassagesByTimestampBetween(LocalDateTime date1, LocalDateTime date2);
     Optional<Passage> findPassageByVehicleAndTimestamp(Vehicle vehicle, LocalDateTime date);
 
+    /**
+     * Passage times of one vehicle in {@code [from, to)}, read from the foreign key column without joining {@code vehicle}.
+     */
+    @Query("select p.timestamp from Passage p " +
+            "where p.vehicle.registration = :registration and p.timestamp >= :from and p.timestamp < :to")
+    List<LocalDateTime> findTimestampsByRegistrationBetween(
+            @Param("registration") String registration,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Cursor over passages in {@code [from, to)} ordered by vehicle and time, so callers can fold
+     * one vehicle-day at a time. Must be consumed inside a transaction and closed afterwards.
+     */
+    @Query("select new com.example.congestiontax.model.projection.VehiclePassage(v.registration, v.type, p.timestamp) " +
+            "from Passage p join p.vehicle v " +
+            "where p.timestamp >= :from and p.timestamp < :to " +
+            "order by v.registration, p.timestamp")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<VehiclePassage> streamVehiclePassagesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Like {@link #streamVehiclePassagesBetween} but only for vehicles whose partition hash is in
+     * {@code [fromHash, toHash)}, so a node reads only its own partition's rows.
+     */
+    @Query("select new com.example.congestiontax.model.projection.VehiclePassage(v.registration, v.type, p.timestamp) " +
+            "from Passage p join p.vehicle v " +
+            "where v.partitionHash >= :fromHash and v.partitionHash < :toHash " +
+            "and p.timestamp >= :from and p.timestamp < :to " +
+            "order by v.registration, p.timestamp")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<VehiclePassage> streamVehiclePassagesByPartitionHashBetween(
+            @Param("fromHash") long fromHash,
+            @Param("toHash") long toHash,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("select new com.example.congestiontax.model.projection.VehiclePassage(v.registration, v.type, p.timestamp) " +
+            "from Passage p join p.vehicle v " +
+            "where v.registration in :registrations and p.timestamp >= :from and p.timestamp < :to " +
+            "order by v.registration, p.timestamp")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<VehiclePassage> streamVehiclePassagesByRegistrationsBetween(
+            @Param("registrations") Collection<String> registrations,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("select new com.example.congestiontax.model.projection.VehiclePassage(v.registration, v.type, p.timestamp) " +
+            "from Passage p join p.vehicle v " +
+            "order by v.registration, p.timestamp")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<VehiclePassage> streamAllVehiclePassages();
+
 }
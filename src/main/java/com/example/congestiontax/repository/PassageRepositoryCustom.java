@@ -0,0 +1,17 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.projection.VehiclePassage;
+
+import java.util.List;
+
+public interface PassageRepositoryCustom {
+
+    /**
+     * Inserts passages of already stored vehicles, skipping those that violate the
+     * (vehicle_registration, timestamp) unique constraint.
+     *
+     * @return the number of passages inserted
+     */
+    int insertIgnoringDuplicates(List<VehiclePassage> passages);
+
+}
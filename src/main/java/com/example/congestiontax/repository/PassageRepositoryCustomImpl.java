@@ -0,0 +1,25 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.projection.VehiclePassage;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+@AllArgsConstructor
+public class PassageRepositoryCustomImpl implements PassageRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertIgnoringDuplicates(List<VehiclePassage> passages) {
+        return MultiRowInsert.execute(jdbcTemplate,
+                "insert into passage (vehicle_registration, timestamp)", "(?, ?)", "on conflict do nothing",
+                passages,
+                (statement, index, passage) -> {
+                    statement.setString(index, passage.registration());
+                    statement.setObject(index + 1, passage.timestamp());
+                    return index + 2;
+                });
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.projection.VehiclePassage;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * The passage queries tax calculation runs, selected with {@code congestion.passage-store.type}:
+ * {@link JpaPassageStore} asks the database, {@link ColumnarPassageStore} answers from memory.
+ * Writes always go to the database; stores that keep their own copy are told about them.
+ */
+public interface PassageStore {
+
+    /**
+     * @see PassageRepository#findTimestampsByRegistrationBetween
+     */
+    List<LocalDateTime> findTimestampsByRegistrationBetween(String registration, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * @see PassageRepository#streamVehiclePassagesBetween
+     */
+    Stream<VehiclePassage> streamVehiclePassagesBetween(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Like {@link #streamVehiclePassagesBetween(LocalDateTime, LocalDateTime)} but only for the vehicles of
+     * {@code partition}. By default all rows are read and the other partitions' vehicles are skipped here;
+     * {@link JpaPassageStore} selects the partition's hash range in the database instead.
+     */
+    default Stream<VehiclePassage> streamVehiclePassagesBetween(
+            LocalDateTime from, LocalDateTime to, RegistrationPartition partition) {
+        Stream<VehiclePassage> passages = streamVehiclePassagesBetween(from, to);
+        return partition.isAll() ? passages : passages.filter(passage -> partition.contains(passage.registration()));
+    }
+
+    /**
+     * @see PassageRepository#streamVehiclePassagesByRegistrationsBetween
+     */
+    Stream<VehiclePassage> streamVehiclePassagesByRegistrationsBetween(
+            Collection<String> registrations, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Called after passages were written to the database in the current transaction; duplicates of
+     * already stored passages may be included.
+     */
+    default void passagesSaved(Collection<VehiclePassage> passages) {
+    }
+}
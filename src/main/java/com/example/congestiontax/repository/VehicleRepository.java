@@ -1,14 +1,36 @@
 package com.example.congestiontax.repository;
 
 import com.example.congestiontax.model.Vehicle;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
+public interface VehicleRepository extends JpaRepository<Vehicle, Long>, VehicleRepositoryCustom {
 
     Optional<Vehicle> findByRegistration(String registration);
 
+    List<Vehicle> findByRegistrationIn(Collection<String> registrations);
+
+    @Query("select v from Vehicle v where not exists (select p from Passage p where p.vehicle = v) order by v.registration")
+    Stream<Vehicle> streamVehiclesWithoutPassages();
+
+    /**
+     * Locks the rows of {@code registrations} until the end of the transaction. Rows are locked in registration
+     * order, so transactions locking overlapping sets in sorted chunks cannot deadlock each other.
+     */
+    @Query(value = "select registration from vehicle where registration in (:registrations) order by registration for update",
+            nativeQuery = true)
+    List<String> lockByRegistrations(@Param("registrations") Collection<String> registrations);
+
+    @Query("select v.registration from Vehicle v where v.registration > :after order by v.registration")
+    List<String> findRegistrationsAfter(@Param("after") String after, Limit limit);
+
 }
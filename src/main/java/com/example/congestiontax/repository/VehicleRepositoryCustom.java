@@ -0,0 +1,23 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.Vehicle;
+
+import java.util.List;
+
+public interface VehicleRepositoryCustom {
+
+    /**
+     * Inserts the vehicles that are not stored yet; existing vehicles are left untouched.
+     *
+     * @return the number of vehicles inserted
+     */
+    int insertMissing(List<Vehicle> vehicles);
+
+    /**
+     * Sets {@code partition_hash} of up to {@code limit} vehicles that have none.
+     *
+     * @return the number of vehicles updated
+     */
+    int fillMissingPartitionHashes(int limit);
+
+}
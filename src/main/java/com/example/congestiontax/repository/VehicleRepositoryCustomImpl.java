@@ -0,0 +1,43 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+@AllArgsConstructor
+public class VehicleRepositoryCustomImpl implements VehicleRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertMissing(List<Vehicle> vehicles) {
+        return MultiRowInsert.execute(jdbcTemplate,
+                "insert into vehicle (registration, type, partition_hash)", "(?, ?, ?)", "on conflict do nothing",
+                vehicles,
+                (statement, index, vehicle) -> {
+                    statement.setString(index, vehicle.getRegistration());
+                    statement.setString(index + 1, vehicle.getType().name());
+                    statement.setLong(index + 2, RegistrationPartition.hash(vehicle.getRegistration()));
+                    return index + 3;
+                });
+    }
+
+    @Override
+    public int fillMissingPartitionHashes(int limit) {
+        List<String> registrations = jdbcTemplate.queryForList(
+                "select registration from vehicle where partition_hash is null order by registration limit ?",
+                String.class, limit);
+        jdbcTemplate.batchUpdate(
+                "update vehicle set partition_hash = ? where registration = ?",
+                registrations,
+                registrations.size(),
+                (statement, registration) -> {
+                    statement.setLong(1, RegistrationPartition.hash(registration));
+                    statement.setString(2, registration);
+                });
+        return registrations.size();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.BillingCheckpoint;
+import com.example.congestiontax.model.Invoice;
+import com.example.congestiontax.model.dto.BillingRun;
+import com.example.congestiontax.model.dto.TaxQuery;
+import com.example.congestiontax.model.dto.TaxQueryResult;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.repository.BillingCheckpointRepository;
+import com.example.congestiontax.repository.InvoiceRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * End-of-month billing. Vehicles are walked in registration order in chunks of {@code congestion.billing.chunk-size};
+ * each chunk is taxed with {@link CongestionTaxCalculatorService#calculateTaxes} and its invoices are written in
+ * a transaction of its own, so a failure only loses the chunks in flight. With {@code parallelism} above 1 that
+ * many chunks are billed at once. The checkpoint only advances over chunks whose predecessors are all done, and a
+ * chunk billed again after a restart keeps the invoices it already wrote. A billed month is not billed again.
+ */
+@Service
+public class BillingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingService.class);
+
+    private final CongestionTaxCalculatorService congestionTaxCalculatorService;
+    private final VehicleRepository vehicleRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final BillingCheckpointRepository billingCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration pause;
+
+    public BillingService(
+            CongestionTaxCalculatorService congestionTaxCalculatorService,
+            VehicleRepository vehicleRepository,
+            InvoiceRepository invoiceRepository,
+            BillingCheckpointRepository billingCheckpointRepository,
+            PlatformTransactionManager transactionManager,
+            CongestionTaxProperties congestionTaxProperties
+    ) {
+        CongestionTaxProperties.Billing billing = congestionTaxProperties.getBilling();
+        this.congestionTaxCalculatorService = congestionTaxCalculatorService;
+        this.vehicleRepository = vehicleRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.billingCheckpointRepository = billingCheckpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = billing.getChunkSize();
+        this.parallelism = billing.getParallelism();
+        this.pause = billing.getPause();
+    }
+
+    private record Chunk(String lastRegistration, int vehicles, int invoices) {
+    }
+
+    public BillingRun billMonth(YearMonth month) throws Exception {
+        LocalDate billingMonth = month.atDay(1);
+        BillingCheckpoint checkpoint = billingCheckpointRepository.findById(billingMonth)
+                .orElseGet(() -> new BillingCheckpoint(billingMonth, null, 0, false, LocalDateTime.now()));
+        String resumedAfter = checkpoint.getLastRegistration();
+        if (checkpoint.isCompleted()) {
+            logger.info("Billing {} was already completed", month);
+            return result(month, 0, 0, resumedAfter);
+        }
+        if (resumedAfter != null) logger.info("Resuming billing {} after {}", month, resumedAfter);
+
+        long vehicles = 0;
+        int chunks = 0;
+        String after = resumedAfter == null ? "" : resumedAfter;
+        Deque<Future<Chunk>> pending = new ArrayDeque<>(parallelism);
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism)) {
+            try {
+                List<String> registrations;
+                while (!(registrations = vehicleRepository.findRegistrationsAfter(after, Limit.of(chunkSize))).isEmpty()) {
+                    after = registrations.getLast();
+                    if (pending.size() == parallelism) {
+                        vehicles += advance(checkpoint, pending.poll().get());
+                        chunks++;
+                    }
+                    List<String> chunk = registrations;
+                    pending.add(workers.submit(() -> billChunk(month, billingMonth, chunk)));
+                    while (!pending.isEmpty() && pending.peek().isDone()) {
+                        vehicles += advance(checkpoint, pending.poll().get());
+                        chunks++;
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    vehicles += advance(checkpoint, pending.poll().get());
+                    chunks++;
+                }
+            } catch (ExecutionException e) {
+                pending.forEach(future -> future.cancel(true));
+                throw new Exception("Billing " + month + " stopped after " + checkpoint.getLastRegistration()
+                        + ": " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        checkpoint.setCompleted(true);
+        save(checkpoint);
+        BillingRun run = result(month, vehicles, chunks, resumedAfter);
+        logger.info("Billed {}: {} vehicles in {} chunks, {} invoices totalling {}",
+                month, vehicles, chunks, run.invoices(), run.total());
+        return run;
+    }
+
+    private Chunk billChunk(YearMonth month, LocalDate billingMonth, List<String> registrations) throws InterruptedException {
+        String period = month.toString();
+        Chunk chunk = transactionTemplate.execute(status -> {
+            List<TaxQuery> queries = registrations.stream().map(registration -> new TaxQuery(registration, period)).toList();
+            List<TaxQueryResult> taxes;
+            try {
+                taxes = congestionTaxCalculatorService.calculateTaxes(queries);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+
+            LocalDateTime issuedAt = LocalDateTime.now();
+            List<Invoice> invoices = new ArrayList<>();
+            for (TaxQueryResult tax : taxes) {
+                if (tax.error() != null)
+                    throw new IllegalStateException("Cannot bill " + tax.registration() + ": " + tax.error());
+                if (tax.tax() > 0) invoices.add(new Invoice(tax.registration(), billingMonth, tax.tax(), issuedAt));
+            }
+            invoiceRepository.insertMissing(invoices);
+            return new Chunk(registrations.getLast(), registrations.size(), invoices.size());
+        });
+        if (pause.isPositive()) Thread.sleep(pause);
+        return chunk;
+    }
+
+    private int advance(BillingCheckpoint checkpoint, Chunk chunk) {
+        checkpoint.setLastRegistration(chunk.lastRegistration());
+        checkpoint.setVehicles(checkpoint.getVehicles() + chunk.vehicles());
+        save(checkpoint);
+        logger.debug("Billed {} vehicles up to {}, {} invoices", chunk.vehicles(), chunk.lastRegistration(), chunk.invoices());
+        return chunk.vehicles();
+    }
+
+    private void save(BillingCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> billingCheckpointRepository.save(checkpoint));
+    }
+
+    private BillingRun result(YearMonth month, long vehicles, int chunks, String resumedAfter) {
+        LocalDate billingMonth = month.atDay(1);
+        return new BillingRun(month, vehicles, chunks,
+                invoiceRepository.countByBillingMonth(billingMonth),
+                invoiceRepository.sumAmountByBillingMonth(billingMonth),
+                resumedAfter);
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * TCP listener for roadside cameras ({@code congestion.camera-listener.enabled}), speaking {@link CameraProtocol}.
+ * One thread serves all connections with a non-blocking selector. Frames are decoded in place from pooled
+ * direct buffers into a batch of primitive columns, with registrations interned, so a frame allocates nothing
+ * until its passage is handed to storage. A second thread stores one batch at a time with one
+ * {@link PassageIngestionService#ingest} transaction, where duplicates are dropped by the same unique constraint
+ * that makes addPassage reject them; meanwhile the next batch fills. When a batch is stored every connection with
+ * frames in it gets one ack. A batch that fails because of its contents is stored again in halves, down to single
+ * frames, and only the frames that cannot be stored on their own are acknowledged as rejected, so one bad frame
+ * cannot stall every camera sharing its batch. Frames that fail because the database is unavailable are not
+ * acknowledged: their connections are closed so the cameras send them again. While the next batch is full the
+ * listener stops reading, and TCP holds the cameras back.
+ */
+@Service
+public class CameraListener {
+
+    private static final long SELECT_MILLIS = 100;
+    private static final long MAX_EPOCH_MILLIS = LocalDateTime.of(9999, 12, 31, 23, 59, 59).toEpochSecond(ZoneOffset.UTC) * 1000;
+    private static final Logger logger = LoggerFactory.getLogger(CameraListener.class);
+
+    private final PassageIngestionService passageIngestionService;
+    private final boolean enabled;
+    private final int port;
+    private final int maxConnections;
+    private final int bufferSize;
+    private final Duration shutdownTimeout;
+    private final Counter frames;
+    private final Counter rejected;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // Owned by the selector thread.
+    private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+    private final ArrayDeque<Connection> paused = new ArrayDeque<>();
+    private final List<Connection> acksDue = new ArrayList<>();
+    private final RegistrationTable registrations = new RegistrationTable();
+    private Batch filling;
+    private Batch spare;
+    private boolean writing;
+
+    private final Queue<Batch> written = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ExecutorService writer;
+    private Thread listener;
+    private volatile boolean running;
+
+    public CameraListener(
+            PassageIngestionService passageIngestionService,
+            CongestionTaxProperties congestionTaxProperties,
+            MeterRegistry meterRegistry
+    ) {
+        CongestionTaxProperties.CameraListener cameraListener = congestionTaxProperties.getCameraListener();
+        this.passageIngestionService = passageIngestionService;
+        this.enabled = cameraListener.isEnabled();
+        this.port = cameraListener.getPort();
+        this.maxConnections = cameraListener.getMaxConnections();
+        this.bufferSize = Math.max(cameraListener.getBufferSize(), CameraProtocol.MAX_FRAME_BYTES);
+        this.shutdownTimeout = cameraListener.getShutdownTimeout();
+        this.filling = new Batch(cameraListener.getBatchSize());
+        this.spare = new Batch(cameraListener.getBatchSize());
+
+        Gauge.builder("congestion.camera.connections", connectionCount, AtomicInteger::get)
+                .description("Open camera connections")
+                .register(meterRegistry);
+        this.frames = Counter.builder("congestion.camera.frames")
+                .description("Frames received from cameras")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("congestion.camera.rejected")
+                .description("Frames acknowledged without storing them because they were invalid or could not be stored")
+                .register(meterRegistry);
+        this.failed = Counter.builder("congestion.camera.failed")
+                .description("Frames not acknowledged because the database was unavailable")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("congestion.camera.batch_size")
+                .description("Frames stored per transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens the port once the application is ready, so frames are not stored before the passage store is.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() throws IOException {
+        if (!enabled || running) return;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("camera-writer").factory());
+        running = true;
+        listener = Thread.ofPlatform().name("camera-listener").start(this::serve);
+        logger.info("Camera listener on port {}", getPort());
+    }
+
+    /**
+     * @return the port the listener is bound to, or -1 if it is not running
+     */
+    public int getPort() {
+        return serverChannel != null && serverChannel.isOpen() ? serverChannel.socket().getLocalPort() : -1;
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select(SELECT_MILLIS);
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isWritable()) sendAck(connection);
+                        if (key.isValid() && key.isReadable()) read(connection);
+                    } catch (IOException e) {
+                        logger.debug("Closing camera connection {}: {}", connection.remote, e.getMessage());
+                        close(connection);
+                    }
+                }
+                completeBatches();
+                handOff();
+            }
+            drain();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Camera listener stopped: {}", e.getMessage(), e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) close(connection);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Could not close camera listener: {}", e.getMessage());
+            }
+            writer.shutdown();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        if (connectionCount.get() >= maxConnections) {
+            logger.warn("Refusing camera connection from {}: {} connections open", channel.getRemoteAddress(), maxConnections);
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        ByteBuffer buffer = bufferPool.poll();
+        Connection connection = new Connection(channel, buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(bufferSize));
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connectionCount.incrementAndGet();
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (!decode(connection)) {
+            pause(connection);
+            return;
+        }
+        if (connection.channel.read(connection.in) < 0) {
+            close(connection);
+            return;
+        }
+        if (!decode(connection)) pause(connection);
+    }
+
+    /**
+     * Moves the complete frames in the connection's buffer to the filling batch.
+     *
+     * @return false if the batch filled up before the buffer was empty
+     * @throws IOException if a frame has an impossible length; the stream cannot be resynchronised
+     */
+    private boolean decode(Connection connection) throws IOException {
+        ByteBuffer in = connection.in.flip();
+        try {
+            while (in.remaining() >= CameraProtocol.HEADER_BYTES) {
+                int position = in.position();
+                int length = in.getShort(position) & 0xFFFF;
+                if (length <= CameraProtocol.FIXED_BYTES || length > CameraProtocol.FIXED_BYTES + CameraProtocol.MAX_REGISTRATION_BYTES)
+                    throw new IOException("Invalid frame length " + length);
+                if (in.remaining() < CameraProtocol.HEADER_BYTES + length) break;
+                if (filling.isFull()) return false;
+
+                int frame = position + CameraProtocol.HEADER_BYTES;
+                VehicleType type = CameraProtocol.type(in.get(frame) & 0xFF);
+                long epochMillis = in.getLong(frame + 1);
+                String registration = registrations.intern(in, frame + CameraProtocol.FIXED_BYTES, length - CameraProtocol.FIXED_BYTES);
+                frames.increment();
+                if (type == null || registration == null || epochMillis < 0 || epochMillis > MAX_EPOCH_MILLIS) {
+                    rejected.increment();
+                    filling.add(connection, null, null, 0);
+                } else {
+                    filling.add(connection, registration, type, epochMillis / 1000);
+                }
+                in.position(frame + length);
+            }
+            return true;
+        } finally {
+            in.compact();
+        }
+    }
+
+    private void pause(Connection connection) {
+        connection.key.interestOpsAnd(~SelectionKey.OP_READ);
+        paused.add(connection);
+    }
+
+    /**
+     * Decodes what paused connections have buffered into the new batch and lets them read again.
+     */
+    private void resume() {
+        while (!paused.isEmpty() && !filling.isFull()) {
+            Connection connection = paused.poll();
+            if (!connection.channel.isOpen()) continue;
+            try {
+                if (!decode(connection)) {
+                    paused.addFirst(connection);
+                    return;
+                }
+                connection.key.interestOpsOr(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                logger.debug("Closing camera connection {}: {}", connection.remote, e.getMessage());
+                close(connection);
+            }
+        }
+    }
+
+    private void handOff() {
+        if (writing || filling.size == 0) return;
+        Batch batch = filling;
+        filling = spare;
+        spare = null;
+        writing = true;
+        writer.execute(() -> write(batch));
+        resume();
+    }
+
+    /**
+     * Runs on the writer thread.
+     */
+    private void write(Batch batch) {
+        List<VehiclePassage> passages = batch.passages;
+        passages.clear();
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.registrations[i] != null) {
+                batch.frames[passages.size()] = i;
+                passages.add(new VehiclePassage(batch.registrations[i], batch.types[i],
+                        LocalDateTime.ofEpochSecond(batch.epochSeconds[i], 0, ZoneOffset.UTC)));
+            }
+        }
+        try {
+            if (!passages.isEmpty()) store(batch, 0, passages.size());
+        } finally {
+            batchSizes.record(batch.size);
+            written.add(batch);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Stores passages {@code [from, to)} of the batch. If that fails for a reason other than the database being
+     * unavailable, the two halves are stored separately, down to single passages, which are then rejected.
+     */
+    private void store(Batch batch, int from, int to) {
+        try {
+            passageIngestionService.ingest(batch.passages.subList(from, to));
+        } catch (RuntimeException e) {
+            if (PassageIngestionService.isTransient(e)) {
+                for (int i = from; i < to; i++) batch.failed[batch.frames[i]] = true;
+                failed.increment(to - from);
+                logger.error("Failed to store {} camera frames: {}", to - from, e.getMessage());
+            } else if (to - from == 1) {
+                rejected.increment();
+                logger.warn("Rejected camera frame {}: {}", batch.passages.get(from), e.getMessage());
+            } else {
+                int middle = (from + to) >>> 1;
+                store(batch, from, middle);
+                store(batch, middle, to);
+            }
+        }
+    }
+
+    private void completeBatches() {
+        for (Batch batch; (batch = written.poll()) != null; ) {
+            for (int i = 0; i < batch.size; i++) {
+                Connection connection = batch.connections[i];
+                if (!connection.channel.isOpen()) continue;
+                if (batch.failed[i]) {
+                    close(connection);
+                    continue;
+                }
+                connection.processed++;
+                if (!connection.ackDue) {
+                    connection.ackDue = true;
+                    acksDue.add(connection);
+                }
+            }
+            for (Connection connection : acksDue) {
+                connection.ackDue = false;
+                if (!connection.channel.isOpen()) continue;
+                try {
+                    sendAck(connection);
+                } catch (IOException e) {
+                    logger.debug("Closing camera connection {}: {}", connection.remote, e.getMessage());
+                    close(connection);
+                }
+            }
+            acksDue.clear();
+            batch.clear();
+            spare = batch;
+            writing = false;
+        }
+    }
+
+    /**
+     * Writes the connection's frame count; an ack that does not fit in the socket buffer is finished on OP_WRITE.
+     */
+    private void sendAck(Connection connection) throws IOException {
+        ByteBuffer ack = connection.ack;
+        if (!ack.hasRemaining() && connection.acked < connection.processed) {
+            ack.clear().putLong(connection.processed).flip();
+            connection.acked = connection.processed;
+        }
+        connection.channel.write(ack);
+        if (ack.hasRemaining() || connection.acked < connection.processed)
+            connection.key.interestOpsOr(SelectionKey.OP_WRITE);
+        else
+            connection.key.interestOpsAnd(~SelectionKey.OP_WRITE);
+    }
+
+    private void close(Connection connection) {
+        if (!connection.channel.isOpen()) return;
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            logger.debug("Could not close camera connection {}: {}", connection.remote, e.getMessage());
+        }
+        bufferPool.push(connection.in);
+        connectionCount.decrementAndGet();
+    }
+
+    /**
+     * Stores and acknowledges the frames already decoded, without reading any more.
+     */
+    private void drain() throws IOException {
+        serverChannel.close();
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        while ((writing || filling.size > 0) && System.nanoTime() < deadline) {
+            handOff();
+            selector.select(SELECT_MILLIS);
+            selector.selectedKeys().clear();
+            completeBatches();
+        }
+        if (writing || filling.size > 0)
+            logger.warn("Camera frames not stored within {}, {} left", shutdownTimeout, filling.size);
+    }
+
+    /**
+     * Stops accepting frames and waits until the received ones are stored.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            thread = listener;
+        }
+        selector.wakeup();
+        if (!thread.join(shutdownTimeout.plusSeconds(1))) thread.interrupt();
+    }
+
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private final ByteBuffer ack = ByteBuffer.allocateDirect(CameraProtocol.ACK_BYTES).flip();
+        private final Object remote;
+        private SelectionKey key;
+        private long processed;
+        private long acked;
+        private boolean ackDue;
+
+        private Connection(SocketChannel channel, ByteBuffer in) throws IOException {
+            this.channel = channel;
+            this.in = in;
+            this.remote = channel.getRemoteAddress();
+        }
+    }
+
+    /**
+     * Decoded frames as columns; an invalid frame has no registration. {@code frames} maps each of
+     * {@code passages} back to its frame, and {@code failed} marks the frames that could not be stored because the
+     * database was unavailable.
+     */
+    private static final class Batch {
+
+        private final Connection[] connections;
+        private final String[] registrations;
+        private final VehicleType[] types;
+        private final long[] epochSeconds;
+        private final List<VehiclePassage> passages;
+        private final int[] frames;
+        private final boolean[] failed;
+        private int size;
+
+        private Batch(int capacity) {
+            this.connections = new Connection[capacity];
+            this.registrations = new String[capacity];
+            this.types = new VehicleType[capacity];
+            this.epochSeconds = new long[capacity];
+            this.passages = new ArrayList<>(capacity);
+            this.frames = new int[capacity];
+            this.failed = new boolean[capacity];
+        }
+
+        private boolean isFull() {
+            return size == connections.length;
+        }
+
+        private void add(Connection connection, String registration, VehicleType type, long epochSecond) {
+            connections[size] = connection;
+            registrations[size] = registration;
+            types[size] = type;
+            epochSeconds[size] = epochSecond;
+            size++;
+        }
+
+        private void clear() {
+            Arrays.fill(connections, 0, size, null);
+            Arrays.fill(registrations, 0, size, null);
+            Arrays.fill(failed, 0, size, false);
+            passages.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Open-addressing table from registration bytes to the decoded string, so a registration seen before is
+     * looked up straight from the receive buffer. Bytes that are not valid UTF-8, blank or too long map to null.
+     * The table is emptied when half full.
+     */
+    private static final class RegistrationTable {
+
+        private static final int CAPACITY = 1 << 17;
+
+        private final byte[][] keys = new byte[CAPACITY][];
+        private final String[] values = new String[CAPACITY];
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        private int size;
+
+        private String intern(ByteBuffer buffer, int offset, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) hash = 31 * hash + buffer.get(offset + i);
+            hash *= 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+            while (keys[slot] != null) {
+                if (matches(keys[slot], buffer, offset, length)) return values[slot];
+                slot = (slot + 1) & (CAPACITY - 1);
+            }
+            if (size == CAPACITY / 2) {
+                Arrays.fill(keys, null);
+                Arrays.fill(values, null);
+                size = 0;
+                return intern(buffer, offset, length);
+            }
+            byte[] key = new byte[length];
+            buffer.get(offset, key);
+            keys[slot] = key;
+            values[slot] = decode(key);
+            size++;
+            return values[slot];
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int offset, int length) {
+            if (key.length != length) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(offset + i)) return false;
+            }
+            return true;
+        }
+
+        private String decode(byte[] key) {
+            try {
+                CharBuffer chars = decoder.reset().decode(ByteBuffer.wrap(key));
+                String registration = chars.toString();
+                if (registration.isBlank() || registration.length() > PassageIngestionService.MAX_REGISTRATION_LENGTH)
+                    return null;
+                return registration;
+            } catch (CharacterCodingException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.congestiontax.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Parses camera log exports such as {@code passages.txt}: one {@code "yyyy-MM-dd HH:mm:ss"} timestamp per line,
+ * quotes optional, blank lines ignored. The file is memory-mapped in line-aligned chunks that are parsed
+ * in parallel. Timestamps are decoded straight from the mapped bytes into epoch seconds (UTC-based, i.e. the
+ * same value as {@code LocalDateTime.toEpochSecond(ZoneOffset.UTC)}) without allocating per line.
+ * Timestamps before 1970 are counted as malformed.
+ */
+public final class CameraLogParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Longest line a chunk may read past its nominal end to finish the line it started.
+     */
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int TIMESTAMP_LENGTH = 19;
+    private static final int BATCH_SIZE = 8192;
+
+    /**
+     * Receives parsed timestamps from the worker threads. The array is reused after the call returns.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(long[] epochSeconds, int count);
+    }
+
+    public record Result(long lines, long malformedLines, long bytes) {
+    }
+
+    private final int parallelism;
+    private final int chunkSize;
+
+    public CameraLogParser(int parallelism, int chunkSize) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+        if (chunkSize < MAX_LINE_LENGTH) throw new IllegalArgumentException("Chunk size must be at least " + MAX_LINE_LENGTH);
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses {@code file}, handing batches of timestamps to {@code sink} and adding the size of every
+     * finished chunk to {@code parsedBytes} so callers can report progress.
+     */
+    public Result parse(Path file, Sink sink, AtomicLong parsedBytes) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Future<long[]>> chunks = new ArrayList<>();
+            for (long start = 0; start < size; start += chunkSize) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(size, start + chunkSize);
+                chunks.add(executor.submit(() -> {
+                    long[] counts = parseChunk(channel, size, chunkStart, chunkEnd, sink);
+                    parsedBytes.addAndGet(chunkEnd - chunkStart);
+                    return counts;
+                }));
+            }
+
+            long lines = 0;
+            long malformed = 0;
+            for (Future<long[]> chunk : chunks) {
+                long[] counts = chunk.get();
+                lines += counts[0];
+                malformed += counts[1];
+            }
+            return new Result(lines, malformed, size);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses the lines that start in {@code [start, end)}. A chunk skips the partial line it starts in
+     * (the previous chunk finishes it) and reads past {@code end} to finish its own last line.
+     *
+     * @return {parsed lines, malformed lines}
+     */
+    private static long[] parseChunk(FileChannel channel, long fileSize, long start, long end, Sink sink) throws IOException {
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(fileSize, end + MAX_LINE_LENGTH);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buffer.limit();
+        int lastLineStart = (int) (end - mapStart);
+
+        int position = 0;
+        if (start > 0) {
+            while (position < limit && buffer.get(position) != '\n') position++;
+            position++;
+        }
+
+        long[] batch = new long[BATCH_SIZE];
+        int count = 0;
+        long lines = 0;
+        long malformed = 0;
+
+        while (position < lastLineStart && position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') lineEnd++;
+
+            int from = position;
+            int to = lineEnd;
+            while (from < to && isWhitespace(buffer.get(from))) from++;
+            while (to > from && isWhitespace(buffer.get(to - 1))) to--;
+            if (to > from && buffer.get(from) == '"' && buffer.get(to - 1) == '"') {
+                from++;
+                to--;
+            }
+
+            if (to > from) {
+                long epochSecond = to - from == TIMESTAMP_LENGTH ? parseTimestamp(buffer, from) : -1;
+                if (epochSecond >= 0) {
+                    batch[count++] = epochSecond;
+                    lines++;
+                    if (count == BATCH_SIZE) {
+                        sink.accept(batch, count);
+                        count = 0;
+                    }
+                } else {
+                    malformed++;
+                }
+            }
+            position = lineEnd + 1;
+        }
+
+        if (count > 0) sink.accept(batch, count);
+        return new long[]{lines, malformed};
+    }
+
+    /**
+     * Decodes {@code yyyy-MM-dd HH:mm:ss} (or with {@code T} as separator) at {@code offset}.
+     *
+     * @return epoch seconds, or -1 if the bytes are not a valid timestamp
+     */
+    static long parseTimestamp(ByteBuffer buffer, int offset) {
+        int year = digits(buffer, offset, 4);
+        int month = digits(buffer, offset + 5, 2);
+        int day = digits(buffer, offset + 8, 2);
+        int hour = digits(buffer, offset + 11, 2);
+        int minute = digits(buffer, offset + 14, 2);
+        int second = digits(buffer, offset + 17, 2);
+        byte separator = buffer.get(offset + 10);
+
+        if ((year | month | day | hour | minute | second) < 0
+                || buffer.get(offset + 4) != '-' || buffer.get(offset + 7) != '-'
+                || (separator != ' ' && separator != 'T')
+                || buffer.get(offset + 13) != ':' || buffer.get(offset + 16) != ':'
+                || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59)
+            return -1;
+
+        return epochDay(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second;
+    }
+
+    private static int digits(ByteBuffer buffer, int offset, int length) {
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = buffer.get(offset + i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (Howard Hinnant's days_from_civil).
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
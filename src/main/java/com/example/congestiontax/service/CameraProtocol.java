@@ -0,0 +1,71 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.enums.VehicleType;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Binary protocol of the camera listener, all integers big-endian.
+ * <pre>
+ * frame = length:u16 type:u8 epochMillis:i64 registration(UTF-8, length - 9 bytes)
+ * ack   = frames:i64
+ * </pre>
+ * A camera keeps its connection open and sends frames back to back. The listener answers with the number of
+ * frames of the connection it has dealt with so far, sent once per stored batch rather than per frame: every
+ * frame up to that count is stored, was already stored or was rejected as invalid. Frames after the last ack
+ * may be lost if the connection closes and should be sent again; duplicates are dropped. Vehicle types have
+ * fixed codes, so the protocol does not depend on the order of {@link VehicleType}.
+ */
+public final class CameraProtocol {
+
+    public static final int HEADER_BYTES = 2;
+    public static final int FIXED_BYTES = 9;
+    public static final int MAX_REGISTRATION_BYTES = 80;
+    public static final int MAX_FRAME_BYTES = HEADER_BYTES + FIXED_BYTES + MAX_REGISTRATION_BYTES;
+    public static final int ACK_BYTES = 8;
+
+    private static final VehicleType[] TYPES = {
+            VehicleType.CAR,
+            VehicleType.EMERGENCY,
+            VehicleType.BUS,
+            VehicleType.DIPLOMAT,
+            VehicleType.MOTORCYCLE,
+            VehicleType.MILITARY,
+            VehicleType.FOREIGN
+    };
+    private static final int[] CODES = new int[VehicleType.values().length];
+
+    static {
+        for (int code = 0; code < TYPES.length; code++) CODES[TYPES[code].ordinal()] = code;
+    }
+
+    private CameraProtocol() {
+    }
+
+    public static int typeCode(VehicleType type) {
+        return CODES[type.ordinal()];
+    }
+
+    /**
+     * @return the type with this code, or null if there is none
+     */
+    public static VehicleType type(int code) {
+        return code >= 0 && code < TYPES.length ? TYPES[code] : null;
+    }
+
+    /**
+     * Appends one frame to {@code out}.
+     *
+     * @param registration the UTF-8 bytes of the registration
+     * @throws IllegalArgumentException if the registration is empty or too long
+     */
+    public static void encode(ByteBuffer out, byte[] registration, VehicleType type, long epochMillis) {
+        if (registration.length == 0 || registration.length > MAX_REGISTRATION_BYTES)
+            throw new IllegalArgumentException("Registration must have 1 to " + MAX_REGISTRATION_BYTES + " bytes");
+        out.putShort((short) (FIXED_BYTES + registration.length));
+        out.put((byte) typeCode(type));
+        out.putLong(epochMillis);
+        out.put(registration);
+    }
+}
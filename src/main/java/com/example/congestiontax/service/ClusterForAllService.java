@@ -0,0 +1,152 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.dto.TaxTotals;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.ObjIntConsumer;
+
+
+/**
+ * Scatter-gather for the for-all totals ({@code congestion.cluster.nodes}). The vehicles are split into
+ * {@link RegistrationPartition}s by registration hash and every partition is requested from its node at the same
+ * time, through the for-all endpoint's {@code partition} parameter. A partition whose node fails or does not
+ * answer within {@code congestion.cluster.timeout} is requested from the next node. Partitions are requested as
+ * one JSON object, not streamed, so a node failing halfway cannot pass off a cut-short result as complete.
+ */
+@Service
+public class ClusterForAllService {
+
+    private static final String FOR_ALL_PATH = "/api/congestion/";
+    private static final Logger logger = LoggerFactory.getLogger(ClusterForAllService.class);
+
+    private final List<URI> nodes;
+    private final int partitions;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter retries;
+
+    public ClusterForAllService(
+            CongestionTaxProperties congestionTaxProperties,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry
+    ) {
+        CongestionTaxProperties.Cluster cluster = congestionTaxProperties.getCluster();
+        this.nodes = List.copyOf(cluster.getNodes());
+        this.partitions = cluster.getPartitions() > 0 ? cluster.getPartitions() : Math.max(1, nodes.size());
+        this.timeout = cluster.getTimeout();
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.retries = Counter.builder("congestion.cluster.partition_retries")
+                .description("Partitions requested again from another node after a failure or timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Totals of all partitions of a for-all request; {@code query} is the endpoint and its parameters, e.g.
+     * {@code calculateYearlyTaxForAll?year=2013}.
+     */
+    public TaxTotals calculateTaxForAll(String query) throws Exception {
+        TaxTotals.Builder totals = TaxTotals.builder();
+        gatherTaxForAll(query, totals);
+        return totals.build();
+    }
+
+    /**
+     * Hands each partition's totals to {@code sink} as soon as that partition is complete, so rows are ordered
+     * by registration within a partition only.
+     */
+    public void gatherTaxForAll(String query, ObjIntConsumer<String> sink) throws Exception {
+        if (nodes.isEmpty()) throw new Exception("Cluster mode is not configured, set congestion.cluster.nodes");
+
+        CompletionService<TaxTotals> completion = new ExecutorCompletionService<>(executor);
+        List<Future<TaxTotals>> futures = new ArrayList<>(partitions);
+        try {
+            for (int i = 0; i < partitions; i++) {
+                RegistrationPartition partition = new RegistrationPartition(i, partitions);
+                futures.add(completion.submit(() -> fetchPartition(query, partition)));
+            }
+            for (int i = 0; i < partitions; i++) completion.take().get().forEach(sink);
+        } catch (ExecutionException e) {
+            throw new Exception(e.getCause().getMessage(), e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private TaxTotals fetchPartition(String query, RegistrationPartition partition) throws Exception {
+        String failure = null;
+        for (int attempt = 0; attempt < nodes.size(); attempt++) {
+            URI node = nodes.get((partition.index() + attempt) % nodes.size());
+            if (attempt > 0) retries.increment();
+            Future<TaxTotals> request = executor.submit(() -> fetch(node, query, partition));
+            try {
+                return request.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                failure = node + " did not answer partition " + partition + " within " + timeout;
+            } catch (ExecutionException e) {
+                failure = node + " failed partition " + partition + ": " + e.getCause().getMessage();
+            } finally {
+                request.cancel(true);
+            }
+            if (attempt + 1 < nodes.size()) logger.warn("{}, asking the next node", failure);
+        }
+        throw new Exception("Partition " + partition + " failed on every node, last: " + failure);
+    }
+
+    private TaxTotals fetch(URI node, String query, RegistrationPartition partition) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(node.resolve(FOR_ALL_PATH + query + "&partition=" + partition))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .timeout(timeout)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200)
+                throw new IOException("HTTP " + response.statusCode() + ": " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+
+            TaxTotals.Builder totals = TaxTotals.builder();
+            try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object of totals");
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String registration = parser.currentName();
+                    parser.nextToken();
+                    totals.accept(registration, parser.getIntValue());
+                }
+            }
+            return totals.build();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
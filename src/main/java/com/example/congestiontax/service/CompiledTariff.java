@@ -0,0 +1,125 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Immutable, pre-computed form of the time bands in {@link CongestionTaxProperties}.
+ * The charge for every minute of the day is stored in a flat array, so a lookup is a
+ * single array read. Bands where {@code from} is after {@code to} wrap around midnight.
+ */
+public final class CompiledTariff {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int[] chargeByMinute;
+    private final int maxDailyCharge;
+    private final List<CongestionTaxProperties.TimeBand> timeBands;
+
+    private CompiledTariff(int[] chargeByMinute, int maxDailyCharge, List<CongestionTaxProperties.TimeBand> timeBands) {
+        this.chargeByMinute = chargeByMinute;
+        this.maxDailyCharge = maxDailyCharge;
+        this.timeBands = timeBands;
+    }
+
+    /**
+     * Builds the lookup table and validates that the bands cover every minute of the day exactly once.
+     *
+     * @throws IllegalStateException if bands are missing, overlap or leave a gap
+     */
+    public static CompiledTariff compile(CongestionTaxProperties properties) {
+        List<CongestionTaxProperties.TimeBand> timeBands = properties.getTimeBands();
+        if (timeBands == null || timeBands.isEmpty())
+            throw new IllegalStateException("No time bands configured");
+        if (properties.getMaxDailyCharge() < 0)
+            throw new IllegalStateException("Max daily charge must not be negative");
+
+        int[] chargeByMinute = new int[MINUTES_PER_DAY];
+        int[] bandByMinute = new int[MINUTES_PER_DAY];
+        Arrays.fill(bandByMinute, -1);
+
+        for (int i = 0; i < timeBands.size(); i++) {
+            CongestionTaxProperties.TimeBand timeBand = timeBands.get(i);
+            if (timeBand.getFrom() == null || timeBand.getTo() == null)
+                throw new IllegalStateException("Time band " + i + " is missing 'from' or 'to'");
+            if (timeBand.getAmount() < 0)
+                throw new IllegalStateException("Time band " + describe(timeBand) + " has a negative amount");
+
+            int from = minuteOfDay(timeBand.getFrom());
+            int to = minuteOfDay(timeBand.getTo());
+            int length = Math.floorMod(to - from, MINUTES_PER_DAY) + 1;
+
+            for (int offset = 0; offset < length; offset++) {
+                int minute = (from + offset) % MINUTES_PER_DAY;
+                if (bandByMinute[minute] != -1)
+                    throw new IllegalStateException("Time band " + describe(timeBand) + " overlaps time band "
+                            + describe(timeBands.get(bandByMinute[minute])) + " at " + LocalTime.ofSecondOfDay(minute * 60L));
+                bandByMinute[minute] = i;
+                chargeByMinute[minute] = timeBand.getAmount();
+            }
+        }
+
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (bandByMinute[minute] == -1)
+                throw new IllegalStateException("No time band covers " + LocalTime.ofSecondOfDay(minute * 60L));
+        }
+
+        List<CongestionTaxProperties.TimeBand> bands = timeBands.stream().map(timeBand -> {
+            CongestionTaxProperties.TimeBand copy = new CongestionTaxProperties.TimeBand();
+            copy.setFrom(timeBand.getFrom());
+            copy.setTo(timeBand.getTo());
+            copy.setAmount(timeBand.getAmount());
+            return copy;
+        }).toList();
+        return new CompiledTariff(chargeByMinute, properties.getMaxDailyCharge(), bands);
+    }
+
+    public int getCharge(LocalTime time) {
+        return chargeByMinute[time.getHour() * 60 + time.getMinute()];
+    }
+
+    public int getChargeAtSecondOfDay(int secondOfDay) {
+        return chargeByMinute[secondOfDay / 60];
+    }
+
+    public int getMaxDailyCharge() {
+        return maxDailyCharge;
+    }
+
+    /**
+     * @return copies of the bands the tariff was compiled from, in configuration order
+     */
+    public List<CongestionTaxProperties.TimeBand> getTimeBands() {
+        return timeBands;
+    }
+
+    /**
+     * @param byMinute a value per minute of day
+     * @return the sum of {@code byMinute} over each time band, in configuration order
+     */
+    public long[] sumByTimeBand(long[] byMinute) {
+        long[] sums = new long[timeBands.size()];
+        for (int i = 0; i < sums.length; i++) {
+            int from = minuteOfDay(timeBands.get(i).getFrom());
+            int length = Math.floorMod(minuteOfDay(timeBands.get(i).getTo()) - from, MINUTES_PER_DAY) + 1;
+            for (int offset = 0; offset < length; offset++) {
+                sums[i] += byMinute[(from + offset) % MINUTES_PER_DAY];
+            }
+        }
+        return sums;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        if (time.getSecond() != 0 || time.getNano() != 0)
+            throw new IllegalStateException("Time band boundary " + time + " must be a whole minute");
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static String describe(CongestionTaxProperties.TimeBand timeBand) {
+        return timeBand.getFrom() + "-" + timeBand.getTo();
+    }
+}
@@ -2,130 +2,157 @@ package com.example.congestiontax.service;
 
 import com.example.congestiontax.model.properties.CongestionTaxProperties;
 import com.example.congestiontax.model.Passage;
-import com.example.congestiontax.model.properties.PublicHoliday;
 import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.ExemptionReason;
 import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.RegistrationTax;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.DailyTax;
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.dto.RevenueReport;
+import com.example.congestiontax.model.dto.TariffSimulation;
+import com.example.congestiontax.model.dto.TariffVariant;
+import com.example.congestiontax.model.dto.TaxQuery;
+import com.example.congestiontax.model.dto.TaxQueryResult;
+import com.example.congestiontax.model.dto.TaxTotals;
+import com.example.congestiontax.repository.DailyTaxRepository;
 import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.PassageStore;
 import com.example.congestiontax.repository.VehicleRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 
 @Service
+@Timed(value = "congestion.service", histogram = true)
 public class CongestionTaxCalculatorService {
 
+    private static final int LEDGER_BATCH_SIZE = 1000;
+    private static final int TAX_QUERY_BATCH_SIZE = 1000;
+    private static final int MAX_TAX_QUERIES = 100_000;
+    private static final int MAX_SIMULATED_TARIFFS = 32;
+    private static final int MAX_REVENUE_DAYS = 3660;
+    private static final int MAX_TOP_PAYERS = 1000;
+    /**
+     * Orders payers from the lowest tax up, so the head of the top-payers heap is the one to evict.
+     */
+    private static final Comparator<RegistrationTax> PAYER_ORDER = Comparator
+            .comparingLong(RegistrationTax::tax)
+            .thenComparing(RegistrationTax::registration, Comparator.reverseOrder());
+    /**
+     * Orders simulated vehicles from the smallest change up, so the head of the changed-vehicles heap is the one to evict.
+     */
+    private static final Comparator<TariffSimulation.VehicleDelta> CHANGE_ORDER = Comparator
+            .comparingInt(TariffSimulation.VehicleDelta::largestChange)
+            .thenComparing(TariffSimulation.VehicleDelta::registration, Comparator.reverseOrder());
+
     private final VehicleRepository vehicleRepository;
+    private final VehicleCache vehicleCache;
     private final PassageRepository passageRepository;
-    private final CongestionTaxProperties congestionTaxProperties;
+    private final PassageStore passageStore;
+    private final DailyTaxRepository dailyTaxRepository;
+    private final TariffProvider tariffProvider;
     private final Set<VehicleType> exemptVehicles;
-    private final int maxDailyCharge;
-    private final Set<LocalDate> exemptDates = new HashSet<>();
+    private final TaxMetrics taxMetrics;
+    private final ExemptionCalendar.Country calendar;
+    private final boolean ledgerEnabled;
+    /**
+     * Evaluates batches of whole vehicles for the for-all totals; {@code null} when configured for one thread.
+     */
+    private final ForkJoinPool forAllPool;
+    private final int forAllBatchSize;
 
     public CongestionTaxCalculatorService(
-            CsvReaderService csvReaderService,
+            ExemptionCalendar exemptionCalendar,
             CongestionTaxProperties congestionTaxProperties,
+            TariffProvider tariffProvider,
             VehicleRepository vehicleRepository,
-            PassageRepository passageRepository
+            VehicleCache vehicleCache,
+            PassageRepository passageRepository,
+            PassageStore passageStore,
+            DailyTaxRepository dailyTaxRepository,
+            TaxMetrics taxMetrics
     ) {
         this.exemptVehicles = new HashSet<>(congestionTaxProperties.getExemptVehicles());
-        this.maxDailyCharge = congestionTaxProperties.getMaxDailyCharge();
+        this.calendar = exemptionCalendar.country(congestionTaxProperties.getExemptPeriods().getCountry());
+        this.tariffProvider = tariffProvider;
         this.vehicleRepository = vehicleRepository;
+        this.vehicleCache = vehicleCache;
         this.passageRepository = passageRepository;
-
-        // July
-        exemptDates.addAll(
-                congestionTaxProperties.getExemptPeriods().getFreeMonth().getStart()
-                        .datesUntil(congestionTaxProperties.getExemptPeriods().getFreeMonth().getEnd().plusDays(1))
-                        .collect(Collectors.toSet())
-        );
-
-        // Weekends
-        if (congestionTaxProperties.getExemptPeriods().isWeekends()) {
-            LocalDate start = LocalDate.of(congestionTaxProperties.getYear(), 1, 1);
-            LocalDate end = LocalDate.of(congestionTaxProperties.getYear(), 12, 31);
-            exemptDates.addAll(
-                    start.datesUntil(end.plusDays(1))
-                            .filter(localDate ->
-                                    localDate.getDayOfWeek() == DayOfWeek.SATURDAY ||
-                                    localDate.getDayOfWeek() == DayOfWeek.SUNDAY
-                            ).collect(Collectors.toSet())
-            );
-        }
-        // Holidays and days before
-        List<PublicHoliday> publicHolidays = csvReaderService.readPublicHolidays(
-                congestionTaxProperties.getExemptPeriods().getHolidaysCsv()
-        );
-        exemptDates.addAll(
-                publicHolidays.stream()
-                        .flatMap(holiday ->
-                                Stream.of(holiday.getDate(), holiday.getDate().minusDays(1))
-                        ).collect(Collectors.toSet())
-        );
-        this.congestionTaxProperties = congestionTaxProperties;
+        this.passageStore = passageStore;
+        this.dailyTaxRepository = dailyTaxRepository;
+        this.taxMetrics = taxMetrics;
+        this.ledgerEnabled = congestionTaxProperties.getLedger().isEnabled();
+        int forAllParallelism = congestionTaxProperties.getForAll().getParallelism();
+        this.forAllPool = forAllParallelism > 1 ? new ForkJoinPool(forAllParallelism) : null;
+        this.forAllBatchSize = congestionTaxProperties.getForAll().getBatchSize();
     }
 
     private int calculateTax(List<LocalDateTime> dailyPassages) {
-        List<LocalDateTime> sortedPassages = dailyPassages.stream().sorted().toList();
-        List<List<LocalDateTime>> groups = new ArrayList<>();
-        List<LocalDateTime> currentGroup = new ArrayList<>();
-
-        for (LocalDateTime passage : sortedPassages) {
-            if (currentGroup.isEmpty()) currentGroup.add(passage);
-            else {
-                if (Duration.between(currentGroup.getFirst(), passage).toMinutes() <= 60) {
-                    currentGroup.add(passage);
-                } else {
-                    groups.add(currentGroup);
-                    currentGroup = new ArrayList<>(List.of(passage));
-                }
-            }
+        int[] secondsOfDay = new int[dailyPassages.size()];
+        for (int i = 0; i < secondsOfDay.length; i++) {
+            secondsOfDay[i] = dailyPassages.get(i).toLocalTime().toSecondOfDay();
         }
-        if (!currentGroup.isEmpty()) groups.add(currentGroup);
+        return DailyTaxKernel.calculate(tariffProvider.current(), secondsOfDay, secondsOfDay.length);
+    }
 
-        int tax = groups.stream()
-                .mapToInt(group ->
-                        group.stream()
-                                .mapToInt(p -> getCharge(p.toLocalTime()))
-                                .max().orElse(0)
-                ).sum();
+    public boolean isExemptDate(LocalDate date) {
+        return calendar.isExempt(date);
+    }
 
-        return Math.min(tax, maxDailyCharge);
+    /**
+     * @return {@code true} and counts the hit if {@code date} is exempt
+     */
+    private boolean exemptDate(LocalDate date) {
+        ExemptionReason reason = calendar.reason(date);
+        if (reason == null) return false;
+        taxMetrics.exempt(reason);
+        return true;
     }
 
-    private int getCharge(LocalTime time) {
-        return congestionTaxProperties.getTimeBands().stream()
-                .filter(timeBand -> !time.isBefore(timeBand.getFrom()) && !time.isAfter(timeBand.getTo()))
-                .mapToInt(CongestionTaxProperties.TimeBand::getAmount)
-                .findFirst().orElse(0);
+    /**
+     * @return {@code true} and counts the hit if {@code type} is exempt
+     */
+    private boolean exemptVehicle(VehicleType type) {
+        if (!exemptVehicles.contains(type)) return false;
+        taxMetrics.exempt(ExemptionReason.VEHICLE_TYPE);
+        return true;
     }
 
+    @Transactional(readOnly = true)
     public Integer calculateDailyTax(String registration, LocalDate date) throws Exception {
-        if (date.getYear() != congestionTaxProperties.getYear())
-            throw new Exception("Year does not match properties year");
-
-        if (exemptDates.contains(date)) return 0;
+        if (exemptDate(date)) return 0;
 
-        Optional<Vehicle> existingVehicleOptional = vehicleRepository.findByRegistration(registration);
+        Optional<Vehicle> existingVehicleOptional = vehicleCache.findByRegistration(registration);
         if (existingVehicleOptional.isEmpty())
             throw new Exception("Vehicle not found");
 
         Vehicle vehicle = existingVehicleOptional.get();
-        if (exemptVehicles.contains(vehicle.getType()) || exemptDates.contains(date))
+        if (exemptVehicle(vehicle.getType()))
             return 0;
 
-        List<Passage> passagesInDay = passageRepository.findPassagesByVehicleAndTimestampBetween(
-                vehicle, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
-        if (passagesInDay.isEmpty()) return 0;
+        List<LocalDateTime> passageTimestamps = passageStore.findTimestampsByRegistrationBetween(
+                registration, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        taxMetrics.passagesRead(passageTimestamps.size());
+        if (passageTimestamps.isEmpty()) return 0;
 
-        List<LocalDateTime> passageTimestamps = passagesInDay.stream().map(Passage::getTimestamp).toList();
         return calculateTax(passageTimestamps);
     }
 
+    @Transactional(readOnly = true)
     public Integer calculateTaxBetweenDates(
             String registration,
             LocalDate startDate,
@@ -135,24 +162,28 @@ public class CongestionTaxCalculatorService {
         if (!startDate.isBefore(endDate))
             throw new Exception("Invalid date range provided. Start date should be before end date!");
 
-        Optional<Vehicle> vehicleOptional = vehicleRepository.findByRegistration(registration);
+        Optional<Vehicle> vehicleOptional = vehicleCache.findByRegistration(registration);
         if (vehicleOptional.isEmpty())
             throw new Exception("Vehicle not found!");
 
         Vehicle vehicle = vehicleOptional.get();
-        if (exemptVehicles.contains(vehicle.getType())) return 0;
+        if (exemptVehicle(vehicle.getType())) return 0;
+        if (calendar.exemptDays(startDate, endDate) == ChronoUnit.DAYS.between(startDate, endDate)) return 0;
 
-        List<Passage> passageList = passageRepository.findPassagesByVehicleAndTimestampBetween(
-                vehicle, startDate.atStartOfDay(), endDate.atStartOfDay());
-        if (passageList.isEmpty()) return 0;
+        if (ledgerEnabled)
+            return Math.toIntExact(dailyTaxRepository.sumAmountByRegistrationBetween(registration, startDate, endDate));
+
+        List<LocalDateTime> passageTimestamps = passageStore.findTimestampsByRegistrationBetween(
+                registration, startDate.atStartOfDay(), endDate.atStartOfDay());
+        taxMetrics.passagesRead(passageTimestamps.size());
+        if (passageTimestamps.isEmpty()) return 0;
 
-        List<LocalDateTime> passageTimestamps = passageList.stream().map(Passage::getTimestamp).toList();
         Map<LocalDate, List<LocalDateTime>> passagesGroupedByDate = passageTimestamps.stream()
                 .collect(Collectors.groupingBy(LocalDateTime::toLocalDate));
 
         AtomicInteger taxSum = new AtomicInteger();
         passagesGroupedByDate.forEach((date, passages) -> {
-            if (!exemptDates.contains(passages.getFirst().toLocalDate())) {
+            if (!exemptDate(passages.getFirst().toLocalDate())) {
                 taxSum.addAndGet(calculateTax(passages));
             }
         });
@@ -160,6 +191,120 @@ public class CongestionTaxCalculatorService {
         return taxSum.get();
     }
 
+    /**
+     * Answers many (registration, period) items at once. Per chunk of registrations the vehicles are looked up
+     * with one query (or the cache). The periods of the non-exempt ones are merged where they overlap or touch,
+     * and the passages of each merged range are streamed with one query for the vehicles that asked for it, so
+     * items far apart in time do not read the years between them. Each vehicle-day is evaluated once and added to every item whose period
+     * contains it. Items that cannot be answered get an error instead of failing the whole batch.
+     */
+    @Transactional(readOnly = true)
+    public List<TaxQueryResult> calculateTaxes(List<TaxQuery> queries) throws Exception {
+        if (queries.size() > MAX_TAX_QUERIES)
+            throw new Exception("At most " + MAX_TAX_QUERIES + " items can be queried at once");
+
+        record Item(int index, LocalDate from, LocalDate to) {
+        }
+
+        TaxQueryResult[] results = new TaxQueryResult[queries.size()];
+        int[] taxes = new int[queries.size()];
+        Map<String, List<Item>> itemsByRegistration = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            TaxQuery query = queries.get(i) != null ? queries.get(i) : new TaxQuery(null, null);
+            LocalDate[] period = parsePeriod(query.period());
+            if (query.registration() == null || query.registration().isBlank())
+                results[i] = TaxQueryResult.error(query, "Registration is missing");
+            else if (period == null)
+                results[i] = TaxQueryResult.error(query, "Invalid period, expected yyyy, yyyy-MM or yyyy-MM-dd");
+            else
+                results[i] = checkCalendar(query, period);
+            if (results[i] == null)
+                itemsByRegistration.computeIfAbsent(query.registration(), registration -> new ArrayList<>())
+                        .add(new Item(i, period[0], period[1]));
+        }
+
+        CompiledTariff tariff = tariffProvider.current();
+        long[] passageCount = {0};
+        List<String> registrations = new ArrayList<>(itemsByRegistration.keySet());
+        for (int i = 0; i < registrations.size(); i += TAX_QUERY_BATCH_SIZE) {
+            List<String> chunk = registrations.subList(i, Math.min(registrations.size(), i + TAX_QUERY_BATCH_SIZE));
+            Map<String, Vehicle> vehicles = vehicleCache.findAllByRegistration(chunk);
+
+            List<RegistrationRange> ranges = new ArrayList<>();
+            for (String registration : chunk) {
+                Vehicle vehicle = vehicles.get(registration);
+                List<Item> items = itemsByRegistration.get(registration);
+                if (vehicle == null) {
+                    items.forEach(item -> results[item.index()] = TaxQueryResult.error(queries.get(item.index()), "Vehicle not found"));
+                } else if (!exemptVehicle(vehicle.getType())) {
+                    for (Item item : items) ranges.add(new RegistrationRange(registration, item.from(), item.to()));
+                }
+            }
+
+            for (DateCluster cluster : clusterRanges(ranges)) {
+                try (Stream<VehiclePassage> passages = passageStore.streamVehiclePassagesByRegistrationsBetween(
+                        new ArrayList<>(cluster.registrations()), cluster.from().atStartOfDay(), cluster.to().atStartOfDay())) {
+                    VehicleDayFold.fold(passages.iterator(), (registration, type, date, secondsOfDay, count) -> {
+                        passageCount[0] += count;
+                        int dayTax = -1;
+                        for (Item item : itemsByRegistration.get(registration)) {
+                            if (date.isBefore(item.from()) || !date.isBefore(item.to())) continue;
+                            if (dayTax < 0) dayTax = dayTax(tariff, date, secondsOfDay, count);
+                            taxes[item.index()] += dayTax;
+                        }
+                    });
+                }
+            }
+        }
+
+        taxMetrics.passagesRead(passageCount[0]);
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) results[i] = TaxQueryResult.tax(queries.get(i), taxes[i]);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @return an error result if the exemption calendar has no public holidays for a year of {@code period}, so
+     * the item fails on its own instead of failing the batch when one of its days is evaluated
+     */
+    private TaxQueryResult checkCalendar(TaxQuery query, LocalDate[] period) {
+        try {
+            calendar.requireYears(period[0], period[1]);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return TaxQueryResult.error(query, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the half-open date range {@code [from, to)} of a {@code yyyy}, {@code yyyy-MM} or
+     * {@code yyyy-MM-dd} period, or {@code null} if it is none of those
+     */
+    private static LocalDate[] parsePeriod(String period) {
+        if (period == null) return null;
+        try {
+            return switch (period.length()) {
+                case 4 -> {
+                    LocalDate start = Year.parse(period).atDay(1);
+                    yield new LocalDate[]{start, start.plusYears(1)};
+                }
+                case 7 -> {
+                    LocalDate start = YearMonth.parse(period).atDay(1);
+                    yield new LocalDate[]{start, start.plusMonths(1)};
+                }
+                case 10 -> {
+                    LocalDate day = LocalDate.parse(period);
+                    yield new LocalDate[]{day, day.plusDays(1)};
+                }
+                default -> null;
+            };
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     public Vehicle saveNewVehicle(Vehicle vehicle) throws Exception {
         Optional<VehicleType> existingVehicleTypeOptional = Arrays.stream(VehicleType.values())
                 .filter(vehicleType ->
@@ -171,71 +316,481 @@ public class CongestionTaxCalculatorService {
         return vehicleRepository.save(vehicle);
     }
 
+    @Transactional
     public Passage saveNewPassage(Passage passage) throws Exception {
         Optional<Passage> existingPassageOptional = passageRepository
                 .findPassageByVehicleAndTimestamp(passage.getVehicle(), passage.getTimestamp());
         if (existingPassageOptional.isPresent())
             throw new Exception("Passage already exists");
 
-        Optional<Vehicle> existingVehicleOptional = vehicleRepository
+        Optional<Vehicle> existingVehicleOptional = vehicleCache
                 .findByRegistration(passage.getVehicle().getRegistration());
         if (existingVehicleOptional.isEmpty())
             saveNewVehicle(passage.getVehicle());
 
-        return passageRepository.save(passage);
+        Passage savedPassage = passageRepository.save(passage);
+        taxMetrics.passagesIngested(1, 0);
+        VehicleType type = existingVehicleOptional.map(Vehicle::getType).orElse(passage.getVehicle().getType());
+        passageStore.passagesSaved(List.of(
+                new VehiclePassage(passage.getVehicle().getRegistration(), type, passage.getTimestamp())));
+        if (ledgerEnabled)
+            refreshDailyTax(passage.getVehicle().getRegistration(), type, passage.getTimestamp().toLocalDate());
+        return savedPassage;
     }
 
-    public Map<String, AtomicInteger> calculateDailyTaxForAll(LocalDate date) {
-        List<Passage> dailyPassages = passageRepository.findPassagesByTimestampBetween(
-                date.atStartOfDay(), date.plusDays(1).atStartOfDay());
-        if (dailyPassages.isEmpty()) return new HashMap<>();
+    /**
+     * Recomputes the ledger row of one vehicle-day from its passages, see {@link #refreshDailyTaxes}.
+     */
+    private void refreshDailyTax(String registration, VehicleType type, LocalDate date) {
+        if (!calendar.covers(date.getYear())) return;
+        vehicleRepository.lockByRegistrations(List.of(registration));
+        int[] secondsOfDay = passageRepository.findTimestampsByRegistrationBetween(
+                        registration, date.atStartOfDay(), date.plusDays(1).atStartOfDay())
+                .stream()
+                .mapToInt(timestamp -> timestamp.toLocalTime().toSecondOfDay())
+                .toArray();
+        int amount = ledgerDayTax(tariffProvider.current(), type, date, secondsOfDay, secondsOfDay.length);
+        dailyTaxRepository.upsertAll(List.of(new DailyTax(registration, date, amount)));
+    }
+
+    /**
+     * Recomputes the ledger rows of every vehicle-day touched by {@code passages}, e.g. after a bulk insert.
+     * The touched days are merged into runs of consecutive days, and per run the passages of the vehicles
+     * touched in it are read with one query per chunk of registrations, so a backfilled old passage does not
+     * make the days between it and the rest of the batch be read.
+     * <p>
+     * The vehicle rows are locked before any passage is read. Two transactions adding passages of the same vehicle
+     * therefore recompute its days one after the other, and the second one reads the passages the first committed
+     * instead of overwriting its row with a total that misses them. Days of years without public holidays get no
+     * row: their totals cannot be answered until the holidays are added and the ledger is rebuilt.
+     */
+    @Transactional
+    public void refreshDailyTaxes(Collection<VehiclePassage> passages) {
+        if (!ledgerEnabled || passages.isEmpty()) return;
+
+        Map<Integer, Boolean> coveredYears = new HashMap<>();
+        Set<DailyTax.Key> affectedDays = new HashSet<>();
+        List<RegistrationRange> ranges = new ArrayList<>();
+        Set<String> touchedRegistrations = new TreeSet<>();
+        for (VehiclePassage passage : passages) {
+            LocalDate date = passage.timestamp().toLocalDate();
+            if (!coveredYears.computeIfAbsent(date.getYear(), calendar::covers)) continue;
+            if (affectedDays.add(new DailyTax.Key(passage.registration(), date))) {
+                ranges.add(new RegistrationRange(passage.registration(), date, date.plusDays(1)));
+                touchedRegistrations.add(passage.registration());
+            }
+        }
+        if (affectedDays.isEmpty()) return;
 
-        Map<Vehicle, List<Passage>> passagesGroupedByVehicle = dailyPassages.stream()
-                .collect(Collectors.groupingBy(Passage::getVehicle));
-        Map<String, AtomicInteger> registrationAndTaxMap = new HashMap<>();
+        List<String> lockOrder = new ArrayList<>(touchedRegistrations);
+        for (int i = 0; i < lockOrder.size(); i += LEDGER_BATCH_SIZE) {
+            vehicleRepository.lockByRegistrations(lockOrder.subList(i, Math.min(lockOrder.size(), i + LEDGER_BATCH_SIZE)));
+        }
 
-        passagesGroupedByVehicle.forEach((vehicle, passages) -> {
-            AtomicInteger taxSum = new AtomicInteger();
-            if (exemptVehicles.contains(vehicle.getType()) || exemptDates.contains(date)) {
-                registrationAndTaxMap.put(vehicle.getRegistration(), taxSum);
-            } else {
-                List<LocalDateTime> passageTimestamps = passages.stream().map(Passage::getTimestamp).toList();
-                taxSum.addAndGet(calculateTax(passageTimestamps));
-                registrationAndTaxMap.put(vehicle.getRegistration(), taxSum);
+        CompiledTariff tariff = tariffProvider.current();
+        List<DailyTax> dailyTaxes = new ArrayList<>(affectedDays.size());
+        for (DateCluster cluster : clusterRanges(ranges)) {
+            List<String> registrations = new ArrayList<>(cluster.registrations());
+            for (int i = 0; i < registrations.size(); i += LEDGER_BATCH_SIZE) {
+                List<String> chunk = registrations.subList(i, Math.min(registrations.size(), i + LEDGER_BATCH_SIZE));
+                try (Stream<VehiclePassage> vehiclePassages = passageRepository.streamVehiclePassagesByRegistrationsBetween(
+                        chunk, cluster.from().atStartOfDay(), cluster.to().atStartOfDay())) {
+                    VehicleDayFold.fold(vehiclePassages.iterator(), (registration, type, date, secondsOfDay, count) -> {
+                        if (affectedDays.contains(new DailyTax.Key(registration, date)))
+                            dailyTaxes.add(new DailyTax(registration, date, ledgerDayTax(tariff, type, date, secondsOfDay, count)));
+                    });
+                }
             }
+        }
+        dailyTaxRepository.upsertAll(dailyTaxes);
+    }
+
+    private record RegistrationRange(String registration, LocalDate from, LocalDate to) {
+    }
+
+    private record DateCluster(LocalDate from, LocalDate to, Set<String> registrations) {
+    }
+
+    /**
+     * Merges half-open date ranges that overlap or touch into disjoint clusters, each with the sorted
+     * registrations that have a range in it.
+     */
+    private static List<DateCluster> clusterRanges(List<RegistrationRange> ranges) {
+        List<RegistrationRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparing(RegistrationRange::from));
+        List<DateCluster> clusters = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        Set<String> registrations = new TreeSet<>();
+        for (RegistrationRange range : sorted) {
+            if (to != null && range.from().isAfter(to)) {
+                clusters.add(new DateCluster(from, to, registrations));
+                to = null;
+                registrations = new TreeSet<>();
+            }
+            if (to == null) from = range.from();
+            if (to == null || range.to().isAfter(to)) to = range.to();
+            registrations.add(range.registration());
+        }
+        if (to != null) clusters.add(new DateCluster(from, to, registrations));
+        return clusters;
+    }
+
+    /**
+     * Regenerates the whole daily tax ledger from the passage table with the current tariff and exemptions,
+     * e.g. after the tax rules in the configuration changed or public holidays were added for another year.
+     * Days of years without public holidays are left out, as in {@link #refreshDailyTaxes}.
+     *
+     * @return the number of ledger rows written
+     */
+    @Transactional
+    public long rebuildDailyTaxLedger() {
+        CompiledTariff tariff = tariffProvider.current();
+        List<DailyTax> batch = new ArrayList<>(LEDGER_BATCH_SIZE);
+        Map<Integer, Boolean> coveredYears = new HashMap<>();
+        long[] rows = {0};
+
+        dailyTaxRepository.deleteAllInBatch();
+        try (Stream<VehiclePassage> passages = passageRepository.streamAllVehiclePassages()) {
+            VehicleDayFold.fold(passages.iterator(), (registration, type, date, secondsOfDay, count) -> {
+                if (!coveredYears.computeIfAbsent(date.getYear(), calendar::covers)) return;
+                batch.add(new DailyTax(registration, date, ledgerDayTax(tariff, type, date, secondsOfDay, count)));
+                if (batch.size() == LEDGER_BATCH_SIZE) {
+                    dailyTaxRepository.insertAll(batch);
+                    rows[0] += batch.size();
+                    batch.clear();
+                }
+            });
+        }
+        dailyTaxRepository.insertAll(batch);
+        return rows[0] + batch.size();
+    }
+
+    @Transactional(readOnly = true)
+    public TaxTotals calculateDailyTaxForAll(LocalDate date) {
+        return calculateTaxBetweenDatesForAll(date, date.plusDays(1));
+    }
+
+    @Transactional(readOnly = true)
+    public TaxTotals calculateTaxBetweenDatesForAll(LocalDate startDate, LocalDate endDate) {
+        return calculateTaxBetweenDatesForAll(startDate, endDate, RegistrationPartition.ALL);
+    }
+
+    /**
+     * The totals of the vehicles in {@code partition} only, for a coordinator that gathers the partitions
+     * from several nodes.
+     */
+    @Transactional(readOnly = true)
+    public TaxTotals calculateTaxBetweenDatesForAll(LocalDate startDate, LocalDate endDate, RegistrationPartition partition) {
+        TaxTotals.Builder totals = TaxTotals.builder();
+        foldTaxBetweenDatesForAll(startDate, endDate, partition, totals);
+        return totals.build();
+    }
+
+    /**
+     * Like {@link #calculateTaxBetweenDatesForAll} but hands each total to {@code sink} as soon as it is known,
+     * in registration order, so callers can write results out without holding them all.
+     */
+    @Transactional(readOnly = true)
+    public void streamTaxBetweenDatesForAll(LocalDate startDate, LocalDate endDate, ObjIntConsumer<String> sink) {
+        foldTaxBetweenDatesForAll(startDate, endDate, RegistrationPartition.ALL, sink);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamTaxBetweenDatesForAll(
+            LocalDate startDate, LocalDate endDate, RegistrationPartition partition, ObjIntConsumer<String> sink) {
+        foldTaxBetweenDatesForAll(startDate, endDate, partition, sink);
+    }
+
+    /**
+     * Hands every vehicle of {@code partition} with passages in {@code [startDate, endDate)} and its total to {@code sink}.
+     * With the ledger enabled the totals are summed by the database. Otherwise passages are streamed ordered
+     * by vehicle and time, cut into batches of whole vehicles and folded one vehicle-day at a time on
+     * {@link #forAllPool}. Finished batches are emitted in stream order; at most two batches per worker are
+     * pending, after which reading waits for the oldest one.
+     */
+    private void foldTaxBetweenDatesForAll(
+            LocalDate startDate, LocalDate endDate, RegistrationPartition partition, ObjIntConsumer<String> sink) {
+        long[] vehicleCount = {0};
+        if (ledgerEnabled) {
+            // The ledger has no rows for years without public holidays; fail as the passage fold would.
+            calendar.requireYears(startDate, endDate);
+            List<RegistrationTax> totals = partition.isAll()
+                    ? dailyTaxRepository.sumAmountGroupedByRegistrationBetween(startDate, endDate)
+                    : dailyTaxRepository.sumAmountGroupedByRegistrationBetween(
+                            startDate, endDate, partition.fromHash(), partition.toHash());
+            totals.forEach(total -> {
+                vehicleCount[0]++;
+                sink.accept(total.registration(), Math.toIntExact(total.tax()));
+            });
+            taxMetrics.forAllSummedFromLedger(vehicleCount[0]);
+            return;
+        }
+
+        long[] passageCount = {0};
+        ObjIntConsumer<String> countingSink = (registration, tax) -> {
+            vehicleCount[0]++;
+            sink.accept(registration, tax);
+        };
+        try (Stream<VehiclePassage> passages = passageStore.streamVehiclePassagesBetween(
+                startDate.atStartOfDay(), endDate.atStartOfDay(), partition)) {
+            foldVehicles(tariffProvider.current(), passages.peek(passage -> passageCount[0]++).iterator(), countingSink);
+        }
+        taxMetrics.forAllEvaluated(passageCount[0], vehicleCount[0]);
+    }
+
+    private void foldVehicles(CompiledTariff tariff, Iterator<VehiclePassage> passages, ObjIntConsumer<String> sink) {
+        if (forAllPool == null) {
+            evaluateVehicles(tariff, passages, sink);
+            return;
+        }
+
+        int maxPending = forAllPool.getParallelism() * 2;
+        Deque<ForkJoinTask<TaxTotals>> pending = new ArrayDeque<>(maxPending);
+        List<VehiclePassage> batch = new ArrayList<>(forAllBatchSize);
+        while (passages.hasNext()) {
+            VehiclePassage passage = passages.next();
+            if (batch.size() >= forAllBatchSize && !passage.registration().equals(batch.getLast().registration())) {
+                if (pending.size() == maxPending) pending.poll().join().forEach(sink);
+                pending.add(submitBatch(tariff, batch));
+                while (!pending.isEmpty() && pending.peek().isDone()) pending.poll().join().forEach(sink);
+                batch = new ArrayList<>(forAllBatchSize);
+            }
+            batch.add(passage);
+        }
+        if (!batch.isEmpty()) pending.add(submitBatch(tariff, batch));
+        while (!pending.isEmpty()) pending.poll().join().forEach(sink);
+    }
+
+    private ForkJoinTask<TaxTotals> submitBatch(CompiledTariff tariff, List<VehiclePassage> batch) {
+        return forAllPool.submit(() -> {
+            TaxTotals.Builder totals = TaxTotals.builder();
+            evaluateVehicles(tariff, batch.iterator(), totals);
+            return totals.build();
         });
+    }
 
-        return registrationAndTaxMap;
+    /**
+     * Folds passages ordered by vehicle and time into one total per vehicle.
+     */
+    private void evaluateVehicles(CompiledTariff tariff, Iterator<VehiclePassage> passages, ObjIntConsumer<String> sink) {
+        VehicleDayFold.fold(passages, new VehicleDayFold.Listener() {
+            private int vehicleTax;
+            private boolean started;
+            private boolean exempt;
+
+            @Override
+            public void vehicleDay(String registration, VehicleType type, LocalDate date, int[] secondsOfDay, int count) {
+                if (!started) {
+                    started = true;
+                    exempt = exemptVehicle(type);
+                }
+                if (!exempt) vehicleTax += dayTax(tariff, date, secondsOfDay, count);
+            }
+
+            @Override
+            public void vehicleEnd(String registration, VehicleType type) {
+                sink.accept(registration, vehicleTax);
+                vehicleTax = 0;
+                started = false;
+            }
+        });
     }
 
-    public Map<String, AtomicInteger> calculateTaxBetweenDatesForAll(LocalDate startDate, LocalDate endDate) {
-        List<Passage> passageList = passageRepository.findPassagesByTimestampBetween(
-                startDate.atStartOfDay(), endDate.atStartOfDay());
-        if (passageList.isEmpty()) return new HashMap<>();
+    /**
+     * Projects the revenue of alternative tariffs over the passages in {@code [startDate, endDate)}. The passages
+     * are read once; each vehicle-day is sorted once and evaluated against the current tariff and every variant
+     * side by side, with the configured exemptions. Simulated exemptions are not counted in the metrics. Of the
+     * vehicles whose tax changes only the {@code top} largest changes are kept, in a bounded heap, so memory does
+     * not grow with the fleet.
+     */
+    @Transactional(readOnly = true)
+    public TariffSimulation simulateTariffs(
+            LocalDate startDate, LocalDate endDate, List<TariffVariant> variants, int top) throws Exception {
+        if (variants == null || variants.isEmpty())
+            throw new Exception("No tariffs to simulate");
+        if (variants.size() > MAX_SIMULATED_TARIFFS)
+            throw new Exception("At most " + MAX_SIMULATED_TARIFFS + " tariffs can be simulated at once");
+        if (!startDate.isBefore(endDate))
+            throw new Exception("Start date must be before end date");
+        if (top < 0 || top > MAX_TOP_PAYERS)
+            throw new Exception("Top must be between 0 and " + MAX_TOP_PAYERS);
+
+        String[] names = new String[variants.size() + 1];
+        CompiledTariff[] tariffs = new CompiledTariff[variants.size() + 1];
+        names[0] = "current";
+        tariffs[0] = tariffProvider.current();
+        for (int i = 0; i < variants.size(); i++) {
+            TariffVariant variant = variants.get(i);
+            names[i + 1] = variant.name() != null ? variant.name() : "tariff-" + (i + 1);
+            try {
+                tariffs[i + 1] = tariffProvider.compile(variant);
+            } catch (IllegalStateException e) {
+                throw new Exception("Tariff " + names[i + 1] + ": " + e.getMessage());
+            }
+        }
+
+        long[] totals = new long[tariffs.length];
+        long[] changedVehicles = {0};
+        PriorityQueue<TariffSimulation.VehicleDelta> changedHeap = new PriorityQueue<>(Math.max(1, top), CHANGE_ORDER);
+        try (Stream<VehiclePassage> passages = passageStore.streamVehiclePassagesBetween(
+                startDate.atStartOfDay(), endDate.atStartOfDay())) {
+            VehicleDayFold.fold(passages.iterator(), new VehicleDayFold.Listener() {
+                private final int[] vehicleTaxes = new int[tariffs.length];
+
+                @Override
+                public void vehicleDay(String registration, VehicleType type, LocalDate date, int[] secondsOfDay, int count) {
+                    if (count == 0 || exemptVehicles.contains(type) || calendar.isExempt(date)) return;
+                    Arrays.sort(secondsOfDay, 0, count);
+                    for (int t = 0; t < tariffs.length; t++) {
+                        vehicleTaxes[t] += DailyTaxKernel.calculateSorted(tariffs[t], secondsOfDay, count);
+                    }
+                }
+
+                @Override
+                public void vehicleEnd(String registration, VehicleType type) {
+                    int[] deltas = new int[tariffs.length - 1];
+                    boolean changed = false;
+                    totals[0] += vehicleTaxes[0];
+                    for (int t = 1; t < tariffs.length; t++) {
+                        totals[t] += vehicleTaxes[t];
+                        deltas[t - 1] = vehicleTaxes[t] - vehicleTaxes[0];
+                        changed |= deltas[t - 1] != 0;
+                    }
+                    if (changed) {
+                        changedVehicles[0]++;
+                        TariffSimulation.VehicleDelta vehicle = new TariffSimulation.VehicleDelta(registration, vehicleTaxes[0], deltas);
+                        if (changedHeap.size() < top) {
+                            changedHeap.add(vehicle);
+                        } else if (top > 0 && CHANGE_ORDER.compare(vehicle, changedHeap.peek()) > 0) {
+                            changedHeap.poll();
+                            changedHeap.add(vehicle);
+                        }
+                    }
+                    Arrays.fill(vehicleTaxes, 0);
+                }
+            });
+        }
 
-        Map<Vehicle, List<Passage>> passagesGroupedByVehicle = passageList.stream()
-                .collect(Collectors.groupingBy(Passage::getVehicle));
-        Map<String, AtomicInteger> registrationAndTaxMap = new HashMap<>();
+        List<TariffSimulation.TariffTotal> tariffTotals = new ArrayList<>(tariffs.length);
+        for (int t = 0; t < tariffs.length; t++) {
+            tariffTotals.add(new TariffSimulation.TariffTotal(names[t], totals[t], totals[t] - totals[0]));
+        }
+        List<TariffSimulation.VehicleDelta> vehicles = new ArrayList<>(changedHeap);
+        vehicles.sort(CHANGE_ORDER.reversed());
+        return new TariffSimulation(tariffTotals, changedVehicles[0], vehicles);
+    }
 
-        passagesGroupedByVehicle.forEach((vehicle, passages) -> {
-            AtomicInteger taxSum = new AtomicInteger();
-            if (exemptVehicles.contains(vehicle.getType())) {
-                registrationAndTaxMap.put(vehicle.getRegistration(), taxSum);
+    /**
+     * Aggregates the revenue of {@code [startDate, endDate)} in one pass over its passages. Only the current
+     * vehicle-day is buffered: revenue goes into per-minute and per-day arrays and the {@code top} payers are
+     * kept in a bounded heap, so memory depends on the period and {@code top}, not on the number of passages.
+     * Exemptions applied here are not counted in the metrics.
+     */
+    @Transactional(readOnly = true)
+    public RevenueReport calculateRevenue(LocalDate startDate, LocalDate endDate, int top) throws Exception {
+        if (!startDate.isBefore(endDate))
+            throw new Exception("Start date must be before end date");
+        long dayCount = ChronoUnit.DAYS.between(startDate, endDate);
+        if (dayCount > MAX_REVENUE_DAYS)
+            throw new Exception("At most " + MAX_REVENUE_DAYS + " days can be analysed at once");
+        if (top < 0 || top > MAX_TOP_PAYERS)
+            throw new Exception("Top must be between 0 and " + MAX_TOP_PAYERS);
+
+        CompiledTariff tariff = tariffProvider.current();
+        long[] byMinute = new long[CompiledTariff.MINUTES_PER_DAY];
+        long[] byDay = new long[(int) dayCount];
+        PriorityQueue<RegistrationTax> topPayers = new PriorityQueue<>(Math.max(1, top), PAYER_ORDER);
+        DailyTaxKernel.WindowListener minutes = (secondOfDay, amount) -> byMinute[secondOfDay / 60] += amount;
+
+        var revenue = new VehicleDayFold.Listener() {
+            private long total;
+            private long passages;
+            private long chargedVehicles;
+            private long cappedVehicles;
+            private long cappedVehicleDays;
+            private long vehicleTax;
+            private boolean capped;
+
+            @Override
+            public void vehicleDay(String registration, VehicleType type, LocalDate date, int[] secondsOfDay, int count) {
+                passages += count;
+                if (count == 0 || exemptVehicles.contains(type) || calendar.isExempt(date)) return;
+                Arrays.sort(secondsOfDay, 0, count);
+                int dayTax = DailyTaxKernel.calculateSorted(tariff, secondsOfDay, count, minutes);
+                byDay[(int) ChronoUnit.DAYS.between(startDate, date)] += dayTax;
+                vehicleTax += dayTax;
+                if (dayTax > 0 && dayTax == tariff.getMaxDailyCharge()) {
+                    cappedVehicleDays++;
+                    capped = true;
+                }
             }
-            else {
-                List<LocalDateTime> passageTimestamps = passages.stream().map(Passage::getTimestamp).toList();
-                Map<LocalDate, List<LocalDateTime>> passagesGroupedByDate = passageTimestamps.stream()
-                        .collect(Collectors.groupingBy(LocalDateTime::toLocalDate));
-
-                passagesGroupedByDate.forEach((date, timestamps) -> {
-                    if (!(exemptDates.contains(timestamps.getFirst().toLocalDate()))) {
-                        taxSum.addAndGet(calculateTax(timestamps));
+
+            @Override
+            public void vehicleEnd(String registration, VehicleType type) {
+                if (vehicleTax > 0) {
+                    total += vehicleTax;
+                    chargedVehicles++;
+                    if (capped) cappedVehicles++;
+                    if (topPayers.size() < top) {
+                        topPayers.add(new RegistrationTax(registration, vehicleTax));
+                    } else if (top > 0) {
+                        RegistrationTax payer = new RegistrationTax(registration, vehicleTax);
+                        if (PAYER_ORDER.compare(payer, topPayers.peek()) > 0) {
+                            topPayers.poll();
+                            topPayers.add(payer);
+                        }
                     }
-                });
-                registrationAndTaxMap.put(vehicle.getRegistration(), taxSum);
+                }
+                vehicleTax = 0;
+                capped = false;
             }
-        });
+        };
+        try (Stream<VehiclePassage> passages = passageStore.streamVehiclePassagesBetween(
+                startDate.atStartOfDay(), endDate.atStartOfDay())) {
+            VehicleDayFold.fold(passages.iterator(), revenue);
+        }
+
+        List<RevenueReport.DayRevenue> days = new ArrayList<>(byDay.length);
+        for (int day = 0; day < byDay.length; day++) {
+            days.add(new RevenueReport.DayRevenue(startDate.plusDays(day), byDay[day]));
+        }
+        long[] hours = new long[24];
+        for (int minute = 0; minute < byMinute.length; minute++) {
+            hours[minute / 60] += byMinute[minute];
+        }
+        long[] byTimeBand = tariff.sumByTimeBand(byMinute);
+        List<RevenueReport.TimeBandRevenue> timeBands = new ArrayList<>(byTimeBand.length);
+        for (int i = 0; i < byTimeBand.length; i++) {
+            CongestionTaxProperties.TimeBand timeBand = tariff.getTimeBands().get(i);
+            timeBands.add(new RevenueReport.TimeBandRevenue(timeBand.getFrom(), timeBand.getTo(), timeBand.getAmount(), byTimeBand[i]));
+        }
+        List<RegistrationTax> payers = new ArrayList<>(topPayers);
+        payers.sort(PAYER_ORDER.reversed());
+
+        return new RevenueReport(startDate, endDate, revenue.total, revenue.passages, revenue.chargedVehicles,
+                revenue.cappedVehicles, revenue.cappedVehicleDays, days, hours, timeBands, payers);
+    }
+
+    @PreDestroy
+    void shutdownForAllPool() {
+        if (forAllPool != null) forAllPool.shutdownNow();
+    }
+
+    /**
+     * Tax of one vehicle-day of a vehicle whose type has already been checked; counts an exempt date.
+     */
+    private int dayTax(CompiledTariff tariff, LocalDate date, int[] secondsOfDay, int count) {
+        if (count == 0 || exemptDate(date)) return 0;
+        return DailyTaxKernel.calculate(tariff, secondsOfDay, count);
+    }
 
-        return registrationAndTaxMap;
+    /**
+     * Tax of one vehicle-day for the ledger. Exemptions are not counted: the ledger is maintained on ingestion,
+     * and the metric counts answered tax queries.
+     */
+    private int ledgerDayTax(CompiledTariff tariff, VehicleType type, LocalDate date, int[] secondsOfDay, int count) {
+        if (count == 0 || exemptVehicles.contains(type) || calendar.isExempt(date)) return 0;
+        return DailyTaxKernel.calculate(tariff, secondsOfDay, count);
     }
 }
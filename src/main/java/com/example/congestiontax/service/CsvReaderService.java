@@ -1,11 +1,15 @@
 package com.example.congestiontax.service;
 
 import com.example.congestiontax.model.properties.PublicHoliday;
-import com.opencsv.bean.CsvToBeanBuilder;
-import com.opencsv.bean.HeaderColumnNameMappingStrategy;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -13,24 +17,39 @@ import java.util.Objects;
 @Service
 public class CsvReaderService {
 
+    /**
+     * Reads the columns by header name with the plain {@link CSVReader}; the reflective bean mapping would load
+     * and introspect a few hundred classes on the first tax query.
+     */
     public List<PublicHoliday> readPublicHolidays(String filePath) {
 
-        try (Reader reader = new InputStreamReader(
-                Objects.requireNonNull(getClass().getClassLoader().getResourceAsStream(filePath)))
+        try (CSVReader reader = new CSVReader(new InputStreamReader(
+                Objects.requireNonNull(getClass().getClassLoader().getResourceAsStream(filePath)), StandardCharsets.UTF_8))
         ) {
 
-            HeaderColumnNameMappingStrategy<PublicHoliday> strategy = new HeaderColumnNameMappingStrategy<>();
-            strategy.setType(PublicHoliday.class);
-
-            return new CsvToBeanBuilder<PublicHoliday>(reader)
-                    .withMappingStrategy(strategy)
-                    .withType(PublicHoliday.class)
-                    .withIgnoreLeadingWhiteSpace(true)
-                    .build()
-                    .parse();
-
-        } catch (IOException e) {
+            List<String> header = Arrays.stream(Objects.requireNonNull(reader.readNext(), filePath + " is empty"))
+                    .map(String::trim)
+                    .toList();
+            int name = column(header, "Name", filePath);
+            int localName = column(header, "LocalName", filePath);
+            int date = column(header, "Date", filePath);
+
+            List<PublicHoliday> holidays = new ArrayList<>();
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                if (line.length == 1 && line[0].isBlank()) continue;
+                holidays.add(new PublicHoliday(line[name].trim(), line[localName].trim(), LocalDate.parse(line[date].trim())));
+            }
+            return holidays;
+
+        } catch (IOException | CsvValidationException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private static int column(List<String> header, String name, String filePath) {
+        int index = header.indexOf(name);
+        if (index < 0) throw new IllegalArgumentException(filePath + " has no " + name + " column");
+        return index;
+    }
 }
@@ -0,0 +1,109 @@
+package com.example.congestiontax.service;
+
+import java.util.Arrays;
+
+
+/**
+ * Computes the tax for one vehicle on one day from primitive passage times.
+ * Passages are grouped into single-charge windows that start at the first passage of the window;
+ * every window is charged its highest band amount, and the daily total is capped by
+ * {@link CompiledTariff#getMaxDailyCharge()}.
+ */
+public final class DailyTaxKernel {
+
+    /**
+     * A passage belongs to the current window while it is at most 60 whole minutes after the window start,
+     * i.e. strictly less than 61 minutes in seconds.
+     */
+    static final int SINGLE_CHARGE_WINDOW_SECONDS = 61 * 60;
+
+    /**
+     * Receives the charged windows of a day.
+     */
+    public interface WindowListener {
+
+        /**
+         * @param secondOfDay the passage that set the window's charge
+         * @param amount      the window's share of the daily tax
+         */
+        void window(int secondOfDay, int amount);
+    }
+
+    private DailyTaxKernel() {
+    }
+
+    /**
+     * Sorts the first {@code count} entries of {@code secondsOfDay} in place and returns the daily tax.
+     */
+    public static int calculate(CompiledTariff tariff, int[] secondsOfDay, int count) {
+        if (count == 0) return 0;
+        Arrays.sort(secondsOfDay, 0, count);
+        return calculateSorted(tariff, secondsOfDay, count);
+    }
+
+    /**
+     * Returns the daily tax of the first {@code count} entries of {@code secondsOfDay}, which must be sorted;
+     * lets the same day be evaluated against several tariffs after sorting it once.
+     */
+    public static int calculateSorted(CompiledTariff tariff, int[] secondsOfDay, int count) {
+        if (count == 0) return 0;
+
+        int maxDailyCharge = tariff.getMaxDailyCharge();
+        int tax = 0;
+        int windowStart = secondsOfDay[0];
+        int windowCharge = tariff.getChargeAtSecondOfDay(windowStart);
+
+        for (int i = 1; i < count; i++) {
+            int passage = secondsOfDay[i];
+            int charge = tariff.getChargeAtSecondOfDay(passage);
+            if (passage - windowStart < SINGLE_CHARGE_WINDOW_SECONDS) {
+                if (charge > windowCharge) windowCharge = charge;
+            } else {
+                tax += windowCharge;
+                if (tax >= maxDailyCharge) return maxDailyCharge;
+                windowStart = passage;
+                windowCharge = charge;
+            }
+        }
+
+        return Math.min(tax + windowCharge, maxDailyCharge);
+    }
+
+    /**
+     * Like {@link #calculateSorted} but also reports every charged window to {@code listener}. The window that
+     * reaches the max daily charge is reported with the remainder up to the cap and later windows are not
+     * reported, so the reported amounts add up to the returned tax.
+     */
+    public static int calculateSorted(CompiledTariff tariff, int[] secondsOfDay, int count, WindowListener listener) {
+        if (count == 0) return 0;
+
+        int maxDailyCharge = tariff.getMaxDailyCharge();
+        int tax = 0;
+        int windowStart = secondsOfDay[0];
+        int windowCharge = tariff.getChargeAtSecondOfDay(windowStart);
+        int windowChargedAt = windowStart;
+
+        for (int i = 1; i < count; i++) {
+            int passage = secondsOfDay[i];
+            int charge = tariff.getChargeAtSecondOfDay(passage);
+            if (passage - windowStart < SINGLE_CHARGE_WINDOW_SECONDS) {
+                if (charge > windowCharge) {
+                    windowCharge = charge;
+                    windowChargedAt = passage;
+                }
+            } else {
+                int amount = Math.min(windowCharge, maxDailyCharge - tax);
+                if (amount > 0) listener.window(windowChargedAt, amount);
+                tax += amount;
+                if (tax >= maxDailyCharge) return maxDailyCharge;
+                windowStart = passage;
+                windowCharge = charge;
+                windowChargedAt = passage;
+            }
+        }
+
+        int amount = Math.min(windowCharge, maxDailyCharge - tax);
+        if (amount > 0) listener.window(windowChargedAt, amount);
+        return tax + amount;
+    }
+}
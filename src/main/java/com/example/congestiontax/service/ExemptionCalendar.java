@@ -0,0 +1,251 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.enums.ExemptionReason;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.model.properties.PublicHoliday;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Exempt dates of any number of countries and years. Each (country, year) is a set of day-of-year bitmaps,
+ * built on first use from the weekends, the free month (applied to every year) and the country's
+ * {@code congestion.exempt-periods.holidays-csv} file for that year. Looking up a date of a loaded year is a
+ * bit test without allocation; range counts are answered per year with {@link Long#bitCount}.
+ */
+@Component
+public class ExemptionCalendar {
+
+    static final int MIN_YEAR = 1970;
+    static final int MAX_YEAR = 2199;
+    private static final int WORDS = 6;
+    private static final Logger logger = LoggerFactory.getLogger(ExemptionCalendar.class);
+
+    private final CsvReaderService csvReaderService;
+    private final boolean weekends;
+    private final MonthDay freeMonthStart;
+    private final MonthDay freeMonthEnd;
+    private final String holidaysCsv;
+    private final String defaultCountry;
+    private final int defaultYear;
+    private final Map<String, Country> countries = new ConcurrentHashMap<>();
+
+    public ExemptionCalendar(CongestionTaxProperties congestionTaxProperties, CsvReaderService csvReaderService) {
+        CongestionTaxProperties.ExemptPeriods exemptPeriods = congestionTaxProperties.getExemptPeriods();
+        this.csvReaderService = csvReaderService;
+        this.weekends = exemptPeriods.isWeekends();
+        this.freeMonthStart = exemptPeriods.getFreeMonth() != null ? MonthDay.from(exemptPeriods.getFreeMonth().getStart()) : null;
+        this.freeMonthEnd = exemptPeriods.getFreeMonth() != null ? MonthDay.from(exemptPeriods.getFreeMonth().getEnd()) : null;
+        this.holidaysCsv = exemptPeriods.getHolidaysCsv();
+        this.defaultCountry = exemptPeriods.getCountry();
+        this.defaultYear = congestionTaxProperties.getYear();
+    }
+
+    /**
+     * Builds the configured country's calendar for the tariff year on a background thread once the application
+     * is ready, so neither startup nor the first tax query pays for reading the holiday files. A query arriving
+     * while it is loading waits for it instead of loading the year again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (defaultCountry == null || defaultYear < MIN_YEAR || defaultYear > MAX_YEAR) return;
+        Thread.ofVirtual().name("calendar-preload").start(() -> {
+            try {
+                country(defaultCountry).isExempt(LocalDate.of(defaultYear, 1, 1));
+            } catch (RuntimeException e) {
+                logger.warn("Could not preload exemption calendar for {} {}: {}", defaultCountry, defaultYear, e.getMessage());
+            }
+        });
+    }
+
+    public Country country(String countryCode) {
+        return countries.computeIfAbsent(countryCode, Country::new);
+    }
+
+    /**
+     * Exempt dates of one country; years are loaded on first use and kept.
+     */
+    public final class Country {
+
+        private final String code;
+        private final Year[] years = new Year[MAX_YEAR - MIN_YEAR + 1];
+
+        private Country(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * @return why {@code date} is exempt, or {@code null} if it is taxable
+         * @throws IllegalArgumentException if there are no public holidays for the year of {@code date}
+         */
+        public ExemptionReason reason(LocalDate date) {
+            return year(date.getYear()).reason(date.getDayOfYear() - 1);
+        }
+
+        public boolean isExempt(LocalDate date) {
+            return year(date.getYear()).isExempt(date.getDayOfYear() - 1);
+        }
+
+        /**
+         * @return the number of exempt days in {@code [from, to)}
+         */
+        public int exemptDays(LocalDate from, LocalDate to) {
+            int count = 0;
+            for (int year = from.getYear(); year <= to.getYear(); year++) {
+                int fromDay = year == from.getYear() ? from.getDayOfYear() - 1 : 0;
+                int toDay = year == to.getYear() ? to.getDayOfYear() - 1 : LocalDate.of(year, 1, 1).lengthOfYear();
+                if (fromDay < toDay) count += year(year).exemptDays(fromDay, toDay);
+            }
+            return count;
+        }
+
+        /**
+         * Loads every year that {@code [from, to)} touches.
+         *
+         * @throws IllegalArgumentException if one of them has no public holidays
+         */
+        public void requireYears(LocalDate from, LocalDate to) {
+            for (int year = from.getYear(); year <= to.minusDays(1).getYear(); year++) year(year);
+        }
+
+        /**
+         * @return whether {@code year} has public holidays, loading it if it does
+         */
+        public boolean covers(int year) {
+            if (year < MIN_YEAR || year > MAX_YEAR) return false;
+            if (years[year - MIN_YEAR] != null) return true;
+            try {
+                load(year);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        private Year year(int year) {
+            if (year < MIN_YEAR || year > MAX_YEAR)
+                throw new IllegalArgumentException("Year " + year + " is outside " + MIN_YEAR + "-" + MAX_YEAR);
+            Year calendar = years[year - MIN_YEAR];
+            return calendar != null ? calendar : load(year);
+        }
+
+        private synchronized Year load(int year) {
+            Year calendar = years[year - MIN_YEAR];
+            if (calendar != null) return calendar;
+
+            String location = holidaysLocation(code, year);
+            if (getClass().getClassLoader().getResource(location) == null)
+                throw new IllegalArgumentException("No public holidays for " + code + " " + year + " (" + location + ")");
+
+            long[] freeMonth = new long[WORDS];
+            long[] weekend = new long[WORDS];
+            long[] holiday = new long[WORDS];
+            LocalDate start = LocalDate.of(year, 1, 1);
+            for (LocalDate date = start; date.getYear() == year; date = date.plusDays(1)) {
+                int day = date.getDayOfYear() - 1;
+                if (isInFreeMonth(date)) set(freeMonth, day);
+                if (weekends && (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY))
+                    set(weekend, day);
+            }
+            // Holidays and days before; a holiday on 1 January of next year makes 31 December exempt too.
+            for (PublicHoliday publicHoliday : csvReaderService.readPublicHolidays(location)) {
+                markHolidayAndDayBefore(holiday, year, publicHoliday.getDate());
+            }
+            String nextYear = holidaysLocation(code, year + 1);
+            if (getClass().getClassLoader().getResource(nextYear) != null) {
+                for (PublicHoliday publicHoliday : csvReaderService.readPublicHolidays(nextYear)) {
+                    markHolidayAndDayBefore(holiday, year, publicHoliday.getDate());
+                }
+            }
+
+            calendar = new Year(freeMonth, weekend, holiday);
+            years[year - MIN_YEAR] = calendar;
+            logger.info("Loaded exemption calendar for {} {} from {}", code, year, location);
+            return calendar;
+        }
+    }
+
+    private String holidaysLocation(String country, int year) {
+        return holidaysCsv.replace("{country}", country).replace("{year}", Integer.toString(year));
+    }
+
+    private boolean isInFreeMonth(LocalDate date) {
+        if (freeMonthStart == null) return false;
+        MonthDay monthDay = MonthDay.from(date);
+        return !monthDay.isBefore(freeMonthStart) && !monthDay.isAfter(freeMonthEnd);
+    }
+
+    private static void markHolidayAndDayBefore(long[] holiday, int year, LocalDate date) {
+        if (date.getYear() == year) set(holiday, date.getDayOfYear() - 1);
+        LocalDate dayBefore = date.minusDays(1);
+        if (dayBefore.getYear() == year) set(holiday, dayBefore.getDayOfYear() - 1);
+    }
+
+    private static void set(long[] bits, int day) {
+        bits[day >>> 6] |= 1L << day;
+    }
+
+    private static boolean get(long[] bits, int day) {
+        return (bits[day >>> 6] & (1L << day)) != 0;
+    }
+
+    /**
+     * Bitmaps of one year indexed by day of year (0-based); immutable once built, so it can be read without
+     * synchronization.
+     */
+    private static final class Year {
+
+        private final long[] freeMonth;
+        private final long[] weekend;
+        private final long[] holiday;
+        private final long[] exempt = new long[WORDS];
+
+        private Year(long[] freeMonth, long[] weekend, long[] holiday) {
+            this.freeMonth = freeMonth;
+            this.weekend = weekend;
+            this.holiday = holiday;
+            for (int i = 0; i < WORDS; i++) {
+                exempt[i] = freeMonth[i] | weekend[i] | holiday[i];
+            }
+        }
+
+        private boolean isExempt(int day) {
+            return get(exempt, day);
+        }
+
+        private ExemptionReason reason(int day) {
+            if (!get(exempt, day)) return null;
+            if (get(freeMonth, day)) return ExemptionReason.FREE_MONTH;
+            if (get(weekend, day)) return ExemptionReason.WEEKEND;
+            return ExemptionReason.HOLIDAY;
+        }
+
+        /**
+         * @return the number of exempt days in {@code [fromDay, toDay)}
+         */
+        private int exemptDays(int fromDay, int toDay) {
+            int count = 0;
+            int lastDay = toDay - 1;
+            for (int word = fromDay >>> 6; word <= lastDay >>> 6; word++) {
+                long mask = -1L;
+                if (word == fromDay >>> 6) mask &= -1L << fromDay;
+                if (word == lastDay >>> 6) mask &= -1L >>> (63 - (lastDay & 63));
+                count += Long.bitCount(exempt[word] & mask);
+            }
+            return count;
+        }
+    }
+}
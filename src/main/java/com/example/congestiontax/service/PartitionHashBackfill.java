@@ -0,0 +1,42 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.repository.VehicleRepository;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Fills in the {@code partition_hash} of vehicles stored without it, by {@code data.sql} or before the column
+ * existed, with {@link RegistrationPartition#hash}. Runs once every bean is created, which is after
+ * {@code data.sql} and before the web server starts, any command runs or the camera listener opens, so
+ * partitioned queries never miss a vehicle.
+ */
+@Component
+@AllArgsConstructor
+public class PartitionHashBackfill implements SmartInitializingSingleton {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final VehicleRepository vehicleRepository;
+    private static final Logger logger = LoggerFactory.getLogger(PartitionHashBackfill.class);
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    /**
+     * @return the number of vehicles whose hash was filled in
+     */
+    public long backfill() {
+        long vehicles = 0;
+        for (int filled; (filled = vehicleRepository.fillMissingPartitionHashes(BATCH_SIZE)) > 0; )
+            vehicles += filled;
+        if (vehicles > 0) logger.info("Filled in the partition hash of {} vehicles", vehicles);
+        return vehicles;
+    }
+}
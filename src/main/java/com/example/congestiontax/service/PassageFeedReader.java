@@ -0,0 +1,91 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Parses the bulk passage upload formats into {@link VehiclePassage} rows:
+ * JSON arrays and NDJSON of the {@link Passage} shape accepted by {@code addPassage},
+ * and CSV with the columns {@code registration,type,timestamp} and an optional header.
+ */
+@Service
+@AllArgsConstructor
+public class PassageFeedReader {
+
+    /**
+     * Accepts both ISO timestamps and the {@code yyyy-MM-dd HH:mm:ss} form of the camera exports.
+     */
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd['T'][' ']HH:mm[:ss]");
+
+    private final ObjectMapper objectMapper;
+
+    public List<VehiclePassage> fromPassages(List<Passage> passages) {
+        List<VehiclePassage> vehiclePassages = new ArrayList<>(passages.size());
+        for (int i = 0; i < passages.size(); i++) {
+            Passage passage = passages.get(i);
+            if (passage == null || passage.getVehicle() == null)
+                throw new IllegalArgumentException("Passage " + i + ": vehicle is missing");
+            vehiclePassages.add(new VehiclePassage(
+                    passage.getVehicle().getRegistration(), passage.getVehicle().getType(), passage.getTimestamp()));
+        }
+        return vehiclePassages;
+    }
+
+    public List<VehiclePassage> readNdjson(InputStream inputStream) throws IOException {
+        try (MappingIterator<Passage> iterator = objectMapper.readerFor(Passage.class).readValues(inputStream)) {
+            return fromPassages(iterator.readAll());
+        }
+    }
+
+    public List<VehiclePassage> readCsv(InputStream inputStream) throws IOException {
+        List<VehiclePassage> passages = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                long lineNumber = reader.getLinesRead();
+                if (line.length == 1 && line[0].isBlank()) continue;
+                if (lineNumber == 1 && line[0].trim().equalsIgnoreCase("registration")) continue;
+                if (line.length != 3)
+                    throw new IllegalArgumentException("Line " + lineNumber + ": expected registration,type,timestamp");
+                passages.add(new VehiclePassage(line[0].trim(), parseType(line[1], lineNumber), parseTimestamp(line[2], lineNumber)));
+            }
+        } catch (CsvValidationException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return passages;
+    }
+
+    private static VehicleType parseType(String value, long lineNumber) {
+        try {
+            return VehicleType.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": vehicle type not found: " + value);
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String value, long lineNumber) {
+        try {
+            return LocalDateTime.parse(value.trim(), TIMESTAMP_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid timestamp: " + value);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.dto.IngestionResult;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.PassageStore;
+import com.example.congestiontax.repository.VehicleRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+
+/**
+ * Set-based counterpart of {@link CongestionTaxCalculatorService#saveNewPassage}: unknown vehicles are
+ * inserted with one statement per chunk, and passages go through multi-row inserts that let the
+ * (vehicle_registration, timestamp) unique constraint drop duplicates instead of checking each row first.
+ */
+@Service
+@AllArgsConstructor
+@Timed(value = "congestion.service", histogram = true)
+public class PassageIngestionService {
+
+    static final int MAX_REGISTRATION_LENGTH = 20;
+
+    private final VehicleRepository vehicleRepository;
+    private final VehicleCache vehicleCache;
+    private final PassageRepository passageRepository;
+    private final PassageStore passageStore;
+    private final CongestionTaxCalculatorService congestionTaxCalculatorService;
+    private final TaxMetrics taxMetrics;
+
+    @Transactional
+    public IngestionResult ingest(List<VehiclePassage> passages) {
+        record PassageKey(String registration, LocalDateTime timestamp) {
+        }
+
+        Set<PassageKey> seen = new HashSet<>(passages.size() * 2);
+        Map<String, Vehicle> vehicles = new LinkedHashMap<>();
+        List<VehiclePassage> uniquePassages = new ArrayList<>(passages.size());
+
+        for (int i = 0; i < passages.size(); i++) {
+            VehiclePassage passage = passages.get(i);
+            validate(passage, i);
+            if (seen.add(new PassageKey(passage.registration(), passage.timestamp()))) {
+                uniquePassages.add(passage);
+                vehicles.putIfAbsent(passage.registration(), new Vehicle(passage.registration(), passage.type()));
+            }
+        }
+
+        vehicleRepository.insertMissing(new ArrayList<>(vehicles.values()));
+        vehicleCache.invalidateUnknown(vehicles.keySet());
+        int accepted = passageRepository.insertIgnoringDuplicates(uniquePassages);
+        passageStore.passagesSaved(uniquePassages);
+        congestionTaxCalculatorService.refreshDailyTaxes(uniquePassages);
+        taxMetrics.passagesIngested(accepted, passages.size() - accepted);
+
+        return new IngestionResult(passages.size(), accepted, passages.size() - accepted);
+    }
+
+    private static void validate(VehiclePassage passage, int index) {
+        try {
+            validate(passage);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Passage " + index + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the passage cannot be stored
+     */
+    static void validate(VehiclePassage passage) {
+        if (passage.registration() == null || passage.registration().isBlank())
+            throw new IllegalArgumentException("registration is missing");
+        if (passage.registration().length() > MAX_REGISTRATION_LENGTH)
+            throw new IllegalArgumentException("registration is longer than " + MAX_REGISTRATION_LENGTH);
+        if (passage.type() == null)
+            throw new IllegalArgumentException("vehicle type is missing");
+        if (passage.timestamp() == null)
+            throw new IllegalArgumentException("timestamp is missing");
+    }
+
+    /**
+     * @return whether {@code e} means the database was unavailable or busy rather than that the passages cannot
+     * be stored, so storing the same passages again later may succeed
+     */
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+
+/**
+ * Binary snapshot of the vehicle and passage tables.
+ * <pre>
+ * file    = "CTSNAP" version:u16 typeCount:varint typeName* block* 0:u32 vehicles:i64 passages:i64
+ * block   = length:u32 payload crc32c(payload):u32
+ * payload = entryCount:varint entry*
+ * entry   = registrationLength:varint registration(UTF-8) type:varint passageCount:varint
+ *           [firstEpochSecond:zigzag-varint (deltaSeconds:varint)* fractionCount:varint
+ *            (indexGap:varint nanos:varint)*]
+ * </pre>
+ * Each block has its own registration dictionary: every vehicle in it is named once. Its passages follow as the
+ * sorted epoch seconds (UTC) of the first passage and the gaps to the next ones, so a passage costs one to three
+ * bytes. Passages with a fraction of a second are listed after them by the gap from the previous such passage's
+ * index and their nanoseconds, so whole-second data pays one byte per entry for it. Version 1 files, which had
+ * no fractions, are still read. A vehicle with more passages than fit in a block continues in an entry of the next block. Blocks are
+ * checksummed, so a damaged file is detected at the block where the damage is. Vehicle types are stored by
+ * their name in the header, so the file does not depend on the order of {@link VehicleType}.
+ */
+public final class PassageSnapshot {
+
+    public static final int DEFAULT_BLOCK_PASSAGES = 65_536;
+    private static final byte[] MAGIC = "CTSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+
+    public record Summary(long vehicles, long passages, long blocks) {
+    }
+
+    public interface BlockListener {
+
+        /**
+         * Called once per block with its vehicles, including those without passages, and its passages ordered
+         * by vehicle and time.
+         */
+        void block(List<Vehicle> vehicles, List<VehiclePassage> passages) throws IOException;
+    }
+
+    private PassageSnapshot() {
+    }
+
+    /**
+     * Writes passages and vehicles without passages. The passages of a vehicle must arrive together and ordered by
+     * timestamp; the vehicles themselves may come in any order, such as the collation order of the database.
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final int blockPassages;
+        private final Buffer block = new Buffer();
+        private final CRC32C crc = new CRC32C();
+        private int blockEntries;
+        private int blockPassageCount;
+        private long vehicles;
+        private long passages;
+        private long blocks;
+
+        private String registration;
+        private VehicleType type;
+        private long[] epochSeconds = new long[64];
+        private int[] nanos = new int[64];
+        private int count;
+        private LocalDateTime lastTimestamp;
+        private boolean continued;
+
+        public Writer(OutputStream out) throws IOException {
+            this(out, DEFAULT_BLOCK_PASSAGES);
+        }
+
+        public Writer(OutputStream out, int blockPassages) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.blockPassages = blockPassages;
+            this.out.write(MAGIC);
+            this.out.writeShort(VERSION);
+            Buffer header = new Buffer();
+            header.writeVarLong(VehicleType.values().length);
+            for (VehicleType vehicleType : VehicleType.values()) header.writeString(vehicleType.name());
+            this.out.write(header.bytes, 0, header.size);
+        }
+
+        public void add(VehiclePassage passage) throws IOException {
+            LocalDateTime timestamp = passage.timestamp();
+            if (!passage.registration().equals(registration)) {
+                startVehicle(passage.registration(), passage.type());
+            } else if (timestamp.isBefore(lastTimestamp)) {
+                throw new IllegalArgumentException("Passages of " + registration + " must be ordered by timestamp");
+            }
+            if (count == epochSeconds.length) {
+                epochSeconds = Arrays.copyOf(epochSeconds, count * 2);
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            epochSeconds[count] = timestamp.toEpochSecond(ZoneOffset.UTC);
+            nanos[count++] = timestamp.getNano();
+            lastTimestamp = timestamp;
+            if (blockPassageCount + count >= blockPassages) {
+                writeEntry();
+                flushBlock();
+                continued = true;
+            }
+        }
+
+        /**
+         * Adds a vehicle that has no passages; call it outside the passages of any other vehicle.
+         */
+        public void addVehicle(Vehicle vehicle) throws IOException {
+            startVehicle(vehicle.getRegistration(), vehicle.getType());
+            writeEntry();
+            registration = null;
+        }
+
+        private void startVehicle(String registration, VehicleType type) throws IOException {
+            endVehicle();
+            if (blockPassageCount >= blockPassages) flushBlock();
+            this.registration = registration;
+            this.type = type;
+            vehicles++;
+        }
+
+        /**
+         * Writes the passages of the current vehicle that are not written yet. A vehicle whose passages exactly
+         * filled the previous block has none left and gets no empty entry in the next one.
+         */
+        private void endVehicle() {
+            if (registration != null && (count > 0 || !continued)) writeEntry();
+            registration = null;
+            continued = false;
+        }
+
+        private void writeEntry() {
+            block.writeString(registration);
+            block.writeVarLong(type.ordinal());
+            block.writeVarLong(count);
+            if (count > 0) {
+                block.writeVarLong(zigzag(epochSeconds[0]));
+                for (int i = 1; i < count; i++) block.writeVarLong(epochSeconds[i] - epochSeconds[i - 1]);
+                int fractions = 0;
+                for (int i = 0; i < count; i++) if (nanos[i] != 0) fractions++;
+                block.writeVarLong(fractions);
+                for (int i = 0, previous = 0; i < count; i++) {
+                    if (nanos[i] == 0) continue;
+                    block.writeVarLong(i - previous);
+                    block.writeVarLong(nanos[i]);
+                    previous = i;
+                }
+            }
+            blockEntries++;
+            blockPassageCount += count;
+            passages += count;
+            count = 0;
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockEntries == 0) return;
+            Buffer payload = new Buffer();
+            payload.writeVarLong(blockEntries);
+            payload.write(block.bytes, 0, block.size);
+            crc.reset();
+            crc.update(payload.bytes, 0, payload.size);
+            out.writeInt(payload.size);
+            out.write(payload.bytes, 0, payload.size);
+            out.writeInt((int) crc.getValue());
+            block.size = 0;
+            blockEntries = 0;
+            blockPassageCount = 0;
+            blocks++;
+        }
+
+        /**
+         * Closes the output without the trailer, for an export that failed part way: reading the file then
+         * fails as truncated instead of returning the passages written so far as a complete snapshot.
+         */
+        public void abort() throws IOException {
+            out.close();
+        }
+
+        public Summary summary() {
+            return new Summary(vehicles, passages, blocks);
+        }
+
+        @Override
+        public void close() throws IOException {
+            endVehicle();
+            flushBlock();
+            out.writeInt(0);
+            out.writeLong(vehicles);
+            out.writeLong(passages);
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot block by block.
+     *
+     * @throws IOException if the file is not a snapshot, is truncated or a block fails its checksum
+     */
+    public static Summary read(InputStream in, BlockListener listener) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a passage snapshot");
+        int version = data.readUnsignedShort();
+        if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+        VehicleType[] types = new VehicleType[Math.toIntExact(readVarLong(data))];
+        for (int i = 0; i < types.length; i++) {
+            String name = readString(data);
+            types[i] = Arrays.stream(VehicleType.values()).filter(type -> type.name().equals(name)).findFirst()
+                    .orElseThrow(() -> new IOException("Unknown vehicle type " + name));
+        }
+
+        CRC32C crc = new CRC32C();
+        long vehicles = 0;
+        long passages = 0;
+        long blocks = 0;
+        String previous = null;
+        byte[] payload = new byte[0];
+        try {
+            while (true) {
+                int length = data.readInt();
+                if (length == 0) break;
+                if (length < 0) throw new IOException("Block " + blocks + " has a negative length");
+                if (payload.length < length) payload = new byte[length];
+                data.readFully(payload, 0, length);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if (data.readInt() != (int) crc.getValue())
+                    throw new IOException("Block " + blocks + " is corrupt: checksum mismatch");
+
+                DataInputStream block = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+                int entries = Math.toIntExact(readVarLong(block));
+                List<Vehicle> blockVehicles = new ArrayList<>(entries);
+                List<VehiclePassage> blockPassages = new ArrayList<>();
+                for (int e = 0; e < entries; e++) {
+                    String registration = readString(block);
+                    VehicleType type = types[Math.toIntExact(readVarLong(block))];
+                    long count = readVarLong(block);
+                    blockVehicles.add(new Vehicle(registration, type));
+                    if (!registration.equals(previous)) vehicles++;
+                    previous = registration;
+                    int first = blockPassages.size();
+                    long epochSecond = 0;
+                    for (long i = 0; i < count; i++) {
+                        epochSecond = i == 0 ? unzigzag(readVarLong(block)) : epochSecond + readVarLong(block);
+                        blockPassages.add(new VehiclePassage(registration, type, LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC)));
+                    }
+                    if (count > 0 && version > 1) {
+                        long fractions = readVarLong(block);
+                        for (long f = 0, index = 0; f < fractions; f++) {
+                            index += readVarLong(block);
+                            int nano = Math.toIntExact(readVarLong(block));
+                            if (index >= count || nano <= 0 || nano > 999_999_999)
+                                throw new IOException("Block " + blocks + " has an invalid fraction of a second");
+                            VehiclePassage passage = blockPassages.get(first + (int) index);
+                            blockPassages.set(first + (int) index,
+                                    new VehiclePassage(registration, type, passage.timestamp().withNano(nano)));
+                        }
+                    }
+                }
+                passages += blockPassages.size();
+                blocks++;
+                listener.block(blockVehicles, blockPassages);
+            }
+            long expectedVehicles = data.readLong();
+            long expectedPassages = data.readLong();
+            if (expectedVehicles != vehicles || expectedPassages != passages)
+                throw new IOException("Snapshot holds " + vehicles + " vehicles and " + passages
+                        + " passages but its trailer says " + expectedVehicles + " and " + expectedPassages);
+        } catch (EOFException e) {
+            throw new IOException("Snapshot is truncated after block " + blocks, e);
+        }
+        return new Summary(vehicles, passages, blocks);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[Math.toIntExact(readVarLong(in))];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Growable byte buffer with varint encoding.
+     */
+    private static final class Buffer {
+
+        private byte[] bytes = new byte[1 << 12];
+        private int size;
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+        }
+
+        private void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length);
+            write(encoded, 0, encoded.length);
+        }
+    }
+}
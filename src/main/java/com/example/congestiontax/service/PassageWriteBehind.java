@@ -0,0 +1,204 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Write-behind path for single passages ({@code congestion.ingest-queue.enabled}). Validated passages wait in a
+ * bounded queue, and one writer thread stores whatever has accumulated, up to {@code batch-size} passages, with
+ * one {@link PassageIngestionService#ingest} transaction, so concurrent callers share a commit. Passages are
+ * acknowledged before they are stored, so a failed batch is not given up on: transient database failures are
+ * retried {@code retries} times with doubling backoff, and a batch that still fails is stored one passage at a
+ * time. Only passages that fail on their own are dropped; they are counted and logged to the
+ * {@code ...PassageWriteBehind.dead-letter} logger. Duplicates are dropped silently. On shutdown the queue is
+ * drained before the datasource closes.
+ */
+@Service
+public class PassageWriteBehind {
+
+    private static final long POLL_MILLIS = 100;
+    private static final Logger logger = LoggerFactory.getLogger(PassageWriteBehind.class);
+    private static final Logger deadLetters = LoggerFactory.getLogger(PassageWriteBehind.class.getName() + ".dead-letter");
+
+    private final PassageIngestionService passageIngestionService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration retryAfter;
+    private final int retries;
+    private final Duration retryBackoff;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<VehiclePassage> queue;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Counter rejected;
+    private final Counter retried;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+    private final Timer commits;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public PassageWriteBehind(
+            PassageIngestionService passageIngestionService,
+            CongestionTaxProperties congestionTaxProperties,
+            MeterRegistry meterRegistry
+    ) {
+        CongestionTaxProperties.IngestQueue ingestQueue = congestionTaxProperties.getIngestQueue();
+        this.passageIngestionService = passageIngestionService;
+        this.enabled = ingestQueue.isEnabled();
+        this.batchSize = ingestQueue.getBatchSize();
+        this.retryAfter = ingestQueue.getRetryAfter();
+        this.retries = ingestQueue.getRetries();
+        this.retryBackoff = ingestQueue.getRetryBackoff();
+        this.shutdownTimeout = ingestQueue.getShutdownTimeout();
+        this.queue = new ArrayBlockingQueue<>(ingestQueue.getCapacity());
+
+        Gauge.builder("congestion.ingest_queue.depth", queue, BlockingQueue::size)
+                .description("Passages waiting to be stored")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("congestion.ingest_queue.rejected")
+                .description("Passages rejected because the queue was full")
+                .register(meterRegistry);
+        this.retried = Counter.builder("congestion.ingest_queue.retried")
+                .description("Store attempts retried after a transient database failure")
+                .register(meterRegistry);
+        this.failed = Counter.builder("congestion.ingest_queue.failed")
+                .description("Queued passages dropped because they could not be stored")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("congestion.ingest_queue.batch_size")
+                .description("Passages stored per transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commits = Timer.builder("congestion.ingest_queue.commit")
+                .description("Time to store one batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.writer = enabled ? Thread.ofPlatform().name("passage-writer").start(this::drain) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Queues a passage to be stored.
+     *
+     * @return the id of the queued passage, or empty if the queue is full
+     * @throws IllegalArgumentException if the passage cannot be stored
+     */
+    public OptionalLong submit(VehiclePassage passage) {
+        if (!enabled || !running) throw new IllegalStateException("Ingest queue is not accepting passages");
+        PassageIngestionService.validate(passage);
+        if (!queue.offer(passage)) {
+            rejected.increment();
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(sequence.incrementAndGet());
+    }
+
+    private void drain() {
+        List<VehiclePassage> batch = new ArrayList<>(batchSize);
+        while (true) {
+            VehiclePassage first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                running = false;
+                first = queue.poll();
+            }
+            if (first == null) {
+                if (!running) return;
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<VehiclePassage> batch) {
+        long start = System.nanoTime();
+        try {
+            if (store(batch)) return;
+            if (batch.size() == 1) {
+                deadLetter(batch.getFirst());
+                return;
+            }
+            logger.warn("Storing the {} passages of a failed batch one by one", batch.size());
+            for (VehiclePassage passage : batch) {
+                if (!store(List.of(passage))) deadLetter(passage);
+            }
+        } finally {
+            commits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+        }
+    }
+
+    /**
+     * @return whether {@code passages} were stored, retrying transient database failures with backoff
+     */
+    private boolean store(List<VehiclePassage> passages) {
+        Duration backoff = retryBackoff;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                passageIngestionService.ingest(passages);
+                return true;
+            } catch (RuntimeException e) {
+                if (!PassageIngestionService.isTransient(e) || attempt == retries) {
+                    logger.warn("Failed to store {} queued passages: {}", passages.size(), e.getMessage());
+                    return false;
+                }
+                retried.increment();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    // close() stopped waiting for the writer; finish this batch and let the writer stop.
+                    running = false;
+                }
+                backoff = backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private void deadLetter(VehiclePassage passage) {
+        failed.increment();
+        deadLetters.error("Dropped queued passage {} {} {}", passage.registration(), passage.type(), passage.timestamp());
+    }
+
+    /**
+     * Stops accepting passages and waits until the queued ones are stored.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (writer == null) return;
+        if (!writer.join(shutdownTimeout)) {
+            writer.interrupt();
+            logger.warn("Ingest queue not drained within {}, {} passages left", shutdownTimeout, queue.size());
+        }
+    }
+}
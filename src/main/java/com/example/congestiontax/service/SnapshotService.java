@@ -0,0 +1,74 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+
+/**
+ * Exports the vehicle and passage tables to a {@link PassageSnapshot} and loads one back.
+ */
+@Service
+@AllArgsConstructor
+public class SnapshotService {
+
+    private final PassageRepository passageRepository;
+    private final VehicleRepository vehicleRepository;
+    private final VehicleCache vehicleCache;
+    private final PassageIngestionService passageIngestionService;
+
+    /**
+     * Streams all passages, then the vehicles without passages, into {@code out} and closes it. If the export
+     * fails, {@code out} is closed without the snapshot trailer, so what was written cannot be imported.
+     */
+    @Transactional(readOnly = true)
+    public PassageSnapshot.Summary exportSnapshot(OutputStream out) throws IOException {
+        PassageSnapshot.Writer writer = new PassageSnapshot.Writer(out);
+        try (Stream<VehiclePassage> passages = passageRepository.streamAllVehiclePassages();
+             Stream<Vehicle> vehicles = vehicleRepository.streamVehiclesWithoutPassages()) {
+            for (Iterator<VehiclePassage> iterator = passages.iterator(); iterator.hasNext(); ) writer.add(iterator.next());
+            for (Iterator<Vehicle> iterator = vehicles.iterator(); iterator.hasNext(); ) writer.addVehicle(iterator.next());
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+        return writer.summary();
+    }
+
+    /**
+     * Loads a snapshot block by block through {@link PassageIngestionService#ingest}, one transaction per block,
+     * so the daily tax ledger is maintained as for any other ingestion. Rows that are already stored are kept,
+     * which makes an interrupted import safe to run again.
+     *
+     * @throws IOException if the snapshot is damaged; the blocks before the damaged one stay imported
+     */
+    public PassageSnapshot.Summary importSnapshot(InputStream in) throws IOException {
+        return PassageSnapshot.read(in, (vehicles, passages) -> {
+            if (!passages.isEmpty()) passageIngestionService.ingest(passages);
+
+            Set<String> withPassages = new HashSet<>();
+            for (VehiclePassage passage : passages) withPassages.add(passage.registration());
+            List<Vehicle> withoutPassages = vehicles.stream()
+                    .filter(vehicle -> !withPassages.contains(vehicle.getRegistration()))
+                    .toList();
+            if (!withoutPassages.isEmpty()) {
+                vehicleRepository.insertMissing(withoutPassages);
+                vehicleCache.invalidateUnknown(withoutPassages.stream().map(Vehicle::getRegistration).toList());
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.TariffVariant;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Holds the active {@link CompiledTariff}. The tariff is compiled once at startup, which also
+ * validates the configured time bands. A reload compiles the new tariff completely before it is
+ * published, so readers always see either the old or the new table, never a mix of both.
+ */
+@Component
+public class TariffProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(TariffProvider.class);
+
+    private final CongestionTaxProperties congestionTaxProperties;
+    private volatile CompiledTariff tariff;
+
+    public TariffProvider(CongestionTaxProperties congestionTaxProperties) {
+        this.congestionTaxProperties = congestionTaxProperties;
+        this.tariff = CompiledTariff.compile(congestionTaxProperties);
+    }
+
+    public CompiledTariff current() {
+        return tariff;
+    }
+
+    /**
+     * Recompiles the tariff from the current state of the bound properties.
+     * If the new configuration is invalid the previous tariff stays active.
+     */
+    public CompiledTariff reload() {
+        return reload(congestionTaxProperties);
+    }
+
+    /**
+     * Compiles {@code variant} without activating it; what the variant leaves out is taken from the configuration.
+     *
+     * @throws IllegalStateException if the resulting time bands are invalid
+     */
+    public CompiledTariff compile(TariffVariant variant) {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        properties.setMaxDailyCharge(variant.maxDailyCharge() != null
+                ? variant.maxDailyCharge() : congestionTaxProperties.getMaxDailyCharge());
+        properties.setTimeBands(variant.timeBands() != null
+                ? variant.timeBands() : congestionTaxProperties.getTimeBands());
+        return CompiledTariff.compile(properties);
+    }
+
+    public CompiledTariff reload(CongestionTaxProperties properties) {
+        CompiledTariff compiled = CompiledTariff.compile(properties);
+        tariff = compiled;
+        logger.info("Reloaded tariff for {} {}", properties.getCity(), properties.getYear());
+        return compiled;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.enums.ExemptionReason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Domain meters of the tax engine. All meters are registered up front, so recording on the per vehicle-day
+ * path is a single adder increment without a registry lookup.
+ * <ul>
+ *     <li>{@code congestion.tax.exemptions{reason}}: tax queries answered 0 by an exemption, once per vehicle for
+ *     {@code vehicle_type} and once per vehicle-day for the date reasons; ledger maintenance is not counted</li>
+ *     <li>{@code congestion.tax.passages}: passages read per tax request</li>
+ *     <li>{@code congestion.tax.for_all.vehicles}: vehicles totalled per for-all request</li>
+ *     <li>{@code congestion.ingestion.passages{result}}: ingested passages, accepted or duplicate</li>
+ * </ul>
+ */
+@Component
+public class TaxMetrics {
+
+    private final Map<ExemptionReason, Counter> exemptions = new EnumMap<>(ExemptionReason.class);
+    private final DistributionSummary passagesPerRequest;
+    private final DistributionSummary vehiclesPerForAll;
+    private final Counter acceptedPassages;
+    private final Counter duplicatePassages;
+
+    public TaxMetrics(MeterRegistry meterRegistry) {
+        for (ExemptionReason reason : ExemptionReason.values()) {
+            exemptions.put(reason, Counter.builder("congestion.tax.exemptions")
+                    .description("Vehicles or vehicle-days answered 0 by an exemption")
+                    .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.passagesPerRequest = DistributionSummary.builder("congestion.tax.passages")
+                .description("Passages read per tax request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.vehiclesPerForAll = DistributionSummary.builder("congestion.tax.for_all.vehicles")
+                .description("Vehicles totalled per for-all request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.acceptedPassages = ingestedPassages(meterRegistry, "accepted");
+        this.duplicatePassages = ingestedPassages(meterRegistry, "duplicate");
+    }
+
+    private static Counter ingestedPassages(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("congestion.ingestion.passages")
+                .description("Ingested passages")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public void exempt(ExemptionReason reason) {
+        exemptions.get(reason).increment();
+    }
+
+    public void passagesRead(long passages) {
+        passagesPerRequest.record(passages);
+    }
+
+    public void forAllEvaluated(long passages, long vehicles) {
+        passagesPerRequest.record(passages);
+        vehiclesPerForAll.record(vehicles);
+    }
+
+    /**
+     * Records a for-all request answered from the daily tax ledger, which reads no passages.
+     */
+    public void forAllSummedFromLedger(long vehicles) {
+        vehiclesPerForAll.record(vehicles);
+    }
+
+    public void passagesIngested(long accepted, long duplicates) {
+        acceptedPassages.increment(accepted);
+        duplicatePassages.increment(duplicates);
+    }
+}
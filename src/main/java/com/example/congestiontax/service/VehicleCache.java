@@ -0,0 +1,130 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.repository.VehicleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+
+/**
+ * Size-bounded cache of {@link VehicleRepository#findByRegistration} by registration. Vehicles practically never
+ * change, so known vehicles stay cached until evicted or changed through JPA (see {@link VehicleCacheListener});
+ * unknown registrations are remembered as unknown for {@code congestion.vehicle-cache.negative-ttl}.
+ * <p>
+ * Changes made inside a transaction are applied again after commit, so a concurrent miss that read the old
+ * row cannot leave it cached. Hit, miss and eviction counts are exported as the {@code cache.*} meters of
+ * cache {@code vehicles}.
+ */
+@Component
+public class VehicleCache {
+
+    private final VehicleRepository vehicleRepository;
+    private final Cache<String, Optional<VehicleType>> cache;
+
+    @Autowired
+    public VehicleCache(
+            VehicleRepository vehicleRepository,
+            CongestionTaxProperties congestionTaxProperties,
+            MeterRegistry meterRegistry
+    ) {
+        this(vehicleRepository, congestionTaxProperties.getVehicleCache(), Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "vehicles");
+    }
+
+    VehicleCache(VehicleRepository vehicleRepository, CongestionTaxProperties.VehicleCache properties, Ticker ticker) {
+        Duration negativeTtl = properties.getNegativeTtl();
+        this.vehicleRepository = vehicleRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(Expiry.<String, Optional<VehicleType>>writing((registration, type) ->
+                        type.isPresent() ? Duration.ofNanos(Long.MAX_VALUE) : negativeTtl))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Vehicle> findByRegistration(String registration) {
+        return cache.get(registration, key -> vehicleRepository.findByRegistration(key).map(Vehicle::getType))
+                .map(type -> new Vehicle(registration, type));
+    }
+
+    /**
+     * Looks up several registrations at once; the ones not cached are loaded with a single query.
+     *
+     * @return the known vehicles by registration
+     */
+    public Map<String, Vehicle> findAllByRegistration(Collection<String> registrations) {
+        Map<String, Optional<VehicleType>> types = cache.getAll(registrations, missing -> {
+            Map<String, Optional<VehicleType>> loaded = new HashMap<>();
+            missing.forEach(registration -> loaded.put(registration, Optional.empty()));
+            vehicleRepository.findByRegistrationIn(new ArrayList<>(missing))
+                    .forEach(vehicle -> loaded.put(vehicle.getRegistration(), Optional.of(vehicle.getType())));
+            return loaded;
+        });
+
+        Map<String, Vehicle> vehicles = new HashMap<>();
+        types.forEach((registration, type) ->
+                type.ifPresent(vehicleType -> vehicles.put(registration, new Vehicle(registration, vehicleType))));
+        return vehicles;
+    }
+
+    public void put(Vehicle vehicle) {
+        String registration = vehicle.getRegistration();
+        Optional<VehicleType> type = Optional.of(vehicle.getType());
+        cache.invalidate(registration);
+        afterCommit(() -> cache.put(registration, type));
+    }
+
+    public void invalidate(String registration) {
+        cache.invalidate(registration);
+        afterCommit(() -> cache.invalidate(registration));
+    }
+
+    /**
+     * Forgets that {@code registrations} were unknown, e.g. after inserting the missing ones with plain JDBC.
+     * Cached known vehicles are kept, since inserting a vehicle that exists leaves it unchanged.
+     */
+    public void invalidateUnknown(Iterable<String> registrations) {
+        removeUnknown(registrations);
+        afterCommit(() -> removeUnknown(registrations));
+    }
+
+    private void removeUnknown(Iterable<String> registrations) {
+        for (String registration : registrations) cache.asMap().remove(registration, Optional.empty());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+
+
+/**
+ * Groups passages ordered by (registration, timestamp) into vehicle-days without materializing them.
+ * Only the passages of the current vehicle-day are buffered, as seconds of day.
+ */
+public final class VehicleDayFold {
+
+    public interface Listener {
+
+        /**
+         * Called once per vehicle-day. {@code secondsOfDay} is a reused buffer that is only valid during the call.
+         */
+        void vehicleDay(String registration, VehicleType type, LocalDate date, int[] secondsOfDay, int count);
+
+        /**
+         * Called after the last vehicle-day of a vehicle.
+         */
+        default void vehicleEnd(String registration, VehicleType type) {
+        }
+    }
+
+    private VehicleDayFold() {
+    }
+
+    public static void fold(Iterator<VehiclePassage> passages, Listener listener) {
+        int[] secondsOfDay = new int[16];
+        int count = 0;
+        String registration = null;
+        VehicleType type = null;
+        LocalDate date = null;
+
+        while (passages.hasNext()) {
+            VehiclePassage passage = passages.next();
+            LocalDateTime timestamp = passage.timestamp();
+            LocalDate passageDate = timestamp.toLocalDate();
+
+            if (!passage.registration().equals(registration)) {
+                if (registration != null) {
+                    listener.vehicleDay(registration, type, date, secondsOfDay, count);
+                    listener.vehicleEnd(registration, type);
+                }
+                registration = passage.registration();
+                type = passage.type();
+                date = passageDate;
+                count = 0;
+            } else if (!passageDate.equals(date)) {
+                listener.vehicleDay(registration, type, date, secondsOfDay, count);
+                date = passageDate;
+                count = 0;
+            }
+
+            if (count == secondsOfDay.length) secondsOfDay = Arrays.copyOf(secondsOfDay, count * 2);
+            secondsOfDay[count++] = timestamp.toLocalTime().toSecondOfDay();
+        }
+
+        if (registration != null) {
+            listener.vehicleDay(registration, type, date, secondsOfDay, count);
+            listener.vehicleEnd(registration, type);
+        }
+    }
+}
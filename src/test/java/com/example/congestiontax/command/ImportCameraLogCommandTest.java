@@ -0,0 +1,82 @@
+package com.example.congestiontax.command;
+
+import com.example.congestiontax.model.DailyTax;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import com.example.congestiontax.service.PassageIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+@SpringBootTest(properties = "congestion.ledger.enabled=true")
+@ActiveProfiles("test")
+class ImportCameraLogCommandTest {
+
+    private static final String REGISTRATION = "GB-9271-0";
+    // 8 SEK each and more than an hour apart, so a day missing a passage totals less than the 60 SEK cap.
+    private static final List<LocalTime> TIMES = List.of(
+            LocalTime.of(6, 5), LocalTime.of(9, 10), LocalTime.of(11, 15), LocalTime.of(13, 20), LocalTime.of(18, 10));
+
+    @TempDir
+    private Path tempDir;
+
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private DailyTaxRepository dailyTaxRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        dailyTaxRepository.deleteAll();
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    void testDaysSpanningChunksGetTheSameLedgerAsARebuild() throws Exception {
+        StringBuilder content = new StringBuilder();
+        LocalDate first = LocalDate.of(2013, 2, 1);
+        for (int day = 0; day < 28; day++) {
+            for (LocalTime time : TIMES) content.append(first.plusDays(day).atTime(time).toString().replace('T', ' ')).append(":00\n");
+        }
+        Path file = Files.writeString(tempDir.resolve("camera.log"), content);
+
+        // 256-byte chunks hold 12 or 13 of the 20-byte lines, so most days are split between two parser threads.
+        new ImportCameraLogCommand(passageIngestionService).run(new DefaultApplicationArguments(
+                "--file=" + file, "--registration=" + REGISTRATION, "--threads=4", "--chunk-size=256"));
+
+        assertEquals(28 * TIMES.size(), passageRepository.count());
+        Map<LocalDate, Integer> imported = ledger();
+        assertTrue(imported.containsValue(40));
+        congestionTaxCalculatorService.rebuildDailyTaxLedger();
+        assertEquals(ledger(), imported);
+    }
+
+    private Map<LocalDate, Integer> ledger() {
+        return dailyTaxRepository.findAll().stream().collect(Collectors.toMap(DailyTax::getDate, DailyTax::getAmount));
+    }
+}
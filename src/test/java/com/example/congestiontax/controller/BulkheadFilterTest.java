@@ -0,0 +1,109 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class BulkheadFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BulkheadFilter bulkheadFilter = bulkheadFilter(false);
+
+    @Test
+    void testAdmittedRequestReportsQueueWait() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bulkheadFilter.doFilter(apiRequest(), response, (request, res) -> ((MockHttpServletResponse) res).setStatus(200));
+
+        assertEquals(200, response.getStatus());
+        assertTrue(response.getHeader("Server-Timing").startsWith("queue;dur="));
+        assertEquals(1, meterRegistry.get("congestion.bulkhead.wait").timer().count());
+        assertEquals(1.0, meterRegistry.get("congestion.bulkhead.available").gauge().value());
+    }
+
+    @Test
+    void testRequestBeyondCapacityIsRejectedAfterMaxWait() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blockingChain = (request, response) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                bulkheadFilter.doFilter(apiRequest(), new MockHttpServletResponse(), blockingChain);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bulkheadFilter.doFilter(apiRequest(), response, (request, res) -> {
+            throw new AssertionError("Request should not be admitted");
+        });
+        release.countDown();
+        holder.join();
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("congestion.bulkhead.rejected").counter().count());
+        assertTrue(meterRegistry.get("congestion.bulkhead.wait").timer().max(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void testNonApiRequestsBypassBulkhead() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/health");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bulkheadFilter.doFilter(request, response, (req, res) -> {
+        });
+
+        assertNull(response.getHeader("Server-Timing"));
+    }
+
+    @Test
+    void testRequestsWithoutDatabaseConnectionBypassBulkhead() throws Exception {
+        BulkheadFilter queuingFilter = bulkheadFilter(true);
+        for (MockHttpServletRequest request : List.of(
+                new MockHttpServletRequest("GET", "/api/congestion/cluster/calculateYearlyTaxForAll"),
+                new MockHttpServletRequest("POST", "/api/congestion/addPassage"))) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            queuingFilter.doFilter(request, response, (req, res) -> {
+            });
+            assertNull(response.getHeader("Server-Timing"), request.getRequestURI());
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bulkheadFilter.doFilter(new MockHttpServletRequest("POST", "/api/congestion/addPassage"), response, (req, res) -> {
+        });
+        assertTrue(response.getHeader("Server-Timing").startsWith("queue;dur="));
+    }
+
+    private BulkheadFilter bulkheadFilter(boolean ingestQueue) {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        properties.getBulkhead().setMaxConcurrent(1);
+        properties.getBulkhead().setMaxWait(Duration.ofMillis(50));
+        properties.getIngestQueue().setEnabled(ingestQueue);
+        return new BulkheadFilter(properties, null, meterRegistry);
+    }
+
+    private static MockHttpServletRequest apiRequest() {
+        return new MockHttpServletRequest("GET", "/api/congestion/calculateDailyTax");
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.dto.TaxTotals;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import com.example.congestiontax.service.PassageIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Runs a three-node cluster on localhost in which only this application answers: the first node refuses
+ * connections and the second never answers in time, so their partitions have to move on to the next node.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@ActiveProfiles("test")
+class ClusterControllerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 7);
+    private static final int PORT = freePort();
+    private static final int DEAD_PORT = freePort();
+    private static final HttpServer SLOW_NODE = slowNode();
+
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private DailyTaxRepository dailyTaxRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @DynamicPropertySource
+    static void clusterProperties(DynamicPropertyRegistry registry) {
+        registry.add("server.port", () -> PORT);
+        registry.add("congestion.cluster.nodes", () -> "http://localhost:" + DEAD_PORT
+                + ",http://localhost:" + SLOW_NODE.getAddress().getPort() + ",http://localhost:" + PORT);
+        registry.add("congestion.cluster.partitions", () -> 6);
+        registry.add("congestion.cluster.timeout", () -> "1s");
+    }
+
+    @AfterAll
+    static void stopSlowNode() {
+        SLOW_NODE.stop(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        dailyTaxRepository.deleteAll();
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        List<VehiclePassage> passages = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            VehicleType type = i % 10 == 0 ? VehicleType.BUS : VehicleType.CAR;
+            passages.add(new VehiclePassage("CL-" + i, type, DAY.plusDays(i % 5).atTime(6 + i % 12, i % 60)));
+            passages.add(new VehiclePassage("CL-" + i, type, DAY.plusDays(i % 5).atTime(15, 10)));
+        }
+        passageIngestionService.ingest(passages);
+    }
+
+    @Test
+    void testPartitionsSplitTheVehicles() {
+        TaxTotals all = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(DAY, DAY.plusDays(5));
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            RegistrationPartition partition = new RegistrationPartition(i, 4);
+            TaxTotals part = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(DAY, DAY.plusDays(5), partition);
+            assertTrue(part.size() > 0 && part.size() < all.size(), partition + " holds " + part.size() + " vehicles");
+            part.forEach((registration, tax) -> {
+                assertTrue(partition.contains(registration));
+                assertTrue(seen.add(registration));
+                assertEquals(all.get(registration), tax);
+            });
+        }
+        assertEquals(all.size(), seen.size());
+        assertEquals(RegistrationPartition.parse("3/4"), new RegistrationPartition(3, 4));
+    }
+
+    @Test
+    void testPartitionsAreHashRangesStoredWithTheVehicles() {
+        for (int count : new int[]{1, 3, 4, 7}) {
+            for (int i = 0; i < 60; i++) {
+                long hash = RegistrationPartition.hash("CL-" + i);
+                for (int index = 0; index < count; index++) {
+                    RegistrationPartition partition = new RegistrationPartition(index, count);
+                    assertEquals(partition.contains("CL-" + i), hash >= partition.fromHash() && hash < partition.toHash());
+                }
+            }
+        }
+        assertEquals(1L << 32, new RegistrationPartition(2, 3).toHash());
+
+        vehicleRepository.save(new Vehicle("CL-JPA", VehicleType.CAR));
+        for (String registration : List.of("CL-7", "CL-JPA")) {
+            assertEquals(RegistrationPartition.hash(registration), jdbcTemplate.queryForObject(
+                    "select partition_hash from vehicle where registration = ?", Long.class, registration));
+        }
+    }
+
+    @Test
+    void testFailedAndSlowPartitionsMoveToAnotherNode() throws Exception {
+        double retriesBefore = meterRegistry.counter("congestion.cluster.partition_retries").count();
+        TaxTotals expected = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(
+                LocalDate.of(2013, 1, 1), LocalDate.of(2014, 1, 1));
+
+        HttpResponse<String> json = get("/api/congestion/cluster/calculateYearlyTaxForAll?year=2013", MediaType.APPLICATION_JSON_VALUE);
+        assertEquals(200, json.statusCode(), json.body());
+        assertEquals(objectMapper.writeValueAsString(expected), json.body());
+        // Partitions 0 and 3 go dead -> slow -> this node, 1 and 4 go slow -> this node.
+        assertEquals(6, meterRegistry.counter("congestion.cluster.partition_retries").count() - retriesBefore);
+
+        HttpResponse<String> ndjson = get("/api/congestion/cluster/calculateYearlyTaxForAll?year=2013", MediaType.APPLICATION_NDJSON_VALUE);
+        assertEquals(200, ndjson.statusCode(), ndjson.body());
+        Set<String> rows = new HashSet<>(ndjson.body().lines().toList());
+        Set<String> expectedRows = new HashSet<>();
+        expected.forEach((registration, tax) -> expectedRows.add("{\"registration\":\"" + registration + "\",\"tax\":" + tax + "}"));
+        assertEquals(expectedRows, rows);
+    }
+
+    private HttpResponse<String> get(String path, String accept) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).header("Accept", accept).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static HttpServer slowNode() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/", exchange -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, 2);
+                exchange.getResponseBody().write("{}".getBytes());
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
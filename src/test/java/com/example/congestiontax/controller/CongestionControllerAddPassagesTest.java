@@ -0,0 +1,104 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CongestionControllerAddPassagesTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        Vehicle car = vehicleRepository.save(new Vehicle("GB-9271-0", VehicleType.CAR));
+        passageRepository.save(new Passage(null, car, LocalDateTime.of(2013, 2, 8, 6, 27)));
+    }
+
+    @Test
+    void testAddPassagesJson() throws Exception {
+        mockMvc.perform(post("/api/congestion/addPassages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                  {"vehicle": {"registration": "GB-9271-0", "type": "CAR"}, "timestamp": "2013-02-08T06:27:00"},
+                                  {"vehicle": {"registration": "GB-9271-0", "type": "CAR"}, "timestamp": "2013-02-08T15:47:00"},
+                                  {"vehicle": {"registration": "G-2014-ZG", "type": "CAR"}, "timestamp": "2013-02-08T16:01:00"},
+                                  {"vehicle": {"registration": "G-2014-ZG", "type": "CAR"}, "timestamp": "2013-02-08T16:01:00"}
+                                ]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"received\":4,\"accepted\":2,\"duplicates\":2}"));
+
+        assertEquals(3, passageRepository.count());
+        assertEquals(2, vehicleRepository.count());
+    }
+
+    @Test
+    void testAddPassagesNdjson() throws Exception {
+        mockMvc.perform(post("/api/congestion/addPassages")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"vehicle": {"registration": "EM9999", "type": "EMERGENCY"}, "timestamp": "2013-02-08T07:30:00"}
+                                {"vehicle": {"registration": "GB-9271-0", "type": "CAR"}, "timestamp": "2013-02-08T06:27:00"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"received\":2,\"accepted\":1,\"duplicates\":1}"));
+
+        assertEquals(VehicleType.EMERGENCY, vehicleRepository.findByRegistration("EM9999").orElseThrow().getType());
+    }
+
+    @Test
+    void testAddPassagesCsv() throws Exception {
+        mockMvc.perform(post("/api/congestion/addPassages")
+                        .contentType(CongestionController.TEXT_CSV_VALUE)
+                        .content("""
+                                registration,type,timestamp
+                                GB-9271-0,CAR,2013-02-08 06:27:00
+                                GB-9271-0,car,2013-02-08 14:35:00
+                                HV-1441-MM,MILITARY,2013-02-08T08:00:00
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"received\":3,\"accepted\":2,\"duplicates\":1}"));
+
+        assertEquals(3, passageRepository.count());
+    }
+
+    @Test
+    void testAddPassagesRejectsInvalidRows() throws Exception {
+        mockMvc.perform(post("/api/congestion/addPassages")
+                        .contentType(CongestionController.TEXT_CSV_VALUE)
+                        .content("GB-9271-0,TRUCK,2013-02-08 06:27:00\n"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(1, passageRepository.count());
+    }
+}
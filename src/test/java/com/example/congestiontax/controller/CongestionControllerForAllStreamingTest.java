@@ -0,0 +1,96 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.json.JsonCompareMode;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CongestionControllerForAllStreamingTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        Vehicle car = vehicleRepository.save(new Vehicle("GB-9271-0", VehicleType.CAR));
+        Vehicle otherCar = vehicleRepository.save(new Vehicle("G-2014-ZG", VehicleType.CAR));
+        Vehicle bus = vehicleRepository.save(new Vehicle("EM9999", VehicleType.BUS));
+        passageRepository.saveAll(List.of(
+                new Passage(null, car, DAY.atTime(6, 27)),
+                new Passage(null, car, DAY.atTime(15, 47)),
+                new Passage(null, car, DAY.minusDays(1).atTime(7, 10)),
+                new Passage(null, otherCar, DAY.atTime(16, 1)),
+                new Passage(null, bus, DAY.atTime(7, 30))
+        ));
+    }
+
+    @Test
+    void testCalculateYearlyTaxForAllNdjson() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateYearlyTaxForAll")
+                        .param("year", "2013")
+                        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"registration":"EM9999","tax":0}
+                        {"registration":"G-2014-ZG","tax":18}
+                        {"registration":"GB-9271-0","tax":44}
+                        """));
+    }
+
+    @Test
+    void testCalculateDailyTaxForAllCsv() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateDailyTaxForAll")
+                        .param("date", DAY.toString())
+                        .header(HttpHeaders.ACCEPT, CongestionController.TEXT_CSV_VALUE + ", */*;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("""
+                        registration,tax
+                        EM9999,0
+                        G-2014-ZG,18
+                        GB-9271-0,26
+                        """));
+    }
+
+    @Test
+    void testCalculateMonthlyTaxForAllDefaultsToJson() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateMonthlyTaxForAll")
+                        .param("month", "2")
+                        .param("year", "2013")
+                        .header(HttpHeaders.ACCEPT, "*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"GB-9271-0\":44,\"G-2014-ZG\":18,\"EM9999\":0}", JsonCompareMode.STRICT));
+    }
+}
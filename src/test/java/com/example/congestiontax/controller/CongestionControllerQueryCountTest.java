@@ -0,0 +1,223 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.json.JsonCompareMode;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+/**
+ * Guards the number of SQL statements each read endpoint issues, so entity hydration or
+ * extra vehicle selects cannot creep back into the tax calculation paths. The vehicles saved
+ * in {@link #setUp()} are already in the vehicle cache, so single-vehicle queries only read passages.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CongestionControllerQueryCountTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        Vehicle car = vehicleRepository.save(new Vehicle("GB-9271-0", VehicleType.CAR));
+        Vehicle otherCar = vehicleRepository.save(new Vehicle("G-2014-ZG", VehicleType.CAR));
+        Vehicle bus = vehicleRepository.save(new Vehicle("EM9999", VehicleType.BUS));
+        passageRepository.saveAll(List.of(
+                new Passage(null, car, DAY.atTime(6, 27)),
+                new Passage(null, car, DAY.atTime(15, 47)),
+                new Passage(null, car, DAY.minusDays(1).atTime(7, 10)),
+                new Passage(null, otherCar, DAY.atTime(16, 1)),
+                new Passage(null, bus, DAY.atTime(7, 30))
+        ));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testCalculateDailyTax() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateDailyTax")
+                        .param("registration", "GB-9271-0")
+                        .param("date", DAY.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("26"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateDailyTaxOnExemptDate() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateDailyTax")
+                        .param("registration", "GB-9271-0")
+                        .param("date", "2013-02-09"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0"));
+
+        assertStatements(0);
+    }
+
+    @Test
+    void testCalculateDailyTaxForExemptVehicle() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateDailyTax")
+                        .param("registration", "EM9999")
+                        .param("date", DAY.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0"));
+
+        assertStatements(0);
+    }
+
+    @Test
+    void testUnknownVehicleIsLookedUpOnce() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/congestion/calculateDailyTax")
+                            .param("registration", "UNKNOWN")
+                            .param("date", DAY.toString()))
+                    .andExpect(status().isBadRequest());
+        }
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateMonthlyTax() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateMonthlyTax")
+                        .param("registration", "GB-9271-0")
+                        .param("month", "2")
+                        .param("year", "2013"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("44"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateYearlyTax() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateYearlyTax")
+                        .param("registration", "GB-9271-0")
+                        .param("year", "2013"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("44"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateDailyTaxForAll() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateDailyTaxForAll")
+                        .param("date", DAY.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"GB-9271-0\":26,\"G-2014-ZG\":18,\"EM9999\":0}"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateMonthlyTaxForAll() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateMonthlyTaxForAll")
+                        .param("month", "2")
+                        .param("year", "2013"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"GB-9271-0\":44,\"G-2014-ZG\":18,\"EM9999\":0}"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateYearlyTaxForAll() throws Exception {
+        mockMvc.perform(get("/api/congestion/calculateYearlyTaxForAll")
+                        .param("year", "2013"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"GB-9271-0\":44,\"G-2014-ZG\":18,\"EM9999\":0}"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void testCalculateTaxBatch() throws Exception {
+        mockMvc.perform(post("/api/congestion/calculateTax")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"registration":"GB-9271-0","period":"2013-02-08"},
+                                 {"registration":"GB-9271-0","period":"2013-02"},
+                                 {"registration":"G-2014-ZG","period":"2013"},
+                                 {"registration":"EM9999","period":"2013"},
+                                 {"registration":"NOT-REGISTERED","period":"2013"},
+                                 {"registration":"GB-9271-0","period":"2013-13"},
+                                 {"registration":"GB-9271-0","period":"2020"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [{"registration":"GB-9271-0","period":"2013-02-08","tax":26},
+                         {"registration":"GB-9271-0","period":"2013-02","tax":44},
+                         {"registration":"G-2014-ZG","period":"2013","tax":18},
+                         {"registration":"EM9999","period":"2013","tax":0},
+                         {"registration":"NOT-REGISTERED","period":"2013","error":"Vehicle not found"},
+                         {"registration":"GB-9271-0","period":"2013-13","error":"Invalid period, expected yyyy, yyyy-MM or yyyy-MM-dd"},
+                         {"registration":"GB-9271-0","period":"2020","error":"No public holidays for SE 2020 (publicholiday.SE.2020.csv)"}]
+                        """, JsonCompareMode.STRICT));
+
+        // One select for the uncached NOT-REGISTERED registration and one passage query for both cars.
+        assertStatements(2);
+    }
+
+    @Test
+    void testCalculateTaxBatchReadsDisjointPeriodsSeparately() throws Exception {
+        mockMvc.perform(post("/api/congestion/calculateTax")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"registration":"GB-9271-0","period":"2013-02"},
+                                 {"registration":"G-2014-ZG","period":"2013-12"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [{"registration":"GB-9271-0","period":"2013-02","tax":44},
+                         {"registration":"G-2014-ZG","period":"2013-12","tax":0}]
+                        """, JsonCompareMode.STRICT));
+
+        // One passage query per period instead of one over February to December for both cars.
+        assertStatements(2);
+    }
+
+    private void assertStatements(long expected) {
+        assertEquals(expected, statistics.getPrepareStatementCount(), "Prepared SQL statements");
+        assertEquals(0, statistics.getEntityStatistics(Passage.class.getName()).getLoadCount(), "Hydrated passages");
+    }
+}
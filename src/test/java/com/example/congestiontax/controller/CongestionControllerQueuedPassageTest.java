@@ -0,0 +1,65 @@
+package com.example.congestiontax.controller;
+
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@SpringBootTest(properties = "congestion.ingest-queue.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CongestionControllerQueuedPassageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    void testAddPassageIsAcceptedAndStoredBehind() throws Exception {
+        for (String time : new String[]{"06:27", "15:47", "15:47"}) {
+            mockMvc.perform(post("/api/congestion/addPassage")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"vehicle\": {\"registration\": \"GB-9271-0\", \"type\": \"CAR\"}, \"timestamp\": \"2013-02-08T" + time + ":00\"}"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.id").isNumber());
+        }
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (passageRepository.count() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, passageRepository.count());
+        assertEquals(1, vehicleRepository.count());
+    }
+
+    @Test
+    void testInvalidPassageIsRejected() throws Exception {
+        mockMvc.perform(post("/api/congestion/addPassage")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"vehicle\": {\"registration\": \"GB-9271-0\"}, \"timestamp\": \"2013-02-08T06:27:00\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("vehicle type is missing"));
+    }
+}
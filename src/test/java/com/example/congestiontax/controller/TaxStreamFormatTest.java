@@ -0,0 +1,45 @@
+package com.example.congestiontax.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TaxStreamFormatTest {
+
+    private final IllegalStateException failure = new IllegalStateException("database gone");
+
+    @Test
+    void testFailureBeforeFirstRowResetsTheResponse() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> TaxStreamFormat.CSV.stream(response, sink -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, exception);
+        assertFalse(response.isCommitted());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    void testFailureAfterFirstRowAbortsTheResponse() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        StreamAbortedException exception = assertThrows(StreamAbortedException.class,
+                () -> TaxStreamFormat.NDJSON.stream(response, sink -> {
+                    sink.accept("GB-9271-0", 44);
+                    throw failure;
+                }));
+
+        assertSame(failure, exception.getCause());
+        assertTrue(response.isCommitted());
+        assertEquals("{\"registration\":\"GB-9271-0\",\"tax\":44}\n", response.getContentAsString());
+    }
+}
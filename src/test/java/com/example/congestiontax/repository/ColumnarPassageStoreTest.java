@@ -0,0 +1,118 @@
+package com.example.congestiontax.repository;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.service.CongestionTaxCalculatorService;
+import com.example.congestiontax.service.PassageIngestionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+
+@SpringBootTest(properties = "congestion.passage-store.type=columnar")
+@ActiveProfiles("test")
+class ColumnarPassageStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    @Autowired
+    private ColumnarPassageStore columnarPassageStore;
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        Vehicle car = vehicleRepository.save(new Vehicle("GB-9271-0", VehicleType.CAR));
+        Vehicle bus = vehicleRepository.save(new Vehicle("EM9999", VehicleType.BUS));
+        passageRepository.saveAll(List.of(
+                new Passage(null, car, DAY.atTime(6, 27)),
+                new Passage(null, car, DAY.minusDays(1).atTime(7, 10)),
+                new Passage(null, bus, DAY.atTime(7, 30))
+        ));
+        columnarPassageStore.reload();
+    }
+
+    @Test
+    void testReloadSlicesRangesPerVehicle() {
+        assertEquals(3, columnarPassageStore.size());
+        assertEquals(List.of(DAY.atTime(6, 27)), columnarPassageStore.findTimestampsByRegistrationBetween(
+                "GB-9271-0", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()));
+        assertEquals(List.of(
+                        new VehiclePassage("EM9999", VehicleType.BUS, DAY.atTime(7, 30)),
+                        new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(6, 27))),
+                columnarPassageStore.streamVehiclePassagesBetween(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()).toList());
+        assertEquals(3 * Long.BYTES + 2 * ColumnarPassageStore.VEHICLE_OVERHEAD_BYTES + "GB-9271-0EM9999".length(),
+                columnarPassageStore.estimatedBytes());
+    }
+
+    @Test
+    void testReloadDoesNotChangeWhatRunningQueriesSee() {
+        Iterator<VehiclePassage> running = columnarPassageStore.streamVehiclePassagesBetween(
+                DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()).iterator();
+        assertEquals(new VehiclePassage("EM9999", VehicleType.BUS, DAY.atTime(7, 30)), running.next());
+
+        passageRepository.save(new Passage(null, vehicleRepository.findByRegistration("GB-9271-0").orElseThrow(), DAY.atTime(8, 0)));
+        columnarPassageStore.reload();
+
+        assertEquals(new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(6, 27)), running.next());
+        assertFalse(running.hasNext());
+        assertEquals(4, columnarPassageStore.size());
+        assertEquals(List.of(DAY.atTime(6, 27), DAY.atTime(8, 0)), columnarPassageStore.findTimestampsByRegistrationBetween(
+                "GB-9271-0", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()));
+    }
+
+    @Test
+    void testWritesThroughTheServicesAreMergedAfterCommit() throws Exception {
+        congestionTaxCalculatorService.saveNewPassage(
+                new Passage(null, new Vehicle("GB-9271-0", VehicleType.CAR), DAY.atTime(15, 47)));
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(6, 27)),
+                new VehiclePassage("G-2014-ZG", VehicleType.CAR, DAY.atTime(16, 1))
+        ));
+
+        assertEquals(5, columnarPassageStore.size());
+        assertEquals(List.of(
+                        new VehiclePassage("G-2014-ZG", VehicleType.CAR, DAY.atTime(16, 1)),
+                        new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(6, 27)),
+                        new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(15, 47))),
+                columnarPassageStore.streamVehiclePassagesByRegistrationsBetween(
+                        List.of("GB-9271-0", "G-2014-ZG", "UNKNOWN"), DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()).toList());
+    }
+
+    @Test
+    void testTaxQueriesDoNotReadPassagesFromTheDatabase() throws Exception {
+        congestionTaxCalculatorService.calculateDailyTax("GB-9271-0", DAY);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(8, congestionTaxCalculatorService.calculateDailyTax("GB-9271-0", DAY));
+        assertEquals(26, congestionTaxCalculatorService.calculateTaxBetweenDates("GB-9271-0", DAY.minusDays(1), DAY.plusDays(1)));
+        assertEquals(26, congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(DAY.minusDays(1), DAY.plusDays(1)).get("GB-9271-0"));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
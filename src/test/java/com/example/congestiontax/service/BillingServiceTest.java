@@ -0,0 +1,114 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.BillingCheckpoint;
+import com.example.congestiontax.model.Invoice;
+import com.example.congestiontax.model.dto.BillingRun;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.BillingCheckpointRepository;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.InvoiceRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+@SpringBootTest(properties = {"congestion.billing.chunk-size=2", "congestion.billing.parallelism=2"})
+@ActiveProfiles("test")
+class BillingServiceTest {
+
+    private static final YearMonth FEBRUARY = YearMonth.of(2013, 2);
+    private static final LocalDate THURSDAY = LocalDate.of(2013, 2, 7);
+
+    @Autowired
+    private BillingService billingService;
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    @Autowired
+    private BillingCheckpointRepository billingCheckpointRepository;
+    @Autowired
+    private DailyTaxRepository dailyTaxRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        invoiceRepository.deleteAll();
+        billingCheckpointRepository.deleteAll();
+        dailyTaxRepository.deleteAll();
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        // BILL-2 only drives on a Saturday, BILL-3 is exempt and BILL-5 only drives in March: no invoices.
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage("BILL-1", VehicleType.CAR, THURSDAY.atTime(7, 30)),
+                new VehiclePassage("BILL-1", VehicleType.CAR, THURSDAY.plusDays(1).atTime(15, 10)),
+                new VehiclePassage("BILL-2", VehicleType.CAR, THURSDAY.plusDays(2).atTime(7, 30)),
+                new VehiclePassage("BILL-3", VehicleType.BUS, THURSDAY.atTime(7, 30)),
+                new VehiclePassage("BILL-4", VehicleType.CAR, THURSDAY.atTime(6, 20)),
+                new VehiclePassage("BILL-5", VehicleType.CAR, THURSDAY.plusMonths(1).atTime(7, 30)),
+                new VehiclePassage("BILL-6", VehicleType.CAR, THURSDAY.plusDays(5).atTime(16, 0))
+        ));
+    }
+
+    @Test
+    void testEveryTaxableVehicleIsInvoicedOnce() throws Exception {
+        BillingRun run = billingService.billMonth(FEBRUARY);
+
+        List<Invoice> invoices = invoiceRepository.findByBillingMonthOrderByRegistration(FEBRUARY.atDay(1));
+        assertEquals(List.of("BILL-1", "BILL-4", "BILL-6"), invoices.stream().map(Invoice::getRegistration).toList());
+        for (Invoice invoice : invoices) {
+            assertEquals(congestionTaxCalculatorService.calculateTaxBetweenDates(
+                    invoice.getRegistration(), FEBRUARY.atDay(1), FEBRUARY.plusMonths(1).atDay(1)), invoice.getAmount());
+        }
+        int total = invoices.stream().mapToInt(Invoice::getAmount).sum();
+        assertTrue(total > 0);
+        assertEquals(new BillingRun(FEBRUARY, 6, 3, 3, total, null), run);
+
+        BillingCheckpoint checkpoint = billingCheckpointRepository.findById(FEBRUARY.atDay(1)).orElseThrow();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals("BILL-6", checkpoint.getLastRegistration());
+        assertEquals(6, checkpoint.getVehicles());
+
+        // A completed month is not billed again.
+        assertEquals(new BillingRun(FEBRUARY, 0, 0, 3, total, "BILL-6"), billingService.billMonth(FEBRUARY));
+    }
+
+    @Test
+    void testInterruptedRunResumesAfterTheCheckpoint() throws Exception {
+        LocalDate billingMonth = FEBRUARY.atDay(1);
+        LocalDateTime issuedAt = LocalDateTime.of(2013, 3, 1, 2, 0);
+        // The run stopped after BILL-2, while the chunk holding BILL-4 had already committed.
+        billingCheckpointRepository.save(new BillingCheckpoint(billingMonth, "BILL-2", 2, false, issuedAt));
+        invoiceRepository.save(new Invoice("BILL-1", billingMonth, 8, issuedAt));
+        invoiceRepository.save(new Invoice("BILL-4", billingMonth, 8, issuedAt));
+
+        BillingRun run = billingService.billMonth(FEBRUARY);
+
+        assertEquals("BILL-2", run.resumedAfter());
+        assertEquals(4, run.vehicles());
+        assertEquals(2, run.chunks());
+        List<Invoice> invoices = invoiceRepository.findByBillingMonthOrderByRegistration(billingMonth);
+        assertEquals(List.of("BILL-1", "BILL-4", "BILL-6"), invoices.stream().map(Invoice::getRegistration).toList());
+        assertEquals(issuedAt, invoices.get(1).getIssuedAt());
+        assertEquals(6, billingCheckpointRepository.findById(billingMonth).orElseThrow().getVehicles());
+    }
+}
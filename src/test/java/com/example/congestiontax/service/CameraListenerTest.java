@@ -0,0 +1,188 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.IngestionResult;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+@Timeout(30)
+class CameraListenerTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2013, 2, 8, 6, 27);
+    private static final String UNSTORABLE = "BAD999";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<VehiclePassage>> batches = new CopyOnWriteArrayList<>();
+    private volatile boolean failing;
+    private CameraListener cameraListener;
+
+    private final PassageIngestionService passageIngestionService = new PassageIngestionService(null, null, null, null, null, null) {
+        @Override
+        public IngestionResult ingest(List<VehiclePassage> passages) {
+            if (failing) throw new CannotCreateTransactionException("database is down");
+            if (passages.stream().anyMatch(passage -> passage.registration().equals(UNSTORABLE)))
+                throw new IllegalArgumentException("cannot store " + UNSTORABLE);
+            batches.add(List.copyOf(passages));
+            return new IngestionResult(passages.size(), passages.size(), 0);
+        }
+    };
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        cameraListener.close();
+    }
+
+    @Test
+    void testFramesAreStoredAndAcknowledgedTogether() throws Exception {
+        start(100);
+        ByteBuffer frames = ByteBuffer.allocate(1024);
+        frame(frames, "ABC123", VehicleType.CAR, TIMESTAMP.plusNanos(750_000_000));
+        frame(frames, "BUS-Ö1", VehicleType.BUS, TIMESTAMP.plusMinutes(1));
+        frames.putShort((short) 15).put((byte) 99).putLong(0).put("ABC123".getBytes(StandardCharsets.UTF_8));
+        frame(frames, "ABC123", VehicleType.CAR, TIMESTAMP.plusMinutes(2));
+
+        try (SocketChannel camera = connect()) {
+            camera.write(frames.flip());
+            assertEquals(4, awaitAck(camera, 4));
+        }
+
+        List<VehiclePassage> stored = batches.stream().flatMap(List::stream).toList();
+        assertEquals(List.of(
+                new VehiclePassage("ABC123", VehicleType.CAR, TIMESTAMP),
+                new VehiclePassage("BUS-Ö1", VehicleType.BUS, TIMESTAMP.plusMinutes(1)),
+                new VehiclePassage("ABC123", VehicleType.CAR, TIMESTAMP.plusMinutes(2))
+        ), stored);
+        assertEquals(4.0, meterRegistry.get("congestion.camera.frames").counter().count());
+        assertEquals(1.0, meterRegistry.get("congestion.camera.rejected").counter().count());
+    }
+
+    @Test
+    void testConnectionsShareBatchesOfAtMostBatchSize() throws Exception {
+        start(64);
+        int cameras = 8;
+        int framesPerCamera = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(cameras);
+        try {
+            List<Future<Long>> acks = new ArrayList<>();
+            for (int c = 0; c < cameras; c++) {
+                int camera = c;
+                acks.add(executor.submit(() -> {
+                    ByteBuffer frames = ByteBuffer.allocate(framesPerCamera * CameraProtocol.MAX_FRAME_BYTES);
+                    for (int i = 0; i < framesPerCamera; i++)
+                        frame(frames, "CAM" + camera + "-" + i % 50, VehicleType.CAR, TIMESTAMP.plusSeconds(i));
+                    try (SocketChannel channel = connect()) {
+                        channel.write(frames.flip());
+                        return awaitAck(channel, framesPerCamera);
+                    }
+                }));
+            }
+            for (Future<Long> ack : acks) assertEquals(framesPerCamera, ack.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(cameras * framesPerCamera, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 64));
+    }
+
+    @Test
+    void testFrameThatCannotBeStoredIsRejectedWithoutFailingItsBatch() throws Exception {
+        start(100);
+        ByteBuffer frames = ByteBuffer.allocate(1024);
+        frame(frames, "ABC123", VehicleType.CAR, TIMESTAMP);
+        frame(frames, UNSTORABLE, VehicleType.CAR, TIMESTAMP);
+        frame(frames, "DEF456", VehicleType.CAR, TIMESTAMP);
+        frame(frames, "GHI789", VehicleType.CAR, TIMESTAMP);
+
+        try (SocketChannel camera = connect()) {
+            camera.write(frames.flip());
+            assertEquals(4, awaitAck(camera, 4));
+        }
+
+        assertEquals(List.of("ABC123", "DEF456", "GHI789"),
+                batches.stream().flatMap(List::stream).map(VehiclePassage::registration).toList());
+        assertEquals(1.0, meterRegistry.get("congestion.camera.rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get("congestion.camera.failed").counter().count());
+    }
+
+    @Test
+    void testBatchFailedByTheDatabaseClosesTheConnectionWithoutAck() throws Exception {
+        start(100);
+        failing = true;
+        ByteBuffer frames = ByteBuffer.allocate(256);
+        frame(frames, "ABC123", VehicleType.CAR, TIMESTAMP);
+
+        try (SocketChannel camera = connect()) {
+            camera.write(frames.flip());
+            assertEquals(-1, camera.read(ByteBuffer.allocate(CameraProtocol.ACK_BYTES)));
+        }
+        assertEquals(1.0, meterRegistry.get("congestion.camera.failed").counter().count());
+    }
+
+    @Test
+    void testInvalidFrameLengthClosesTheConnection() throws Exception {
+        start(100);
+        try (SocketChannel camera = connect()) {
+            camera.write(ByteBuffer.allocate(16).putShort((short) 3).flip());
+            assertEquals(-1, camera.read(ByteBuffer.allocate(CameraProtocol.ACK_BYTES)));
+        }
+        assertTrue(batches.isEmpty());
+    }
+
+    private void start(int batchSize) throws IOException {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        properties.getCameraListener().setEnabled(true);
+        properties.getCameraListener().setPort(0);
+        properties.getCameraListener().setBatchSize(batchSize);
+        cameraListener = new CameraListener(passageIngestionService, properties, meterRegistry);
+        cameraListener.start();
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress("localhost", cameraListener.getPort()));
+    }
+
+    private static void frame(ByteBuffer out, String registration, VehicleType type, LocalDateTime timestamp) {
+        CameraProtocol.encode(out, registration.getBytes(StandardCharsets.UTF_8), type,
+                timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    /**
+     * Reads acks until one covers {@code frames} frames.
+     */
+    private static long awaitAck(SocketChannel channel, long frames) throws IOException {
+        ByteBuffer ack = ByteBuffer.allocate(CameraProtocol.ACK_BYTES);
+        long acked = 0;
+        while (acked < frames) {
+            ack.clear();
+            while (ack.hasRemaining()) {
+                if (channel.read(ack) < 0) throw new IOException("Connection closed after " + acked + " acked frames");
+            }
+            acked = ack.flip().getLong();
+        }
+        return acked;
+    }
+}
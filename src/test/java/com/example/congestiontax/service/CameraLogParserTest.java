@@ -0,0 +1,78 @@
+package com.example.congestiontax.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class CameraLogParserTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testParsePassagesFile() throws Exception {
+        Path file = Path.of(getClass().getResource("/passages.txt").toURI());
+        List<Long> parsed = Collections.synchronizedList(new ArrayList<>());
+
+        CameraLogParser.Result result = new CameraLogParser(1, CameraLogParser.DEFAULT_CHUNK_SIZE)
+                .parse(file, collect(parsed), new AtomicLong());
+
+        assertEquals(16, result.lines());
+        assertEquals(0, result.malformedLines());
+        assertEquals(LocalDateTime.of(2013, 1, 14, 21, 0).toEpochSecond(ZoneOffset.UTC), parsed.getFirst());
+    }
+
+    @Test
+    void testParallelChunksMatchLocalDateTimeParsing() throws Exception {
+        Random random = new Random(42);
+        List<Long> expected = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            LocalDateTime timestamp = LocalDateTime.of(2013, 1, 1, 0, 0)
+                    .plusSeconds(random.nextLong(4L * 365 * 86_400));
+            expected.add(timestamp.toEpochSecond(ZoneOffset.UTC));
+            String text = timestamp.format(FORMAT);
+            switch (i % 4) {
+                case 0 -> content.append('"').append(text).append("\"\n\n");
+                case 1 -> content.append(text).append("\r\n");
+                case 2 -> content.append(text.replace(' ', 'T')).append('\n');
+                default -> content.append("  ").append(text).append(" \n");
+            }
+        }
+        content.append("2013-02-30 06:00:00\n2013-01-01 24:00:00\nnot a timestamp\n");
+        Path file = Files.writeString(tempDir.resolve("camera.log"), content);
+
+        List<Long> parsed = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong parsedBytes = new AtomicLong();
+        CameraLogParser.Result result = new CameraLogParser(4, 256).parse(file, collect(parsed), parsedBytes);
+
+        assertEquals(expected.size(), result.lines());
+        assertEquals(3, result.malformedLines());
+        assertEquals(Files.size(file), parsedBytes.get());
+        assertEquals(sorted(expected), sorted(parsed));
+    }
+
+    private static CameraLogParser.Sink collect(List<Long> target) {
+        return (epochSeconds, count) -> {
+            for (int i = 0; i < count; i++) target.add(epochSeconds[i]);
+        };
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        List<Long> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+}
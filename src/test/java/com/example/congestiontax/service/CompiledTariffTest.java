@@ -0,0 +1,67 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class CompiledTariffTest {
+
+    @Test
+    void testChargeLookupWithWrapAroundBand() {
+        CompiledTariff tariff = CompiledTariff.compile(properties(
+                band("06:00", "06:29", 8),
+                band("06:30", "18:29", 13),
+                band("18:30", "05:59", 0)
+        ));
+
+        assertEquals(0, tariff.getCharge(LocalTime.of(0, 0)));
+        assertEquals(0, tariff.getCharge(LocalTime.of(5, 59, 59)));
+        assertEquals(8, tariff.getCharge(LocalTime.of(6, 0)));
+        assertEquals(8, tariff.getCharge(LocalTime.of(6, 29, 30)));
+        assertEquals(13, tariff.getCharge(LocalTime.of(6, 30)));
+        assertEquals(13, tariff.getChargeAtSecondOfDay(18 * 3600 + 29 * 60 + 59));
+        assertEquals(0, tariff.getCharge(LocalTime.of(23, 59, 59)));
+        assertEquals(60, tariff.getMaxDailyCharge());
+    }
+
+    @Test
+    void testOverlappingBandsAreRejected() {
+        CongestionTaxProperties properties = properties(
+                band("00:00", "12:00", 8),
+                band("12:00", "23:59", 13)
+        );
+
+        assertThrows(IllegalStateException.class, () -> CompiledTariff.compile(properties));
+    }
+
+    @Test
+    void testGappedBandsAreRejected() {
+        CongestionTaxProperties properties = properties(
+                band("06:00", "11:59", 8),
+                band("12:30", "05:59", 0)
+        );
+
+        assertThrows(IllegalStateException.class, () -> CompiledTariff.compile(properties));
+    }
+
+    private static CongestionTaxProperties properties(CongestionTaxProperties.TimeBand... timeBands) {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        properties.setMaxDailyCharge(60);
+        properties.setTimeBands(List.of(timeBands));
+        return properties;
+    }
+
+    private static CongestionTaxProperties.TimeBand band(String from, String to, int amount) {
+        CongestionTaxProperties.TimeBand timeBand = new CongestionTaxProperties.TimeBand();
+        timeBand.setFrom(LocalTime.parse(from));
+        timeBand.setTo(LocalTime.parse(to));
+        timeBand.setAmount(amount);
+        return timeBand;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class DailyTaxKernelTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    private final CompiledTariff tariff = CompiledTariff.compile(loadProperties());
+
+    @Test
+    void testKnownDay() {
+        List<LocalDateTime> passages = List.of(
+                DAY.atTime(6, 27), DAY.atTime(6, 20, 27), DAY.atTime(14, 35),
+                DAY.atTime(15, 29), DAY.atTime(15, 47), DAY.atTime(16, 1),
+                DAY.atTime(16, 48), DAY.atTime(17, 49), DAY.atTime(18, 29), DAY.atTime(18, 35)
+        );
+
+        assertEquals(60, kernel(passages));
+        assertEquals(reference(passages), kernel(passages));
+    }
+
+    @Test
+    void testWindowBoundary() {
+        assertEquals(18, kernel(List.of(DAY.atTime(6, 0), DAY.atTime(7, 0, 59))));
+        assertEquals(26, kernel(List.of(DAY.atTime(6, 0), DAY.atTime(7, 1))));
+        assertEquals(0, kernel(List.of()));
+    }
+
+    @Test
+    void testMatchesReferenceOnRandomizedPassages() {
+        Random random = new Random(20130208L);
+
+        for (int trial = 0; trial < 20_000; trial++) {
+            List<LocalDateTime> passages = randomPassages(random);
+            assertEquals(reference(passages), kernel(passages), () -> "Mismatch for " + passages);
+        }
+    }
+
+    @Test
+    void testReportedWindowsAddUpToTheDailyTax() {
+        Random random = new Random(20130208L);
+
+        for (int trial = 0; trial < 20_000; trial++) {
+            int[] secondsOfDay = randomPassages(random).stream().mapToInt(p -> p.toLocalTime().toSecondOfDay()).sorted().toArray();
+            int[] reported = {0};
+            int tax = DailyTaxKernel.calculateSorted(tariff, secondsOfDay, secondsOfDay.length, (secondOfDay, amount) -> {
+                assertTrue(Arrays.binarySearch(secondsOfDay, secondOfDay) >= 0);
+                reported[0] += amount;
+            });
+            assertEquals(DailyTaxKernel.calculateSorted(tariff, secondsOfDay, secondsOfDay.length), tax);
+            assertEquals(tax, reported[0]);
+        }
+    }
+
+    @Test
+    void testCappedWindowIsReportedWithTheRemainder() {
+        int[] secondsOfDay = {6 * 3600, 7 * 3600 + 60, 8 * 3600 + 120, 15 * 3600 + 30 * 60, 16 * 3600 + 40 * 60};
+        List<String> windows = new ArrayList<>();
+        int tax = DailyTaxKernel.calculateSorted(tariff, secondsOfDay, secondsOfDay.length,
+                (secondOfDay, amount) -> windows.add(secondOfDay / 60 + ":" + amount));
+
+        assertEquals(60, tax);
+        assertEquals(List.of("360:8", "421:18", "482:13", "930:18", "1000:3"), windows);
+    }
+
+    private List<LocalDateTime> randomPassages(Random random) {
+        int count = 1 + random.nextInt(random.nextBoolean() ? 4 : 30);
+        List<LocalDateTime> passages = new ArrayList<>(count);
+        int clusterStart = random.nextInt(86_400);
+        for (int i = 0; i < count; i++) {
+            int secondOfDay = random.nextInt(4) == 0
+                    ? random.nextInt(86_400)
+                    : Math.min(86_399, clusterStart + random.nextInt(2 * 3600));
+            passages.add(DAY.atStartOfDay().plusSeconds(secondOfDay));
+        }
+        return passages;
+    }
+
+    private int kernel(List<LocalDateTime> passages) {
+        int[] secondsOfDay = passages.stream().mapToInt(p -> p.toLocalTime().toSecondOfDay()).toArray();
+        return DailyTaxKernel.calculate(tariff, secondsOfDay, secondsOfDay.length);
+    }
+
+    /**
+     * The grouping algorithm the kernel replaced, kept here as the specification it is checked against.
+     */
+    private int reference(List<LocalDateTime> dailyPassages) {
+        List<LocalDateTime> sortedPassages = dailyPassages.stream().sorted().toList();
+        List<List<LocalDateTime>> groups = new ArrayList<>();
+        List<LocalDateTime> currentGroup = new ArrayList<>();
+
+        for (LocalDateTime passage : sortedPassages) {
+            if (currentGroup.isEmpty()) currentGroup.add(passage);
+            else {
+                if (Duration.between(currentGroup.getFirst(), passage).toMinutes() <= 60) {
+                    currentGroup.add(passage);
+                } else {
+                    groups.add(currentGroup);
+                    currentGroup = new ArrayList<>(List.of(passage));
+                }
+            }
+        }
+        if (!currentGroup.isEmpty()) groups.add(currentGroup);
+
+        int tax = groups.stream()
+                .mapToInt(group ->
+                        group.stream()
+                                .mapToInt(p -> tariff.getCharge(p.toLocalTime()))
+                                .max().orElse(0)
+                ).sum();
+
+        return Math.min(tax, tariff.getMaxDailyCharge());
+    }
+
+    private static CongestionTaxProperties loadProperties() {
+        try {
+            var sources = new YamlPropertySourceLoader().load("gothenburg2013", new ClassPathResource("gothenburg2013.yml"));
+            return new Binder(ConfigurationPropertySources.from(sources))
+                    .bind("congestion", CongestionTaxProperties.class)
+                    .get();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
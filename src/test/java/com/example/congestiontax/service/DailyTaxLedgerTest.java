@@ -0,0 +1,181 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.DailyTax;
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+@SpringBootTest(properties = "congestion.ledger.enabled=true")
+@ActiveProfiles("test")
+class DailyTaxLedgerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private DailyTaxRepository dailyTaxRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Vehicle car = new Vehicle("GB-9271-0", VehicleType.CAR);
+    private final Vehicle bus = new Vehicle("EM9999", VehicleType.BUS);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dailyTaxRepository.deleteAll();
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        congestionTaxCalculatorService.saveNewPassage(new Passage(null, car, DAY.atTime(6, 27)));
+        congestionTaxCalculatorService.saveNewPassage(new Passage(null, car, DAY.atTime(15, 47)));
+        congestionTaxCalculatorService.saveNewPassage(new Passage(null, car, DAY.minusDays(1).atTime(7, 10)));
+        congestionTaxCalculatorService.saveNewPassage(new Passage(null, bus, DAY.atTime(7, 30)));
+    }
+
+    @Test
+    void testSaveNewPassageUpdatesAffectedVehicleDay() {
+        assertEquals(3, dailyTaxRepository.count());
+        assertEquals(26, dailyTaxRepository.findById(new DailyTax.Key(car.getRegistration(), DAY)).orElseThrow().getAmount());
+        assertEquals(0, dailyTaxRepository.findById(new DailyTax.Key(bus.getRegistration(), DAY)).orElseThrow().getAmount());
+    }
+
+    @Test
+    void testTotalsAreSummedFromLedger() throws Exception {
+        assertEquals(44, congestionTaxCalculatorService.calculateTaxBetweenDates(
+                car.getRegistration(), LocalDate.of(2013, 2, 1), LocalDate.of(2013, 3, 1)));
+        assertEquals(26, congestionTaxCalculatorService.calculateTaxBetweenDates(
+                car.getRegistration(), DAY, DAY.plusDays(1)));
+
+        var totals = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(
+                LocalDate.of(2013, 1, 1), LocalDate.of(2014, 1, 1));
+        assertEquals(2, totals.size());
+        assertEquals(44, totals.get(car.getRegistration()));
+        assertEquals(0, totals.get(bus.getRegistration()));
+    }
+
+    @Test
+    void testPartitionTotalsAreSummedFromLedger() {
+        for (int index = 0; index < 2; index++) {
+            RegistrationPartition partition = new RegistrationPartition(index, 2);
+            var totals = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(
+                    LocalDate.of(2013, 1, 1), LocalDate.of(2014, 1, 1), partition);
+            for (Vehicle vehicle : List.of(car, bus)) {
+                assertEquals(partition.contains(vehicle.getRegistration()), totals.contains(vehicle.getRegistration()));
+            }
+        }
+    }
+
+    @Test
+    void testBulkIngestionUpdatesAffectedVehicleDays() {
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage(car.getRegistration(), VehicleType.CAR, DAY.atTime(17, 49)),
+                new VehiclePassage(car.getRegistration(), VehicleType.CAR, DAY.plusDays(3).atTime(7, 0)),
+                new VehiclePassage("G-2014-ZG", VehicleType.CAR, DAY.atTime(16, 1))
+        ));
+
+        assertEquals(39, dailyTaxRepository.findById(new DailyTax.Key(car.getRegistration(), DAY)).orElseThrow().getAmount());
+        assertEquals(18, dailyTaxRepository.findById(new DailyTax.Key(car.getRegistration(), DAY.plusDays(3))).orElseThrow().getAmount());
+        assertEquals(18, dailyTaxRepository.findById(new DailyTax.Key("G-2014-ZG", DAY)).orElseThrow().getAmount());
+        assertEquals(5, dailyTaxRepository.count());
+    }
+
+    @Test
+    void testLedgerMaintenanceDoesNotCountExemptions() {
+        double before = meterRegistry.get("congestion.tax.exemptions").tag("reason", "vehicle_type").counter().count();
+
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage(bus.getRegistration(), VehicleType.BUS, DAY.atTime(16, 0)),
+                new VehiclePassage(bus.getRegistration(), VehicleType.BUS, DAY.plusDays(3).atTime(7, 0))
+        ));
+
+        assertEquals(0, dailyTaxRepository.findById(new DailyTax.Key(bus.getRegistration(), DAY.plusDays(3))).orElseThrow().getAmount());
+        assertEquals(before, meterRegistry.get("congestion.tax.exemptions").tag("reason", "vehicle_type").counter().count());
+    }
+
+    @Test
+    void testRebuildRegeneratesLedgerFromPassages() {
+        passageRepository.save(new Passage(null, car, DAY.plusDays(3).atTime(16, 0)));
+        dailyTaxRepository.deleteById(new DailyTax.Key(car.getRegistration(), DAY));
+
+        assertEquals(4, congestionTaxCalculatorService.rebuildDailyTaxLedger());
+
+        var totals = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(
+                LocalDate.of(2013, 1, 1), LocalDate.of(2014, 1, 1));
+        assertEquals(62, totals.get(car.getRegistration()));
+    }
+
+    @Test
+    void testConcurrentIngestionOfSameVehicleDayKeepsEveryPassage() throws Exception {
+        // Passages over an hour apart, 8 each and 40 per day, so a vehicle-day missing one of them shows.
+        List<LocalTime> times = List.of(
+                LocalTime.of(6, 5), LocalTime.of(9, 10), LocalTime.of(11, 15), LocalTime.of(13, 20), LocalTime.of(18, 10));
+        ExecutorService executor = Executors.newFixedThreadPool(times.size());
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (LocalDate date = DAY.plusDays(3); date.isBefore(DAY.plusDays(17)); date = date.plusDays(1)) {
+                for (LocalTime time : times) {
+                    List<VehiclePassage> batch = List.of(new VehiclePassage(car.getRegistration(), VehicleType.CAR, date.atTime(time)));
+                    writes.add(executor.submit(() -> passageIngestionService.ingest(batch)));
+                }
+            }
+            for (Future<?> write : writes) write.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<DailyTax.Key, Integer> maintained = dailyTaxRepository.findAll().stream()
+                .collect(Collectors.toMap(dailyTax -> new DailyTax.Key(dailyTax.getRegistration(), dailyTax.getDate()), DailyTax::getAmount));
+        congestionTaxCalculatorService.rebuildDailyTaxLedger();
+        Map<DailyTax.Key, Integer> rebuilt = dailyTaxRepository.findAll().stream()
+                .collect(Collectors.toMap(dailyTax -> new DailyTax.Key(dailyTax.getRegistration(), dailyTax.getDate()), DailyTax::getAmount));
+        assertEquals(rebuilt, maintained);
+        assertEquals(40, maintained.get(new DailyTax.Key(car.getRegistration(), DAY.plusDays(3))));
+    }
+
+    @Test
+    void testPassagesOfYearsWithoutHolidaysAreStoredWithoutLedgerRows() {
+        LocalDate uncovered = LocalDate.of(2016, 3, 2);
+
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage(car.getRegistration(), VehicleType.CAR, uncovered.atTime(7, 0)),
+                new VehiclePassage(car.getRegistration(), VehicleType.CAR, DAY.plusDays(3).atTime(7, 0))
+        ));
+
+        assertTrue(dailyTaxRepository.findById(new DailyTax.Key(car.getRegistration(), uncovered)).isEmpty());
+        assertEquals(18, dailyTaxRepository.findById(new DailyTax.Key(car.getRegistration(), DAY.plusDays(3))).orElseThrow().getAmount());
+        assertEquals(6, passageRepository.count());
+        assertEquals(4, congestionTaxCalculatorService.rebuildDailyTaxLedger());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.enums.ExemptionReason;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ExemptionCalendarTest {
+
+    private final ExemptionCalendar exemptionCalendar;
+
+    ExemptionCalendarTest() {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        CongestionTaxProperties.ExemptPeriods.Period freeMonth = new CongestionTaxProperties.ExemptPeriods.Period();
+        freeMonth.setStart(LocalDate.of(2013, 7, 1));
+        freeMonth.setEnd(LocalDate.of(2013, 7, 31));
+        properties.getExemptPeriods().setFreeMonth(freeMonth);
+        properties.getExemptPeriods().setWeekends(true);
+        exemptionCalendar = new ExemptionCalendar(properties, new CsvReaderService());
+    }
+
+    @Test
+    void testReasons() {
+        ExemptionCalendar.Country sweden = exemptionCalendar.country("SE");
+
+        assertNull(sweden.reason(LocalDate.of(2013, 2, 8)));
+        assertEquals(ExemptionReason.WEEKEND, sweden.reason(LocalDate.of(2013, 2, 9)));
+        assertEquals(ExemptionReason.HOLIDAY, sweden.reason(LocalDate.of(2013, 3, 29)));
+        assertEquals(ExemptionReason.HOLIDAY, sweden.reason(LocalDate.of(2013, 3, 28)));
+        assertEquals(ExemptionReason.FREE_MONTH, sweden.reason(LocalDate.of(2013, 7, 10)));
+        assertEquals(ExemptionReason.FREE_MONTH, sweden.reason(LocalDate.of(2014, 7, 31)));
+        assertEquals(ExemptionReason.HOLIDAY, sweden.reason(LocalDate.of(2014, 4, 17)));
+    }
+
+    @Test
+    void testCountriesAreKeptApart() {
+        // Good Friday is a public holiday in Sweden but not in Croatia.
+        assertTrue(exemptionCalendar.country("SE").isExempt(LocalDate.of(2013, 3, 29)));
+        assertFalse(exemptionCalendar.country("HR").isExempt(LocalDate.of(2013, 3, 29)));
+        assertTrue(exemptionCalendar.country("HR").isExempt(LocalDate.of(2013, 4, 1)));
+    }
+
+    @Test
+    void testExemptDaysAcrossYears() {
+        ExemptionCalendar.Country sweden = exemptionCalendar.country("SE");
+
+        assertEquals(31, sweden.exemptDays(LocalDate.of(2013, 7, 1), LocalDate.of(2013, 8, 1)));
+        assertEquals(0, sweden.exemptDays(LocalDate.of(2013, 2, 4), LocalDate.of(2013, 2, 9)));
+        // 2013-12-23..26, 28..31 and 2014-01-01, 04..06: holidays, days before them and weekends.
+        assertEquals(12, sweden.exemptDays(LocalDate.of(2013, 12, 23), LocalDate.of(2014, 1, 7)));
+        assertEquals(sweden.exemptDays(LocalDate.of(2013, 1, 1), LocalDate.of(2014, 1, 1))
+                        + sweden.exemptDays(LocalDate.of(2014, 1, 1), LocalDate.of(2015, 1, 1)),
+                sweden.exemptDays(LocalDate.of(2013, 1, 1), LocalDate.of(2015, 1, 1)));
+    }
+
+    @Test
+    void testYearWithoutHolidaysIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> exemptionCalendar.country("SE").isExempt(LocalDate.of(2015, 6, 1)));
+    }
+}
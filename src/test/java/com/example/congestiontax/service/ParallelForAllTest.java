@@ -0,0 +1,70 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.TaxTotals;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * Batches of a few passages force vehicles to be spread over many fork-join tasks.
+ */
+@SpringBootTest(properties = {"congestion.for-all.parallelism=4", "congestion.for-all.batch-size=5"})
+@ActiveProfiles("test")
+class ParallelForAllTest {
+
+    private static final LocalDate START = LocalDate.of(2013, 2, 4);
+    private static final int VEHICLES = 200;
+
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        Random random = new Random(7);
+        List<VehiclePassage> passages = new ArrayList<>();
+        for (int vehicle = 0; vehicle < VEHICLES; vehicle++) {
+            VehicleType type = vehicle % 10 == 0 ? VehicleType.BUS : VehicleType.CAR;
+            int count = random.nextInt(12);
+            for (int p = 0; p < count; p++) {
+                passages.add(new VehiclePassage(String.format("PAR-%04d", vehicle), type,
+                        START.plusDays(random.nextInt(7)).atTime(6 + random.nextInt(13), random.nextInt(60))));
+            }
+        }
+        passageIngestionService.ingest(passages);
+    }
+
+    @Test
+    void testParallelTotalsMatchPerVehicleTotals() throws Exception {
+        TaxTotals totals = congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(START, START.plusDays(7));
+
+        assertEquals(vehicleRepository.count(), totals.size());
+        for (int i = 0; i < totals.size(); i++) {
+            assertEquals(congestionTaxCalculatorService.calculateTaxBetweenDates(totals.registration(i), START, START.plusDays(7)),
+                    totals.amount(i), totals.registration(i));
+            if (i > 0) assertEquals(-1, Integer.signum(totals.registration(i - 1).compareTo(totals.registration(i))));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.RegistrationPartition;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PartitionHashBackfillTest {
+
+    @Autowired
+    private PartitionHashBackfill partitionHashBackfill;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private DailyTaxRepository dailyTaxRepository;
+
+    @BeforeEach
+    void setUp() {
+        dailyTaxRepository.deleteAll();
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+    }
+
+    @Test
+    void testVehiclesWithoutHashGetTheRegistrationHash() {
+        List<Object[]> vehicles = IntStream.range(0, 2500).mapToObj(i -> new Object[]{"HASH-" + i, "CAR"}).toList();
+        jdbcTemplate.batchUpdate("insert into vehicle (registration, type) values (?, ?)", vehicles);
+
+        assertEquals(2500, partitionHashBackfill.backfill());
+
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from vehicle where partition_hash is null", Long.class));
+        jdbcTemplate.query("select registration, partition_hash from vehicle", row -> {
+            assertEquals(RegistrationPartition.hash(row.getString(1)), row.getLong(2));
+        });
+    }
+}
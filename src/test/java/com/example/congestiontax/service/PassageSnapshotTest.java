@@ -0,0 +1,145 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PassageSnapshotTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2013, 1, 14, 6, 0);
+
+    @Test
+    void testRoundTripAcrossBlocks() throws IOException {
+        List<VehiclePassage> passages = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            passages.add(new VehiclePassage("AB-1", VehicleType.CAR, START.plusMinutes(7L * i).plusNanos(i % 3 == 1 ? i * 1_000_000L : 0)));
+        passages.add(new VehiclePassage("AB-2", VehicleType.BUS, START.minusYears(60).plusNanos(999_999_999)));
+        passages.add(new VehiclePassage("ÖL-3", VehicleType.FOREIGN, START));
+        passages.add(new VehiclePassage("ÖL-3", VehicleType.FOREIGN, START));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PassageSnapshot.Writer writer = new PassageSnapshot.Writer(out, 4);
+        for (VehiclePassage passage : passages) writer.add(passage);
+        writer.addVehicle(new Vehicle("ZZ-9", VehicleType.DIPLOMAT));
+        writer.close();
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<VehiclePassage> read = new ArrayList<>();
+        PassageSnapshot.Summary summary = PassageSnapshot.read(new ByteArrayInputStream(out.toByteArray()), (blockVehicles, blockPassages) -> {
+            assertTrue(blockPassages.size() <= 4);
+            vehicles.addAll(blockVehicles);
+            read.addAll(blockPassages);
+        });
+
+        assertEquals(passages, read);
+        assertEquals(new PassageSnapshot.Summary(4, 13, 4), summary);
+        assertEquals(writer.summary(), summary);
+        assertEquals(new Vehicle("ZZ-9", VehicleType.DIPLOMAT), vehicles.getLast());
+        assertEquals(List.of("AB-1", "AB-1", "AB-1", "AB-2", "ÖL-3", "ÖL-3", "ZZ-9"),
+                vehicles.stream().map(Vehicle::getRegistration).toList());
+    }
+
+    @Test
+    void testPassagesTakeFewBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PassageSnapshot.Writer writer = new PassageSnapshot.Writer(out)) {
+            for (int i = 0; i < 1000; i++) writer.add(new VehiclePassage("AB-1", VehicleType.CAR, START.plusMinutes(10L * i)));
+        }
+        // 600 second gaps need two bytes each, plus the header and one block.
+        assertTrue(out.size() < 2200, "snapshot has " + out.size() + " bytes");
+    }
+
+    @Test
+    void testDamageIsDetected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PassageSnapshot.Writer writer = new PassageSnapshot.Writer(out, 2)) {
+            for (int i = 0; i < 6; i++) writer.add(new VehiclePassage("AB-1", VehicleType.CAR, START.plusHours(i)));
+        }
+        byte[] bytes = out.toByteArray();
+
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length - 40] ^= 1;
+        IOException corrupt = assertThrows(IOException.class, () -> PassageSnapshot.read(new ByteArrayInputStream(flipped), (v, p) -> {
+        }));
+        assertTrue(corrupt.getMessage().endsWith("is corrupt: checksum mismatch"), corrupt.getMessage());
+
+        IOException truncated = assertThrows(IOException.class, () -> PassageSnapshot.read(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 20)), (v, p) -> {
+                }));
+        assertTrue(truncated.getMessage().startsWith("Snapshot is truncated"), truncated.getMessage());
+    }
+
+    @Test
+    void testUnorderedPassagesAreRejected() throws IOException {
+        PassageSnapshot.Writer writer = new PassageSnapshot.Writer(new ByteArrayOutputStream());
+        writer.add(new VehiclePassage("AB-2", VehicleType.CAR, START));
+        assertThrows(IllegalArgumentException.class, () -> writer.add(new VehiclePassage("AB-2", VehicleType.CAR, START.minusSeconds(1))));
+        writer.add(new VehiclePassage("AB-3", VehicleType.CAR, START.withNano(5)));
+        assertThrows(IllegalArgumentException.class, () -> writer.add(new VehiclePassage("AB-3", VehicleType.CAR, START)));
+    }
+
+    @Test
+    void testAbortedSnapshotCannotBeRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PassageSnapshot.Writer writer = new PassageSnapshot.Writer(out, 2);
+        for (int i = 0; i < 6; i++) writer.add(new VehiclePassage("AB-1", VehicleType.CAR, START.plusHours(i)));
+        writer.abort();
+
+        IOException truncated = assertThrows(IOException.class, () -> PassageSnapshot.read(
+                new ByteArrayInputStream(out.toByteArray()), (v, p) -> {
+                }));
+        assertTrue(truncated.getMessage().startsWith("Snapshot is truncated"), truncated.getMessage());
+    }
+
+    @Test
+    void testTimestampsAreOrderedAcrossBlocks() throws IOException {
+        PassageSnapshot.Writer writer = new PassageSnapshot.Writer(new ByteArrayOutputStream(), 2);
+        writer.add(new VehiclePassage("AB-1", VehicleType.CAR, START));
+        writer.add(new VehiclePassage("AB-1", VehicleType.CAR, START.plusHours(1)));
+        assertThrows(IllegalArgumentException.class, () -> writer.add(new VehiclePassage("AB-1", VehicleType.CAR, START)));
+    }
+
+    @Test
+    void testVehiclesInDatabaseCollationOrder() throws IOException {
+        // A locale collation ignores punctuation and case, so it can put "A1" before "A-2" and "ab-3".
+        List<VehiclePassage> passages = List.of(
+                new VehiclePassage("A1", VehicleType.CAR, START),
+                new VehiclePassage("A1", VehicleType.CAR, START.plusHours(1)),
+                new VehiclePassage("A-2", VehicleType.CAR, START),
+                new VehiclePassage("ab-3", VehicleType.BUS, START),
+                new VehiclePassage("ab-3", VehicleType.BUS, START.plusHours(1)),
+                new VehiclePassage("ab-3", VehicleType.BUS, START.plusHours(2)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PassageSnapshot.Writer writer = new PassageSnapshot.Writer(out, 2);
+        for (VehiclePassage passage : passages) writer.add(passage);
+        writer.close();
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<VehiclePassage> read = new ArrayList<>();
+        PassageSnapshot.Summary summary = PassageSnapshot.read(new ByteArrayInputStream(out.toByteArray()), (blockVehicles, blockPassages) -> {
+            vehicles.addAll(blockVehicles);
+            read.addAll(blockPassages);
+        });
+
+        assertEquals(passages, read);
+        // A1 and the rest of ab-3 exactly fill their blocks, so neither gets an empty entry in a following block.
+        assertEquals(List.of("A1", "A-2", "ab-3", "ab-3"), vehicles.stream().map(Vehicle::getRegistration).toList());
+        assertEquals(new PassageSnapshot.Summary(3, 6, 3), summary);
+        assertEquals(writer.summary(), summary);
+    }
+}
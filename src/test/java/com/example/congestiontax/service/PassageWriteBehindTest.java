@@ -0,0 +1,164 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.IngestionResult;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PassageWriteBehindTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2013, 2, 8, 6, 27);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<VehiclePassage>> batches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * Records each batch; the first one blocks until {@link #release} so the following passages queue up.
+     */
+    private final PassageIngestionService passageIngestionService = new PassageIngestionService(null, null, null, null, null, null) {
+        @Override
+        public IngestionResult ingest(List<VehiclePassage> passages) {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(List.copyOf(passages));
+            return new IngestionResult(passages.size(), passages.size(), 0);
+        }
+    };
+
+    @Test
+    void testQueuedPassagesAreStoredInBatchesAndFlushedOnClose() throws Exception {
+        PassageWriteBehind passageWriteBehind = writeBehind(10);
+
+        assertEquals(OptionalLong.of(1), passageWriteBehind.submit(passage(0)));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(OptionalLong.of(i + 1), passageWriteBehind.submit(passage(i)));
+        }
+        assertEquals(5.0, meterRegistry.get("congestion.ingest_queue.depth").gauge().value());
+
+        release.countDown();
+        passageWriteBehind.close();
+
+        assertEquals(List.of(1, 5), batches.stream().map(List::size).toList());
+        assertEquals(2, meterRegistry.get("congestion.ingest_queue.commit").timer().count());
+        assertEquals(6.0, meterRegistry.get("congestion.ingest_queue.batch_size").summary().totalAmount());
+    }
+
+    @Test
+    void testFullQueueRejectsPassages() throws Exception {
+        PassageWriteBehind passageWriteBehind = writeBehind(1);
+
+        passageWriteBehind.submit(passage(0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(passageWriteBehind.submit(passage(1)).isPresent());
+        assertEquals(OptionalLong.empty(), passageWriteBehind.submit(passage(2)));
+        assertEquals(1.0, meterRegistry.get("congestion.ingest_queue.rejected").counter().count());
+
+        release.countDown();
+        passageWriteBehind.close();
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void testInvalidPassageIsRejectedBeforeQueueing() throws Exception {
+        PassageWriteBehind passageWriteBehind = writeBehind(10);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> passageWriteBehind.submit(new VehiclePassage("GB-9271-0", null, TIMESTAMP)));
+        assertEquals("vehicle type is missing", exception.getMessage());
+
+        release.countDown();
+        passageWriteBehind.close();
+        assertEquals(0, batches.size());
+    }
+
+    @Test
+    void testTransientFailureIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        PassageWriteBehind passageWriteBehind = writeBehind(10, new PassageIngestionService(null, null, null, null, null, null) {
+            @Override
+            public IngestionResult ingest(List<VehiclePassage> passages) {
+                if (attempts.incrementAndGet() == 1) throw new CannotAcquireLockException("deadlock detected");
+                batches.add(List.copyOf(passages));
+                return new IngestionResult(passages.size(), passages.size(), 0);
+            }
+        });
+
+        passageWriteBehind.submit(passage(0));
+        passageWriteBehind.close();
+
+        assertEquals(List.of(List.of(passage(0))), batches);
+        assertEquals(1.0, meterRegistry.get("congestion.ingest_queue.retried").counter().count());
+        assertEquals(0.0, meterRegistry.get("congestion.ingest_queue.failed").counter().count());
+    }
+
+    @Test
+    void testFailedBatchDropsOnlyThePassageThatCannotBeStored() throws Exception {
+        VehiclePassage bad = passage(3);
+        PassageWriteBehind passageWriteBehind = writeBehind(10, new PassageIngestionService(null, null, null, null, null, null) {
+            @Override
+            public IngestionResult ingest(List<VehiclePassage> passages) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (passages.contains(bad)) throw new DataIntegrityViolationException("value too long");
+                batches.add(List.copyOf(passages));
+                return new IngestionResult(passages.size(), passages.size(), 0);
+            }
+        });
+
+        passageWriteBehind.submit(passage(0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) passageWriteBehind.submit(passage(i));
+        release.countDown();
+        passageWriteBehind.close();
+
+        assertEquals(List.of(passage(0), passage(1), passage(2), passage(4), passage(5)),
+                batches.stream().flatMap(List::stream).toList());
+        assertEquals(1.0, meterRegistry.get("congestion.ingest_queue.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("congestion.ingest_queue.retried").counter().count());
+    }
+
+    private PassageWriteBehind writeBehind(int capacity) {
+        return writeBehind(capacity, passageIngestionService);
+    }
+
+    private PassageWriteBehind writeBehind(int capacity, PassageIngestionService passageIngestionService) {
+        CongestionTaxProperties properties = new CongestionTaxProperties();
+        properties.getIngestQueue().setEnabled(true);
+        properties.getIngestQueue().setCapacity(capacity);
+        properties.getIngestQueue().setRetryBackoff(Duration.ofMillis(1));
+        return new PassageWriteBehind(passageIngestionService, properties, meterRegistry);
+    }
+
+    private static VehiclePassage passage(int minutes) {
+        return new VehiclePassage("GB-9271-0", VehicleType.CAR, TIMESTAMP.plusMinutes(minutes));
+    }
+}
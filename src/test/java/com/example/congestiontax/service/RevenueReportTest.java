@@ -0,0 +1,100 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.RevenueReport;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.RegistrationTax;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RevenueReportTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 7);
+
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        // REV-1 hits the cap on Thursday (8 + 18 + 13 + 18 + 3 of 18) and pays 13 on Friday; REV-2 pays 8 and
+        // REV-3 13 on Thursday. The bus and Saturday are exempt.
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage("REV-1", VehicleType.CAR, DAY.atTime(6, 0)),
+                new VehiclePassage("REV-1", VehicleType.CAR, DAY.atTime(7, 1)),
+                new VehiclePassage("REV-1", VehicleType.CAR, DAY.atTime(8, 2)),
+                new VehiclePassage("REV-1", VehicleType.CAR, DAY.atTime(15, 30)),
+                new VehiclePassage("REV-1", VehicleType.CAR, DAY.atTime(16, 40)),
+                new VehiclePassage("REV-1", VehicleType.CAR, DAY.plusDays(1).atTime(8, 0)),
+                new VehiclePassage("REV-2", VehicleType.CAR, DAY.atTime(10, 0)),
+                new VehiclePassage("REV-2", VehicleType.CAR, DAY.plusDays(2).atTime(8, 0)),
+                new VehiclePassage("REV-3", VehicleType.CAR, DAY.atTime(6, 20)),
+                new VehiclePassage("REV-3", VehicleType.CAR, DAY.atTime(6, 50)),
+                new VehiclePassage("REV-BUS", VehicleType.BUS, DAY.atTime(7, 30))
+        ));
+    }
+
+    @Test
+    void testRevenueIsAggregatedInOnePass() throws Exception {
+        RevenueReport report = congestionTaxCalculatorService.calculateRevenue(DAY, DAY.plusDays(3), 2);
+
+        assertEquals(94, report.total());
+        assertEquals(11, report.passages());
+        assertEquals(3, report.chargedVehicles());
+        assertEquals(1, report.cappedVehicles());
+        assertEquals(1, report.cappedVehicleDays());
+        assertEquals(List.of(
+                new RevenueReport.DayRevenue(DAY, 81),
+                new RevenueReport.DayRevenue(DAY.plusDays(1), 13),
+                new RevenueReport.DayRevenue(DAY.plusDays(2), 0)
+        ), report.days());
+
+        long[] hours = new long[24];
+        hours[6] = 21;
+        hours[7] = 18;
+        hours[8] = 26;
+        hours[10] = 8;
+        hours[15] = 18;
+        hours[16] = 3;
+        assertEquals(Arrays.toString(hours), Arrays.toString(report.hours()));
+
+        assertEquals(94, report.timeBands().stream().mapToLong(RevenueReport.TimeBandRevenue::revenue).sum());
+        assertEquals(new RevenueReport.TimeBandRevenue(LocalTime.of(8, 0), LocalTime.of(8, 29), 13, 26),
+                report.timeBands().stream().filter(band -> band.from().equals(LocalTime.of(8, 0))).findFirst().orElseThrow());
+        assertEquals(new RevenueReport.TimeBandRevenue(LocalTime.of(15, 30), LocalTime.of(16, 59), 18, 21),
+                report.timeBands().stream().filter(band -> band.from().equals(LocalTime.of(15, 30))).findFirst().orElseThrow());
+
+        assertEquals(List.of(new RegistrationTax("REV-1", 73L), new RegistrationTax("REV-3", 13L)), report.topPayers());
+    }
+
+    @Test
+    void testInvalidPeriodIsRejected() {
+        Exception exception = assertThrows(Exception.class,
+                () -> congestionTaxCalculatorService.calculateRevenue(DAY, DAY, 10));
+        assertEquals("Start date must be before end date", exception.getMessage());
+    }
+}
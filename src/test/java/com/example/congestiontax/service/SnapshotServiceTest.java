@@ -0,0 +1,101 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.controller.CongestionController;
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.DailyTaxRepository;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SnapshotServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 7);
+
+    @Autowired
+    private SnapshotService snapshotService;
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private DailyTaxRepository dailyTaxRepository;
+    @Autowired
+    private CongestionController congestionController;
+
+    @BeforeEach
+    void setUp() {
+        dailyTaxRepository.deleteAll();
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage("SNAP-1", VehicleType.CAR, DAY.atTime(6, 20)),
+                new VehiclePassage("SNAP-1", VehicleType.CAR, DAY.atTime(7, 30)),
+                new VehiclePassage("SNAP-1", VehicleType.CAR, DAY.plusDays(1).atTime(15, 10)),
+                new VehiclePassage("SNAP-BUS", VehicleType.BUS, DAY.atTime(7, 30))
+        ));
+        vehicleRepository.insertMissing(List.of(new Vehicle("SNAP-IDLE", VehicleType.MOTORCYCLE)));
+    }
+
+    @Test
+    void testExportThenImportRestoresTheTables() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(new PassageSnapshot.Summary(3, 4, 1), snapshotService.exportSnapshot(out));
+        Integer tax = congestionTaxCalculatorService.calculateTaxBetweenDates("SNAP-1", DAY, DAY.plusDays(2));
+        assertTrue(tax > 0);
+
+        passageRepository.deleteAll();
+        dailyTaxRepository.deleteAll();
+        vehicleRepository.deleteAll();
+        assertEquals(new PassageSnapshot.Summary(3, 4, 1), snapshotService.importSnapshot(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals(4, passageRepository.count());
+        assertEquals(VehicleType.MOTORCYCLE, vehicleRepository.findByRegistration("SNAP-IDLE").orElseThrow().getType());
+        assertEquals(tax, congestionTaxCalculatorService.calculateTaxBetweenDates("SNAP-1", DAY, DAY.plusDays(2)));
+
+        // Importing again keeps the stored rows.
+        snapshotService.importSnapshot(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(4, passageRepository.count());
+        assertEquals(3, vehicleRepository.count());
+    }
+
+    @Test
+    void testPassagesWithMillisecondsSurviveExportAndImport() throws Exception {
+        LocalDateTime timestamp = DAY.atTime(16, 45, 12, 345_000_000);
+        congestionController.addPassage(new Passage(null, new Vehicle("SNAP-1", VehicleType.CAR), timestamp));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(new PassageSnapshot.Summary(3, 5, 1), snapshotService.exportSnapshot(out));
+
+        passageRepository.deleteAll();
+        dailyTaxRepository.deleteAll();
+        vehicleRepository.deleteAll();
+        snapshotService.importSnapshot(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(5, passageRepository.count());
+        assertEquals(1, passageRepository.findPassagesByTimestampBetween(timestamp, timestamp).size());
+    }
+}
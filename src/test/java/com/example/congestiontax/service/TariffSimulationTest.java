@@ -0,0 +1,109 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.dto.TariffSimulation;
+import com.example.congestiontax.model.dto.TariffVariant;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TariffSimulationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 7);
+
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        // SIM-1: 8 + 18 + 13 on Thursday, 13 on Friday; SIM-2: 8 on Thursday; the bus and Saturday are exempt.
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage("SIM-1", VehicleType.CAR, DAY.atTime(6, 20)),
+                new VehiclePassage("SIM-1", VehicleType.CAR, DAY.atTime(7, 30)),
+                new VehiclePassage("SIM-1", VehicleType.CAR, DAY.atTime(15, 10)),
+                new VehiclePassage("SIM-1", VehicleType.CAR, DAY.plusDays(1).atTime(8, 0)),
+                new VehiclePassage("SIM-1", VehicleType.CAR, DAY.plusDays(2).atTime(8, 0)),
+                new VehiclePassage("SIM-2", VehicleType.CAR, DAY.atTime(10, 0)),
+                new VehiclePassage("SIM-BUS", VehicleType.BUS, DAY.atTime(7, 30))
+        ));
+    }
+
+    @Test
+    void testVariantsAreEvaluatedSideBySide() throws Exception {
+        TariffSimulation simulation = congestionTaxCalculatorService.simulateTariffs(DAY, DAY.plusDays(3), List.of(
+                new TariffVariant("unchanged", null, null),
+                new TariffVariant("cap-20", 20, null),
+                new TariffVariant(null, null, List.of(band("00:00", "23:59", 10)))
+        ), 10);
+
+        assertEquals(List.of(
+                new TariffSimulation.TariffTotal("current", 60, 0),
+                new TariffSimulation.TariffTotal("unchanged", 60, 0),
+                new TariffSimulation.TariffTotal("cap-20", 41, -19),
+                new TariffSimulation.TariffTotal("tariff-3", 50, -10)
+        ), simulation.tariffs());
+        assertEquals(2, simulation.changedVehicles());
+        assertEquals(2, simulation.vehicles().size());
+        TariffSimulation.VehicleDelta first = simulation.vehicles().get(0);
+        TariffSimulation.VehicleDelta second = simulation.vehicles().get(1);
+        assertEquals("SIM-1", first.registration());
+        assertEquals(congestionTaxCalculatorService.calculateTaxBetweenDates("SIM-1", DAY, DAY.plusDays(3)), first.current());
+        assertArrayEquals(new int[]{0, -19, -12}, first.deltas());
+        assertEquals("SIM-2", second.registration());
+        assertEquals(8, second.current());
+        assertArrayEquals(new int[]{0, 0, 2}, second.deltas());
+    }
+
+    @Test
+    void testOnlyTheLargestChangesAreReturned() throws Exception {
+        TariffSimulation simulation = congestionTaxCalculatorService.simulateTariffs(DAY, DAY.plusDays(3), List.of(
+                new TariffVariant(null, null, List.of(band("00:00", "23:59", 10)))
+        ), 1);
+
+        assertEquals(2, simulation.changedVehicles());
+        assertEquals(1, simulation.vehicles().size());
+        assertEquals("SIM-1", simulation.vehicles().getFirst().registration());
+        assertArrayEquals(new int[]{-12}, simulation.vehicles().getFirst().deltas());
+    }
+
+    @Test
+    void testInvalidVariantIsRejected() {
+        Exception exception = assertThrows(Exception.class, () -> congestionTaxCalculatorService.simulateTariffs(
+                DAY, DAY.plusDays(1), List.of(new TariffVariant("gap", null, List.of(band("06:00", "18:29", 8)))), 10));
+        assertEquals("Tariff gap: No time band covers 00:00", exception.getMessage());
+    }
+
+    private static CongestionTaxProperties.TimeBand band(String from, String to, int amount) {
+        CongestionTaxProperties.TimeBand timeBand = new CongestionTaxProperties.TimeBand();
+        timeBand.setFrom(LocalTime.parse(from));
+        timeBand.setTo(LocalTime.parse(to));
+        timeBand.setAmount(amount);
+        return timeBand;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Passage;
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.ExemptionReason;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.projection.VehiclePassage;
+import com.example.congestiontax.repository.PassageRepository;
+import com.example.congestiontax.repository.VehicleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TaxMetricsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2013, 2, 8);
+
+    @Autowired
+    private CongestionTaxCalculatorService congestionTaxCalculatorService;
+    @Autowired
+    private PassageIngestionService passageIngestionService;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private PassageRepository passageRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        passageRepository.deleteAll();
+        vehicleRepository.deleteAll();
+
+        Vehicle car = vehicleRepository.save(new Vehicle("GB-9271-0", VehicleType.CAR));
+        Vehicle bus = vehicleRepository.save(new Vehicle("EM9999", VehicleType.BUS));
+        passageRepository.saveAll(List.of(
+                new Passage(null, car, DAY.atTime(6, 27)),
+                new Passage(null, car, DAY.atTime(15, 47)),
+                new Passage(null, car, DAY.plusDays(1).atTime(7, 10)),
+                new Passage(null, bus, DAY.atTime(7, 30))
+        ));
+    }
+
+    @Test
+    void testExemptionsAreCountedByReason() throws Exception {
+        double[] before = exemptionCounts();
+        congestionTaxCalculatorService.calculateDailyTax("GB-9271-0", DAY.plusDays(1));
+        congestionTaxCalculatorService.calculateDailyTax("EM9999", DAY);
+        congestionTaxCalculatorService.calculateDailyTax("GB-9271-0", LocalDate.of(2013, 7, 10));
+        congestionTaxCalculatorService.calculateDailyTax("GB-9271-0", LocalDate.of(2013, 3, 29));
+        double[] after = exemptionCounts();
+
+        for (ExemptionReason reason : ExemptionReason.values()) {
+            assertEquals(1, after[reason.ordinal()] - before[reason.ordinal()], reason.name());
+        }
+    }
+
+    @Test
+    void testVehicleTypeExemptionIsCountedOncePerVehicle() {
+        passageRepository.save(new Passage(null, vehicleRepository.findByRegistration("EM9999").orElseThrow(), DAY.plusDays(1).atTime(8, 0)));
+        double before = count("congestion.tax.exemptions", "reason", "vehicle_type");
+
+        congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(DAY, DAY.plusDays(2));
+
+        assertEquals(1, count("congestion.tax.exemptions", "reason", "vehicle_type") - before);
+    }
+
+    @Test
+    void testForAllRecordsPassagesVehiclesAndTimers() {
+        double passages = count("congestion.tax.passages");
+        double vehicles = count("congestion.tax.for_all.vehicles");
+        double calls = count("congestion.service", "method", "calculateTaxBetweenDatesForAll");
+        double queries = count("spring.data.repository.invocations",
+                "repository", "PassageRepository", "method", "streamVehiclePassagesBetween");
+
+        congestionTaxCalculatorService.calculateTaxBetweenDatesForAll(DAY, DAY.plusDays(2));
+
+        assertEquals(4, count("congestion.tax.passages") - passages);
+        assertEquals(2, count("congestion.tax.for_all.vehicles") - vehicles);
+        assertEquals(1, count("congestion.service", "method", "calculateTaxBetweenDatesForAll") - calls);
+        assertEquals(1, count("spring.data.repository.invocations",
+                "repository", "PassageRepository", "method", "streamVehiclePassagesBetween") - queries);
+    }
+
+    @Test
+    void testIngestionCountsAcceptedAndDuplicatePassages() {
+        double accepted = count("congestion.ingestion.passages", "result", "accepted");
+        double duplicates = count("congestion.ingestion.passages", "result", "duplicate");
+
+        passageIngestionService.ingest(List.of(
+                new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(6, 27)),
+                new VehiclePassage("GB-9271-0", VehicleType.CAR, DAY.atTime(8, 0))
+        ));
+
+        assertEquals(1, count("congestion.ingestion.passages", "result", "accepted") - accepted);
+        assertEquals(1, count("congestion.ingestion.passages", "result", "duplicate") - duplicates);
+    }
+
+    private double[] exemptionCounts() {
+        double[] counts = new double[ExemptionReason.values().length];
+        for (ExemptionReason reason : ExemptionReason.values()) {
+            counts[reason.ordinal()] = count("congestion.tax.exemptions", "reason", reason.name().toLowerCase(Locale.ROOT));
+        }
+        return counts;
+    }
+
+    /**
+     * @return the count of a counter or timer, or the total of a summary; 0 if not registered yet
+     */
+    private double count(String name, String... tags) {
+        Meter meter = meterRegistry.find(name).tags(tags).meter();
+        return switch (meter) {
+            case null -> 0;
+            case Counter counter -> counter.count();
+            case Timer timer -> timer.count();
+            case DistributionSummary summary -> summary.totalAmount();
+            default -> throw new IllegalStateException("Unexpected meter " + meter.getId());
+        };
+    }
+}
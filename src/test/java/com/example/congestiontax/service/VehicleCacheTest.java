@@ -0,0 +1,110 @@
+package com.example.congestiontax.service;
+
+import com.example.congestiontax.model.Vehicle;
+import com.example.congestiontax.model.enums.VehicleType;
+import com.example.congestiontax.model.properties.CongestionTaxProperties;
+import com.example.congestiontax.repository.VehicleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class VehicleCacheTest {
+
+    private final Map<String, Vehicle> vehicles = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    private final VehicleRepository vehicleRepository;
+    private final VehicleCache vehicleCache;
+
+    VehicleCacheTest() {
+        CongestionTaxProperties.VehicleCache properties = new CongestionTaxProperties.VehicleCache();
+        properties.setNegativeTtl(Duration.ofSeconds(30));
+
+        vehicleRepository = (VehicleRepository) Proxy.newProxyInstance(
+                VehicleRepository.class.getClassLoader(),
+                new Class<?>[]{VehicleRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findByRegistration"))
+                        throw new UnsupportedOperationException(method.getName());
+                    lookups.incrementAndGet();
+                    return Optional.ofNullable(vehicles.get((String) args[0]));
+                });
+        vehicleCache = new VehicleCache(vehicleRepository, properties, nanos::get);
+    }
+
+    @Test
+    void testKnownVehicleIsLoadedOnce() {
+        vehicles.put("GB-9271-0", new Vehicle("GB-9271-0", VehicleType.CAR));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(VehicleType.CAR, vehicleCache.findByRegistration("GB-9271-0").orElseThrow().getType());
+            nanos.addAndGet(Duration.ofDays(1).toNanos());
+        }
+
+        assertEquals(1, lookups.get());
+        assertEquals(2, vehicleCache.stats().hitCount());
+        assertEquals(1, vehicleCache.stats().missCount());
+    }
+
+    @Test
+    void testUnknownVehicleExpiresAfterNegativeTtl() {
+        assertEquals(Optional.empty(), vehicleCache.findByRegistration("G-2014-ZG"));
+        vehicles.put("G-2014-ZG", new Vehicle("G-2014-ZG", VehicleType.CAR));
+
+        nanos.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertEquals(Optional.empty(), vehicleCache.findByRegistration("G-2014-ZG"));
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals(VehicleType.CAR, vehicleCache.findByRegistration("G-2014-ZG").orElseThrow().getType());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void testPutAndInvalidate() {
+        vehicleCache.put(new Vehicle("EM9999", VehicleType.BUS));
+        assertEquals(VehicleType.BUS, vehicleCache.findByRegistration("EM9999").orElseThrow().getType());
+        assertEquals(0, lookups.get());
+
+        vehicleCache.invalidate("EM9999");
+        assertEquals(Optional.empty(), vehicleCache.findByRegistration("EM9999"));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void testInvalidateUnknownKeepsKnownVehicles() {
+        vehicles.put("GB-9271-0", new Vehicle("GB-9271-0", VehicleType.CAR));
+        vehicleCache.findByRegistration("GB-9271-0");
+        vehicleCache.findByRegistration("G-2014-ZG");
+        vehicles.put("G-2014-ZG", new Vehicle("G-2014-ZG", VehicleType.CAR));
+
+        vehicleCache.invalidateUnknown(List.of("GB-9271-0", "G-2014-ZG"));
+
+        assertEquals(VehicleType.CAR, vehicleCache.findByRegistration("GB-9271-0").orElseThrow().getType());
+        assertEquals(VehicleType.CAR, vehicleCache.findByRegistration("G-2014-ZG").orElseThrow().getType());
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    void testStatsAreExported() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VehicleCache monitored = new VehicleCache(vehicleRepository, new CongestionTaxProperties(), meterRegistry);
+        vehicles.put("GB-9271-0", new Vehicle("GB-9271-0", VehicleType.CAR));
+
+        monitored.findByRegistration("GB-9271-0");
+        monitored.findByRegistration("GB-9271-0");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "vehicles", "result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "vehicles", "result", "miss").functionCounter().count());
+    }
+}